@@ -0,0 +1,95 @@
+package com.example.server1.avro;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// бинарный формат сообщений kafka: байт 0, id схемы (4 байта, big-endian), тело avro.
+// формат сообщения задает заголовок content-type; без заголовка avro узнается по первому байту,
+// JSON всегда начинается с другого символа, так что старые producer'ы продолжают работать
+@Component
+@RequiredArgsConstructor
+public class AvroCodec {
+
+    public static final String CONTENT_TYPE_HEADER = "content-type";
+    public static final String AVRO = "application/vnd.server1.avro";
+    public static final String JSON = "application/json";
+    public static final String TEXT = "text/plain";
+
+    private static final byte MAGIC_BYTE = 0;
+    private static final int HEADER_SIZE = 5;
+
+    private final LocalSchemaRegistry schemaRegistry;
+
+    private final Map<Integer, GenericDatumReader<GenericRecord>> readers = new ConcurrentHashMap<>();
+    private final Map<String, GenericDatumWriter<GenericRecord>> writers = new ConcurrentHashMap<>();
+
+    public static boolean isAvro(Headers headers, byte[] data) {
+        Header contentType = headers == null ? null : headers.lastHeader(CONTENT_TYPE_HEADER);
+        if (contentType != null) {
+            return AVRO.equals(new String(contentType.value(), StandardCharsets.UTF_8));
+        }
+        return data != null && data.length >= HEADER_SIZE && data[0] == MAGIC_BYTE;
+    }
+
+    public static byte[] contentType(String contentType) {
+        return contentType.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public GenericRecord newRecord(String subject) {
+        return new GenericData.Record(schemaRegistry.latest(subject));
+    }
+
+    public byte[] encode(String subject, GenericRecord record) {
+        int schemaId = schemaRegistry.latestId(subject);
+        GenericDatumWriter<GenericRecord> writer = writers.computeIfAbsent(subject,
+                s -> new GenericDatumWriter<>(schemaRegistry.latest(s)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        out.write(MAGIC_BYTE);
+        out.write(schemaId >>> 24);
+        out.write(schemaId >>> 16);
+        out.write(schemaId >>> 8);
+        out.write(schemaId);
+        BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+        try {
+            writer.write(record, encoder);
+            encoder.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    // запись читается схемой, которой ее писали, и приводится к последней версии subject'а
+    public GenericRecord decode(byte[] data) {
+        if (data.length < HEADER_SIZE || data[0] != MAGIC_BYTE) {
+            throw new IllegalArgumentException("Сообщение не в формате avro");
+        }
+        int schemaId = ByteBuffer.wrap(data, 1, 4).getInt();
+        GenericDatumReader<GenericRecord> reader = readers.computeIfAbsent(schemaId, id -> new GenericDatumReader<>(
+                schemaRegistry.schema(id), schemaRegistry.latest(schemaRegistry.subject(id))));
+        BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(data, HEADER_SIZE, data.length - HEADER_SIZE, null);
+        try {
+            return reader.read(null, decoder);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.server1.avro;
+
+import org.apache.avro.Schema;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+
+// замена schema registry без отдельного сервиса: схемы лежат в репозитории (resources/avro),
+// id версий перечислены в avro/registry.properties. Последняя версия subject'а - схема читателя
+@Component
+public class LocalSchemaRegistry {
+
+    public static final String REGISTRY_FILE = "avro/registry.properties";
+
+    public static final String TASK_ASSIGNMENT = "task-assignment";
+    public static final String TASK_DELETION = "task-deletion";
+    public static final String NOTIFICATION = "notification";
+
+    private final Map<Integer, Schema> schemasById = new HashMap<>();
+    private final Map<Integer, String> subjectsById = new HashMap<>();
+    // id версий subject'а по возрастанию
+    private final Map<String, List<Integer>> idsBySubject = new TreeMap<>();
+
+    public LocalSchemaRegistry() {
+        Properties registry = new Properties();
+        try (InputStream in = new ClassPathResource(REGISTRY_FILE).getInputStream()) {
+            registry.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать " + REGISTRY_FILE, e);
+        }
+        new TreeMap<>(registry).forEach((key, value) -> {
+            int id = Integer.parseInt(((String) key).trim());
+            String path = ((String) value).trim();
+            String subject = path.substring(0, path.indexOf('/'));
+            schemasById.put(id, load("avro/" + path + ".avsc"));
+            subjectsById.put(id, subject);
+            idsBySubject.computeIfAbsent(subject, s -> new ArrayList<>()).add(id);
+        });
+        idsBySubject.values().forEach(Collections::sort);
+    }
+
+    public Schema schema(int id) {
+        Schema schema = schemasById.get(id);
+        if (schema == null) {
+            throw new IllegalArgumentException("Неизвестный id схемы: " + id);
+        }
+        return schema;
+    }
+
+    public String subject(int id) {
+        schema(id);
+        return subjectsById.get(id);
+    }
+
+    public int latestId(String subject) {
+        List<Integer> ids = ids(subject);
+        return ids.get(ids.size() - 1);
+    }
+
+    public Schema latest(String subject) {
+        return schemasById.get(latestId(subject));
+    }
+
+    public List<Schema> versions(String subject) {
+        return ids(subject).stream().map(schemasById::get).toList();
+    }
+
+    public Set<String> subjects() {
+        return idsBySubject.keySet();
+    }
+
+    private List<Integer> ids(String subject) {
+        List<Integer> ids = idsBySubject.get(subject);
+        if (ids == null) {
+            throw new IllegalArgumentException("Неизвестный subject схемы: " + subject);
+        }
+        return ids;
+    }
+
+    // у каждой версии свой Parser: одно и то же имя record'а в одном Parser'е объявить дважды нельзя
+    private static Schema load(String path) {
+        try (InputStream in = new ClassPathResource(path).getInputStream()) {
+            return new Schema.Parser().parse(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать схему " + path, e);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.server1.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+// то, что hibernate сам не создает (частичные индексы, миграции данных),
+// лежит в db/*.sql; скрипты идемпотентные и выполняются по порядку имен при каждом старте,
+// сразу после того как hibernate обновил схему и до запуска kafka listener'ов и планировщиков
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+public class DbScriptsRunner implements InitializingBean {
+
+    private final DataSource dataSource;
+
+    @Value("${db.scripts.enabled:true}")
+    private boolean enabled;
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Resource[] scripts = new PathMatchingResourcePatternResolver().getResources("classpath:db/*.sql");
+        Arrays.sort(scripts, Comparator.comparing(Resource::getFilename));
+        for (Resource script : scripts) {
+            ResourceDatabasePopulator populator = new ResourceDatabasePopulator(script);
+            populator.setSeparator(ScriptUtils.EOF_STATEMENT_SEPARATOR);
+            populator.execute(dataSource);
+            log.info("выполнен скрипт {}", script.getFilename());
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.server1.config;
+
+import com.example.server1.controller.NotificationInboxConsumer;
+import com.example.server1.messaging.InMemoryMessageBus;
+import com.example.server1.service.NotificationStreamService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+// профиль inmemory: автоконфигурация kafka выключена (application-inmemory.properties), @KafkaListener не обрабатываются,
+// поэтому читатели уведомлений подписываются на шину в памяти сами. Прием заданий (task-assignments, task-deletions)
+// требует kafka: в этом процессе их никто не публикует, а внешние отправители до шины в памяти не достают
+@Configuration
+@Profile(InMemoryMessageBus.PROFILE)
+public class InMemoryMessagingConfig {
+
+    @Bean
+    public ApplicationRunner inMemorySubscriptions(InMemoryMessageBus messageBus,
+                                                   NotificationStreamService notificationStreamService,
+                                                   NotificationInboxConsumer notificationInboxConsumer,
+                                                   @Value("${notifications.stream.enabled:true}") boolean streamEnabled,
+                                                   @Value("${notifications.inbox.enabled:true}") boolean inboxEnabled) {
+        return args -> {
+            if (streamEnabled) {
+                messageBus.subscribe(KafkaTopics.NOTIFICATIONS_FOR_USER, NotificationStreamService.LISTENER_ID,
+                        records -> records.forEach(notificationStreamService::onNotification));
+            }
+            if (inboxEnabled) {
+                messageBus.subscribe(KafkaTopics.NOTIFICATIONS_FOR_USER, NotificationInboxConsumer.GROUP_ID,
+                        notificationInboxConsumer::consumeNotifications);
+            }
+        };
+    }
+}
@@ -1,16 +1,110 @@
 package com.example.server1.config;
 
+import com.example.server1.avro.AvroCodec;
+import com.example.server1.controller.TaskPayloadDeserializer;
+import com.example.server1.entity.TaskPayload;
+import com.example.server1.messaging.InMemoryMessageBus;
 import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.config.TopicConfig;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+
+import java.util.HashMap;
+import java.util.Map;
 
 @Configuration
 @EnableKafka
+@Profile("!" + InMemoryMessageBus.PROFILE)
 public class KafkaConfig {
 
+    // число партиций = предел параллелизма группы consumer'ов; у топиков задач оно общее
+    @Value("${kafka.topics.task-partitions:6}")
+    private int taskPartitions;
+
+    @Value("${kafka.topics.notification-partitions:3}")
+    private int notificationPartitions;
+
+    @Value("${kafka.topics.replicas:1}")
+    private int replicas;
+
+    // сколько tombstone удаленной задачи хранится после сжатия: за это время его должны прочитать все читатели
+    @Value("${kafka.topics.task-changelog.delete-retention-ms:86400000}")
+    private long changelogDeleteRetentionMs;
+
+    @Bean
+    public NewTopic taskAssignmentsTopic() {
+        return TopicBuilder.name(KafkaTopics.TASK_ASSIGNMENTS)
+                .partitions(taskPartitions)
+                .replicas(replicas)
+                .build();
+    }
+
+    @Bean
+    public NewTopic taskAssignmentsUrgentTopic() {
+        return TopicBuilder.name(KafkaTopics.TASK_ASSIGNMENTS_URGENT)
+                .partitions(taskPartitions)
+                .replicas(replicas)
+                .build();
+    }
+
+    @Bean
+    public NewTopic taskAssignmentsNormalTopic() {
+        return TopicBuilder.name(KafkaTopics.TASK_ASSIGNMENTS_NORMAL)
+                .partitions(taskPartitions)
+                .replicas(replicas)
+                .build();
+    }
+
+    @Bean
+    public NewTopic taskDeletionsTopic() {
+        return TopicBuilder.name(KafkaTopics.TASK_DELETIONS)
+                .partitions(taskPartitions)
+                .replicas(replicas)
+                .build();
+    }
+
+    @Bean
+    public NewTopic notificationsForAdminTopic() {
+        return TopicBuilder.name(KafkaTopics.NOTIFICATIONS_FOR_ADMIN)
+                .partitions(notificationPartitions)
+                .replicas(replicas)
+                .build();
+    }
+
+    // один топик на всех пользователей с ключом username вместо топика на пользователя:
+    // число топиков и партиций на брокере больше не растет вместе с числом пользователей
+    @Bean
+    public NewTopic notificationsForUserTopic() {
+        return TopicBuilder.name(KafkaTopics.NOTIFICATIONS_FOR_USER)
+                .partitions(notificationPartitions)
+                .replicas(replicas)
+                .build();
+    }
+
+    // log compaction оставляет по ключу последнюю запись: новый читатель с начала топика получает
+    // текущее состояние всех задач, удаленные задачи приходят tombstone'ом (значение null)
+    @Bean
+    public NewTopic taskChangelogTopic() {
+        return TopicBuilder.name(KafkaTopics.TASK_CHANGELOG)
+                .partitions(taskPartitions)
+                .replicas(replicas)
+                .compact()
+                .config(TopicConfig.DELETE_RETENTION_MS_CONFIG, String.valueOf(changelogDeleteRetentionMs))
+                .build();
+    }
+
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, String> kafkaListenerContainerFactory(
             ConsumerFactory<String, String> consumerFactory) {
@@ -22,4 +116,99 @@ public class KafkaConfig {
         factory.setAutoStartup(true);
         return factory;
     }
+
+    // task-assignments разбирается сразу в TaskPayload из байт сообщения, минуя String и TaskDto
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, TaskPayload> taskPayloadKafkaListenerContainerFactory(
+            ConsumerFactory<String, String> consumerFactory, AvroCodec avroCodec) {
+        ConcurrentKafkaListenerContainerFactory<String, TaskPayload> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(taskPayloadConsumerFactory(consumerFactory.getConfigurationProperties(), avroCodec));
+        return factory;
+    }
+
+    // конвейерный режим: offset подтверждают потоки записи TaskWritePipeline, в произвольном порядке;
+    // контейнер коммитит только непрерывный префикс подтвержденных offset'ов
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, TaskPayload> pipelineKafkaListenerContainerFactory(
+            ConsumerFactory<String, String> consumerFactory, AvroCodec avroCodec,
+            DefaultErrorHandler pipelineErrorHandler) {
+        ConcurrentKafkaListenerContainerFactory<String, TaskPayload> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(taskPayloadConsumerFactory(consumerFactory.getConfigurationProperties(), avroCodec));
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setAsyncAcks(true);
+        factory.setCommonErrorHandler(pipelineErrorHandler);
+        return factory;
+    }
+
+    // значение как есть: формат (JSON или avro) listener выбирает сам по заголовку content-type
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, byte[]> bytesKafkaListenerContainerFactory(
+            ConsumerFactory<String, String> consumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<String, byte[]> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(consumerFactory.getConfigurationProperties(),
+                new StringDeserializer(), new ByteArrayDeserializer()));
+        return factory;
+    }
+
+    // SSE поток: offset'ы не коммитятся вовсе (MANUAL без подтверждений), у каждого запуска узла своя группа
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, byte[]> streamKafkaListenerContainerFactory(
+            ConsumerFactory<String, String> consumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<String, byte[]> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(consumerFactory.getConfigurationProperties(),
+                new StringDeserializer(), new ByteArrayDeserializer()));
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        return factory;
+    }
+
+    // пакетный режим: listener получает до batch.size записей за poll, брокер копит их
+    // до batch.min-bytes или batch.max-wait-ms; offset'ы коммитятся после обработки всей пачки
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, TaskPayload> batchKafkaListenerContainerFactory(
+            ConsumerFactory<String, String> consumerFactory,
+            @Value("${kafka.task-assignments.batch.size:500}") int batchSize,
+            @Value("${kafka.task-assignments.batch.max-wait-ms:200}") int maxWaitMs,
+            @Value("${kafka.task-assignments.batch.min-bytes:65536}") int minBytes,
+            DefaultErrorHandler batchErrorHandler,
+            AvroCodec avroCodec) {
+        Map<String, Object> props = new HashMap<>(consumerFactory.getConfigurationProperties());
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, batchSize);
+        props.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, maxWaitMs);
+        props.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, minBytes);
+
+        ConcurrentKafkaListenerContainerFactory<String, TaskPayload> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(taskPayloadConsumerFactory(props, avroCodec));
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        factory.setCommonErrorHandler(batchErrorHandler);
+        return factory;
+    }
+
+    // пакетный task-deletions: значения байтами, формат определяет TaskDeletionReader
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, byte[]> bytesBatchKafkaListenerContainerFactory(
+            ConsumerFactory<String, String> consumerFactory,
+            @Value("${kafka.task-deletions.batch.size:500}") int batchSize,
+            DefaultErrorHandler batchErrorHandler) {
+        Map<String, Object> props = new HashMap<>(consumerFactory.getConfigurationProperties());
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, batchSize);
+
+        ConcurrentKafkaListenerContainerFactory<String, byte[]> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(props,
+                new StringDeserializer(), new ByteArrayDeserializer()));
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        factory.setCommonErrorHandler(batchErrorHandler);
+        return factory;
+    }
+
+    private ConsumerFactory<String, TaskPayload> taskPayloadConsumerFactory(Map<String, Object> props, AvroCodec avroCodec) {
+        return new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(), new TaskPayloadDeserializer(avroCodec));
+    }
 }
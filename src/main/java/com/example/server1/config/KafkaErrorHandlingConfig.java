@@ -0,0 +1,115 @@
+package com.example.server1.config;
+
+import com.example.server1.controller.TaskPayloadSerializer;
+import com.example.server1.entity.TaskPayload;
+import com.example.server1.exeptions.MalformedMessageExeption;
+import com.example.server1.messaging.InMemoryMessageBus;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.example.server1.exeptions.NotFoundExeption;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerProducerListener;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.listener.ContainerPausingBackOffHandler;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.listener.ListenerContainerPauseService;
+import org.springframework.kafka.support.ExponentialBackOffWithMaxRetries;
+import org.springframework.kafka.support.serializer.DelegatingByTypeSerializer;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// dead letter для пакетных listener'ов: @RetryableTopic с ними не работает,
+// поэтому пачка повторяется на месте с растущей задержкой, а потом записи уходят в <topic>-dlt
+@Configuration
+@Profile("!" + InMemoryMessageBus.PROFILE)
+public class KafkaErrorHandlingConfig {
+
+    public static final String DLT_SUFFIX = "-dlt";
+
+    public static final String RAW_TEMPLATE = "rawKafkaTemplate";
+
+    // объявлен явно: при наличии второго KafkaTemplate автоконфигурация spring boot свой не создает
+    @Bean
+    public KafkaTemplate<String, String> kafkaTemplate(ProducerFactory<String, String> producerFactory) {
+        return new KafkaTemplate<>(producerFactory);
+    }
+
+    // для outbox, retry топиков, dlt и avro: TaskPayload пишется исходными байтами, byte[] и строки как есть.
+    // batch.size, linger.ms и сжатие настраиваются отдельно от общего producer'а; замер - NotificationProducerBenchmark.
+    // метрики клиента (kafka.producer.buffer.available.bytes, batch.size.avg, compression.rate.avg и т.д.)
+    // публикуются через MicrometerProducerListener
+    @Bean(RAW_TEMPLATE)
+    public KafkaTemplate<String, Object> rawKafkaTemplate(ProducerFactory<String, String> producerFactory,
+                                                          MeterRegistry meterRegistry,
+                                                          @Value("${kafka.producer.batch-size:65536}") int batchSize,
+                                                          @Value("${kafka.producer.linger-ms:10}") int lingerMs,
+                                                          @Value("${kafka.producer.compression:lz4}") String compression,
+                                                          @Value("${kafka.producer.buffer-memory:33554432}") long bufferMemory,
+                                                          @Value("${kafka.producer.max-block-ms:5000}") long maxBlockMs) {
+        Map<Class<?>, Serializer<?>> serializers = Map.of(
+                String.class, new StringSerializer(),
+                byte[].class, new ByteArraySerializer(),
+                TaskPayload.class, new TaskPayloadSerializer());
+        Map<String, Object> props = new HashMap<>(producerFactory.getConfigurationProperties());
+        props.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        props.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compression);
+        props.put(ProducerConfig.BUFFER_MEMORY_CONFIG, bufferMemory);
+        props.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, maxBlockMs);
+        DefaultKafkaProducerFactory<String, Object> rawProducerFactory = new DefaultKafkaProducerFactory<>(props,
+                new StringSerializer(), new DelegatingByTypeSerializer(serializers));
+        rawProducerFactory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        return new KafkaTemplate<>(rawProducerFactory);
+    }
+
+    @Bean
+    public DeadLetterPublishingRecoverer deadLetterPublishingRecoverer(
+            KafkaTemplate<String, Object> rawKafkaTemplate) {
+        return new DeadLetterPublishingRecoverer(rawKafkaTemplate,
+                (record, exception) -> new TopicPartition(record.topic() + DLT_SUFFIX, record.partition()));
+    }
+
+    @Bean
+    public DefaultErrorHandler batchErrorHandler(DeadLetterPublishingRecoverer deadLetterPublishingRecoverer,
+                                                 @Value("${kafka.retry.attempts:4}") int attempts,
+                                                 @Value("${kafka.retry.delay-ms:1000}") long delayMs,
+                                                 @Value("${kafka.retry.multiplier:2.0}") double multiplier,
+                                                 @Value("${kafka.retry.max-delay-ms:30000}") long maxDelayMs) {
+        ExponentialBackOffWithMaxRetries backOff = new ExponentialBackOffWithMaxRetries(attempts - 1);
+        backOff.setInitialInterval(delayMs);
+        backOff.setMultiplier(multiplier);
+        backOff.setMaxInterval(maxDelayMs);
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler(deadLetterPublishingRecoverer, backOff);
+        errorHandler.addNotRetryableExceptions(JsonProcessingException.class, NotFoundExeption.class,
+                MalformedMessageExeption.class);
+        return errorHandler;
+    }
+
+    // конвейерный режим: при заполненной очереди TaskWritePipeline контейнер возвращается к записи (seek),
+    // а ее партиция стоит на паузе full-pause-ms; consumer все это время продолжает poll, rebalance не происходит.
+    // попытки не ограничены: запись, не принятая в очередь или не отправленная в dlt, не теряется
+    @Bean
+    public DefaultErrorHandler pipelineErrorHandler(DeadLetterPublishingRecoverer deadLetterPublishingRecoverer,
+                                                    KafkaListenerEndpointRegistry listenerRegistry,
+                                                    TaskScheduler taskScheduler,
+                                                    @Value("${kafka.task-assignments.pipeline.full-pause-ms:1000}") long pauseMs) {
+        return new DefaultErrorHandler(deadLetterPublishingRecoverer,
+                new FixedBackOff(pauseMs, FixedBackOff.UNLIMITED_ATTEMPTS),
+                new ContainerPausingBackOffHandler(new ListenerContainerPauseService(listenerRegistry, taskScheduler)));
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.server1.config;
+
+// имена топиков; task-assignments и task-deletions ключуются username
+// и имеют одинаковое число партиций, чтобы сообщения одного пользователя шли по порядку.
+// notifications_for_user тоже ключуется username: consumer пользователя фильтрует записи по ключу.
+// task-assignments-urgent и task-assignments-normal - полосы приоритета для СРОЧНАЯ и НАДО_ПОТОРОПИТЬСЯ (TaskLane),
+// task-assignments - полоса остальных заданий и массового импорта.
+// task-changelog - сжатый топик с текущим состоянием задач, ключ - id задачи
+public final class KafkaTopics {
+
+    public static final String TASK_ASSIGNMENTS = "task-assignments";
+    public static final String TASK_ASSIGNMENTS_URGENT = "task-assignments-urgent";
+    public static final String TASK_ASSIGNMENTS_NORMAL = "task-assignments-normal";
+    public static final String TASK_DELETIONS = "task-deletions";
+    public static final String NOTIFICATIONS_FOR_ADMIN = "notifications_for_admin";
+    public static final String NOTIFICATIONS_FOR_USER = "notifications_for_user";
+    public static final String TASK_CHANGELOG = "task-changelog";
+
+    private KafkaTopics() {
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.server1.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.ThreadPoolTaskSchedulerBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+// по умолчанию у @Scheduled один поток: долгий проход архива или очистки задерживал бы backpressure и полосы
+// заданий, которые ставят consumer'ов на паузу. Долгих задач с базой шесть, поэтому 8 потоков оставляют
+// контроллерам пауз свободный поток. Остальные spring.task.scheduling.* настройки берутся из builder'а boot
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(ThreadPoolTaskSchedulerBuilder builder,
+                                                 @Value("${spring.task.scheduling.pool.size:8}") int poolSize) {
+        return builder.poolSize(poolSize).build();
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.server1.config;
+
+import com.example.server1.entity.Importance;
+
+// полосы приоритета заданий: у каждой важности свой топик, поэтому срочное задание не стоит в очереди
+// за массовым импортом. Отправитель выбирает топик по важности задания, прежние отправители
+// в task-assignments попадают в полосу BACKLOG. Порядок в enum = приоритет
+public enum TaskLane {
+
+    URGENT(KafkaTopics.TASK_ASSIGNMENTS_URGENT),
+    NORMAL(KafkaTopics.TASK_ASSIGNMENTS_NORMAL),
+    BACKLOG(KafkaTopics.TASK_ASSIGNMENTS);
+
+    private final String topic;
+
+    TaskLane(String topic) {
+        this.topic = topic;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public static TaskLane forImportance(Importance importance) {
+        if (importance == null) {
+            return BACKLOG;
+        }
+        return switch (importance) {
+            case СРОЧНАЯ -> URGENT;
+            case НАДО_ПОТОРОПИТЬСЯ -> NORMAL;
+            case МОЖЕТ_ПОДОЖДАТЬ -> BACKLOG;
+        };
+    }
+
+    // null для топиков вне полос, в том числе retry топиков
+    public static TaskLane forTopic(String topic) {
+        for (TaskLane lane : values()) {
+            if (lane.topic.equals(topic)) {
+                return lane;
+            }
+        }
+        return null;
+    }
+}
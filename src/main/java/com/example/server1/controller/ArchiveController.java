@@ -0,0 +1,40 @@
+package com.example.server1.controller;
+
+import com.example.server1.entity.ArchivedComment;
+import com.example.server1.entity.ArchivedTask;
+import com.example.server1.service.ArchiveService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+// чтение архива завершенных задач, отдельно от рабочих задач
+@RestController
+@Slf4j
+@RequiredArgsConstructor
+@RequestMapping("/archive")
+public class ArchiveController {
+
+    private final ArchiveService archiveService;
+
+    @GetMapping("/tasks")
+    public List<ArchivedTask> getArchivedTasks(@RequestParam String username,
+                                               @RequestParam(required = false) Long beforeId,
+                                               @RequestParam(defaultValue = "50") int size) {
+        log.info("getArchivedTasks");
+        return archiveService.findArchivedTasks(username, beforeId, size);
+    }
+
+    @GetMapping("/tasks/{id}")
+    public ArchivedTask getArchivedTask(@PathVariable Long id) {
+        log.info("getArchivedTask");
+        return archiveService.findArchivedTask(id);
+    }
+
+    @GetMapping("/tasks/{id}/comments")
+    public List<ArchivedComment> getArchivedComments(@PathVariable Long id) {
+        log.info("getArchivedComments");
+        return archiveService.findArchivedComments(id);
+    }
+}
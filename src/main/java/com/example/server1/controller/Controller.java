@@ -3,16 +3,23 @@ package com.example.server1.controller;
 import com.example.server1.entity.Comment;
 import com.example.server1.entity.Role;
 import com.example.server1.entity.Task;
+import com.example.server1.entity.TaskStats;
 import com.example.server1.entity.User;
+import com.example.server1.entity.UserTaskSummary;
 import com.example.server1.jwt.AuthRequest;
 import com.example.server1.jwt.AuthResponse;
 import com.example.server1.jwt.JwtTokenUtils;
+import com.example.server1.service.DeadLetterReplayService;
+import com.example.server1.service.StatsService;
+import com.example.server1.service.TaskCounterService;
 import com.example.server1.service.TaskService;
 import com.example.server1.service.UserService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -29,6 +36,10 @@ public class Controller {
     private final TaskService taskService;
     private final UserService userService;
     private final JwtTokenUtils jwtTokenUtils;
+    private final StatsService statsService;
+    private final TaskCounterService taskCounterService;
+    // без kafka (профиль inmemory) dead letter топиков нет
+    private final ObjectProvider<DeadLetterReplayService> deadLetterReplayService;
 
     @PostMapping("/register")
     public String createUser(@RequestBody AuthRequest request) {
@@ -71,6 +82,35 @@ public class Controller {
         return userService.findAll();
     }
 
+    //агрегированная статистика по задачам, считается в базе
+    @GetMapping("/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public TaskStats getStats() {
+        log.info("getStats");
+        return statsService.getStats();
+    }
+
+    //сводка по задачам пользователя из счетчиков, без загрузки самих задач
+    @GetMapping("/userstats")
+    public UserTaskSummary getUserStats(@RequestParam String username) {
+        log.info("getUserStats");
+        return taskCounterService.getSummary(userService.findByUsername(username));
+    }
+
+    //переотправить сообщения из dead letter топика обратно в исходный
+    @PostMapping("/admin/dlt/replay")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<String> replayDeadLetters(@RequestParam String topic,
+                                                    @RequestParam(defaultValue = "100") int max) {
+        log.info("replayDeadLetters");
+        DeadLetterReplayService replayService = deadLetterReplayService.getIfAvailable();
+        if (replayService == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Kafka disabled");
+        }
+        int replayed = replayService.replay(topic, max);
+        return ResponseEntity.ok("Replayed " + replayed);
+    }
+
     @GetMapping("/userwithouttasks")
     public Map<String,Object> getUserWithoutTasks(@RequestParam String username) {
         log.info("getUser");
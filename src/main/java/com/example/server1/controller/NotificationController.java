@@ -0,0 +1,64 @@
+package com.example.server1.controller;
+
+import com.example.server1.entity.InboxNotification;
+import com.example.server1.service.NotificationInboxService;
+import com.example.server1.service.NotificationStreamService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.util.List;
+
+// уведомления текущего пользователя: ящик (пропущенное, непрочитанные) и поток SSE вместо своего
+// kafka consumer'а на клиенте; после обрыва поток возобновляется с Last-Event-ID из буфера узла
+@RestController
+@Slf4j
+@RequiredArgsConstructor
+@RequestMapping("/notifications")
+public class NotificationController {
+
+    private final NotificationInboxService notificationInboxService;
+    private final NotificationStreamService notificationStreamService;
+
+    @Value("${notifications.stream.timeout:PT30M}")
+    private Duration timeout;
+
+    @GetMapping
+    public List<InboxNotification> getNotifications(Principal principal,
+                                                    @RequestParam(required = false) Long beforeId,
+                                                    @RequestParam(defaultValue = "50") int size) {
+        return notificationInboxService.findPage(principal.getName(), beforeId, size);
+    }
+
+    @GetMapping("/unread-count")
+    public long getUnreadCount(Principal principal) {
+        return notificationInboxService.unreadCount(principal.getName());
+    }
+
+    @PutMapping("/read")
+    public int markRead(Principal principal, @RequestBody List<Long> ids) {
+        return notificationInboxService.markRead(principal.getName(), ids);
+    }
+
+    @PutMapping("/read-all")
+    public int markAllRead(Principal principal) {
+        return notificationInboxService.markAllRead(principal.getName());
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(Principal principal,
+                             @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        SseEmitter emitter = notificationStreamService.subscribe(principal.getName(), lastEventId, timeout.toMillis());
+        if (emitter == null) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "слишком много подключений");
+        }
+        return emitter;
+    }
+}
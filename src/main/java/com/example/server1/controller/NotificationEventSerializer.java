@@ -0,0 +1,104 @@
+package com.example.server1.controller;
+
+import com.example.server1.entity.NotificationEvent;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+// компактный JSON уведомления без ObjectMapper и промежуточных Map: поля пишутся генератором напрямую
+// в буфер потока, который переиспользуется между сообщениями; пустые поля не пишутся.
+// toText - прежний русский текст для kafka.notifications.format=text
+public final class NotificationEventSerializer {
+
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final ThreadLocal<ByteArrayBuilder> BUFFER = ThreadLocal.withInitial(() -> new ByteArrayBuilder(256));
+
+    private NotificationEventSerializer() {
+    }
+
+    public static byte[] toJson(NotificationEvent event) {
+        ByteArrayBuilder buffer = BUFFER.get();
+        buffer.reset();
+        try (JsonGenerator generator = JSON.createGenerator(buffer)) {
+            generator.writeStartObject();
+            generator.writeStringField("type", event.getType().name());
+            if (event.getRecipient() != null) {
+                generator.writeStringField("recipient", event.getRecipient());
+            }
+            if (event.getTaskId() != null) {
+                generator.writeNumberField("taskId", event.getTaskId());
+            }
+            if (event.getTitle() != null) {
+                generator.writeStringField("title", event.getTitle());
+            }
+            if (event.getActor() != null) {
+                generator.writeStringField("actor", event.getActor());
+            }
+            if (event.getCount() != 1) {
+                generator.writeNumberField("count", event.getCount());
+            }
+            if (event.getTaskIds() != null && !event.getTaskIds().isEmpty()) {
+                generator.writeArrayFieldStart("taskIds");
+                for (Long id : event.getTaskIds()) {
+                    if (id != null) {
+                        generator.writeNumber(id);
+                    }
+                }
+                generator.writeEndArray();
+            }
+            if (event.getTitles() != null && !event.getTitles().isEmpty()) {
+                generator.writeArrayFieldStart("titles");
+                for (String title : event.getTitles()) {
+                    generator.writeString(title);
+                }
+                generator.writeEndArray();
+            }
+            generator.writeNumberField("createdAt", event.getCreatedAt());
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    public static String toText(NotificationEvent event) {
+        return switch (event.getType()) {
+            case TASK_ASSIGNED -> event.getCount() == 1
+                    ? "появилось новое задание"
+                    : "появилось новых заданий: " + event.getCount() + idList(event.getTaskIds(), event.getCount());
+            case TASK_COMPLETED -> "пользователь " + event.getActor() + " завершил задачу " + event.getTitle();
+            case TASK_REWORK -> "задачу " + event.getTitle() + " отправили на доработку";
+            case TASK_UPDATED -> "задача " + event.getTitle() + " изменена";
+            case TASK_DELETED -> event.getCount() == 1
+                    ? "задание " + event.getTitle() + " удалено"
+                    : "удалено заданий: " + event.getCount();
+            case TASKS_OVERDUE -> "просрочено заданий: " + event.getCount() + " (" + titleList(event) + ")";
+        };
+    }
+
+    private static String idList(List<Long> ids, int count) {
+        List<String> shown = ids == null ? List.of() : ids.stream().filter(id -> id != null).map(String::valueOf).toList();
+        if (shown.isEmpty()) {
+            return "";
+        }
+        String text = " (id: " + String.join(", ", shown);
+        if (count > shown.size()) {
+            text += " и еще " + (count - shown.size());
+        }
+        return text + ")";
+    }
+
+    private static String titleList(NotificationEvent event) {
+        List<String> titles = event.getTitles() == null ? List.of() : event.getTitles();
+        List<String> shown = titles.subList(0, Math.min(titles.size(), NotificationEvent.MAX_LISTED));
+        String text = String.join(", ", shown);
+        if (event.getCount() > shown.size()) {
+            text += " и еще " + (event.getCount() - shown.size());
+        }
+        return text;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.server1.controller;
+
+import com.example.server1.config.KafkaTopics;
+import com.example.server1.entity.InboxNotification;
+import com.example.server1.service.NotificationInboxService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+// копирует уведомления пользователям в notifications_inbox пачками: одна вставка JDBC batch на poll.
+// своя группа, поэтому читает notifications_for_user независимо от клиентов и SSE
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class NotificationInboxConsumer {
+
+    public static final String GROUP_ID = "notification-inbox";
+
+    private final NotificationInboxService notificationInboxService;
+    private final NotificationRecordReader notificationRecordReader;
+
+    @KafkaListener(id = "notificationInbox",
+            groupId = GROUP_ID,
+            topics = KafkaTopics.NOTIFICATIONS_FOR_USER,
+            containerFactory = "bytesBatchKafkaListenerContainerFactory",
+            autoStartup = "${notifications.inbox.enabled:true}")
+    public void consumeNotifications(List<ConsumerRecord<String, byte[]>> records) {
+        List<InboxNotification> notifications = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, byte[]> record : records) {
+            if (record.key() == null || record.value() == null) {
+                continue;
+            }
+            try {
+                notifications.add(InboxNotification.builder()
+                        .username(record.key())
+                        .type(notificationRecordReader.type(record))
+                        .payload(notificationRecordReader.data(record))
+                        .createdAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(record.timestamp()), ZoneId.systemDefault()))
+                        .sourcePartition(record.partition())
+                        .sourceOffset(record.offset())
+                        .build());
+            } catch (Exception e) {
+                log.warn("Уведомление {}-{} пропущено: {}", record.partition(), record.offset(), e.getMessage());
+            }
+        }
+        notificationInboxService.saveBatch(notifications);
+    }
+}
@@ -1,24 +1,82 @@
 package com.example.server1.controller;
 
+import com.example.server1.avro.AvroCodec;
+import com.example.server1.avro.LocalSchemaRegistry;
+import com.example.server1.config.KafkaTopics;
+import com.example.server1.entity.NotificationEvent;
+import com.example.server1.service.OutboxService;
 import lombok.RequiredArgsConstructor;
-import org.apache.kafka.clients.producer.KafkaProducer;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.apache.avro.generic.GenericRecord;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+// уведомления не отправляются в kafka напрямую, а пишутся в outbox в транзакции вызывающего сервиса;
+// в брокер их отправляет OutboxRelay после коммита, при откате транзакции уведомления не будет
 @Component
 @RequiredArgsConstructor
 public class NotificationProduser {
 
-    String topicForAdmin = "notifications_for_admin";
-    String topicForUser = "notifications_for_user";
+    String topicForAdmin = KafkaTopics.NOTIFICATIONS_FOR_ADMIN;
+    String topicForUser = KafkaTopics.NOTIFICATIONS_FOR_USER;
+
+    private final OutboxService outboxService;
+    private final AvroCodec avroCodec;
+
+    // event - типизированное уведомление (тип, id и название задачи, автор, время), текст собирает consumer;
+    // text - прежний русский текст, для consumer'ов, которые еще не перешли на события
+    @Value("${kafka.notifications.format:event}")
+    private String format;
 
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    // avro|json: avro - запись notification из resources/avro; json - JSON события (format=event)
+    // или текст (format=text); формат пишется в content-type
+    @Value("${kafka.notifications.encoding:json}")
+    private String encoding;
+
+    // уведомления пользователям идут в один топик с ключом username; при dual-write=true еще и в старый
+    // топик на пользователя (notifications_for_user<username>), пока не переведены все consumer'ы
+    @Value("${kafka.notifications.legacy-user-topics.dual-write:false}")
+    private boolean dualWrite;
+
+    public void send(NotificationEvent event) {
+        if (event.getRecipient() == null) {
+            send(topicForAdmin, null, event);
+            return;
+        }
+        send(topicForUser, event.getRecipient(), event);
+        if (dualWrite) {
+            send(topicForUser + event.getRecipient(), null, event);
+        }
+    }
 
-    public void sendNotificationForAdmin(String message){
-        kafkaTemplate.send(topicForAdmin, message);
+    private void send(String topic, String key, NotificationEvent event) {
+        boolean text = "text".equals(format);
+        if ("avro".equals(encoding)) {
+            outboxService.enqueue(topic, key, AvroCodec.AVRO,
+                    avroCodec.encode(LocalSchemaRegistry.NOTIFICATION, toAvro(event, text)));
+        } else if (text) {
+            outboxService.enqueue(topic, key, AvroCodec.TEXT,
+                    NotificationEventSerializer.toText(event).getBytes(StandardCharsets.UTF_8));
+        } else {
+            outboxService.enqueue(topic, key, AvroCodec.JSON, NotificationEventSerializer.toJson(event));
+        }
     }
 
-    public void sendNotificationForUser(String message, String username){
-        kafkaTemplate.send(topicForUser + username, message);
+    private GenericRecord toAvro(NotificationEvent event, boolean withText) {
+        GenericRecord notification = avroCodec.newRecord(LocalSchemaRegistry.NOTIFICATION);
+        notification.put("username", event.getRecipient());
+        notification.put("message", withText ? NotificationEventSerializer.toText(event) : "");
+        notification.put("createdAt", event.getCreatedAt());
+        notification.put("type", event.getType().name());
+        notification.put("taskId", event.getTaskId());
+        notification.put("title", event.getTitle());
+        notification.put("actor", event.getActor());
+        notification.put("count", event.getCount());
+        notification.put("taskIds", event.getTaskIds() != null
+                ? event.getTaskIds().stream().filter(id -> id != null).toList() : List.of());
+        notification.put("titles", event.getTitles() != null ? event.getTitles() : List.of());
+        return notification;
     }
 }
@@ -0,0 +1,60 @@
+package com.example.server1.controller;
+
+import com.example.server1.avro.AvroCodec;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import lombok.RequiredArgsConstructor;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+// чтение записей notifications_for_user для SSE и ящика уведомлений: JSON события и текст отдаются как есть,
+// avro - JSON представлением записи; тип берется из поля type (у старого текстового формата его нет)
+@Component
+@RequiredArgsConstructor
+public class NotificationRecordReader {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final AvroCodec avroCodec;
+
+    public String data(ConsumerRecord<String, byte[]> record) {
+        if (AvroCodec.isAvro(record.headers(), record.value())) {
+            return avroCodec.decode(record.value()).toString();
+        }
+        return new String(record.value(), StandardCharsets.UTF_8);
+    }
+
+    public String type(ConsumerRecord<String, byte[]> record) {
+        if (AvroCodec.isAvro(record.headers(), record.value())) {
+            GenericRecord notification = avroCodec.decode(record.value());
+            Object type = notification.hasField("type") ? notification.get("type") : null;
+            return type != null ? type.toString() : null;
+        }
+        byte[] value = record.value();
+        if (value.length == 0 || value[0] != '{') {
+            return null;
+        }
+        // поле type пишется первым, поэтому обычно дальше первого поля разбор не идет
+        try (JsonParser parser = JSON.createParser(value)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if ("type".equals(field) && token == JsonToken.VALUE_STRING) {
+                    return parser.getText();
+                }
+                parser.skipChildren();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return null;
+    }
+}
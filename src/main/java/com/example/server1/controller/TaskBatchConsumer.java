@@ -0,0 +1,85 @@
+package com.example.server1.controller;
+
+import com.example.server1.config.KafkaTopics;
+import com.example.server1.entity.TaskAssignment;
+import com.example.server1.entity.TaskBatchResult;
+import com.example.server1.entity.TaskPayload;
+import com.example.server1.exeptions.MalformedMessageExeption;
+import com.example.server1.exeptions.NotFoundExeption;
+import com.example.server1.messaging.InMemoryMessageBus;
+import com.example.server1.service.MessageDeduplicator;
+import com.example.server1.service.TaskLaneScheduler;
+import com.example.server1.service.UserService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.context.annotation.Profile;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// пакетный consumer task-assignments: вся пачка сохраняется одной транзакцией,
+// offset'ы коммитятся контейнером после возврата из метода (AckMode.BATCH);
+// при ошибке базы пачка повторяется batchErrorHandler'ом, затем записи уходят в task-assignments-dlt
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@Profile("!" + InMemoryMessageBus.PROFILE)
+public class TaskBatchConsumer {
+
+    private final UserService userService;
+    private final TaskDtoConverter taskDtoConverter;
+    private final DeadLetterPublishingRecoverer deadLetterPublishingRecoverer;
+    private final TaskLaneScheduler taskLaneScheduler;
+
+    // idIsGroup = false: группа та же, что у поштучного consumer'а, offset'ы при смене режима не теряются
+    @KafkaListener(id = "taskAssignmentsBatch",
+            idIsGroup = false,
+            topics = {KafkaTopics.TASK_ASSIGNMENTS_URGENT, KafkaTopics.TASK_ASSIGNMENTS_NORMAL, KafkaTopics.TASK_ASSIGNMENTS},
+            concurrency = "${kafka.topics.task-assignments.concurrency:3}",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            autoStartup = "${kafka.task-assignments.batch.enabled:false}")
+    public void consumeTaskBatch(List<ConsumerRecord<String, TaskPayload>> records) {
+        List<TaskAssignment> assignments = new ArrayList<>(records.size());
+        Map<TaskAssignment, ConsumerRecord<String, TaskPayload>> recordsByAssignment = new IdentityHashMap<>();
+        List<ConsumerRecord<String, TaskPayload>> malformed = new ArrayList<>();
+        for (ConsumerRecord<String, TaskPayload> record : records) {
+            TaskPayload payload = record.value();
+            taskLaneScheduler.recordLatency(record);
+            if (payload.isMalformed()) {
+                malformed.add(record);
+                continue;
+            }
+            TaskAssignment assignment = new TaskAssignment(payload.getAssignedUser(),
+                    taskDtoConverter.convertToEntity(payload), MessageDeduplicator.messageKey(record));
+            assignments.add(assignment);
+            recordsByAssignment.put(assignment, record);
+        }
+        TaskBatchResult result = assignments.isEmpty()
+                ? new TaskBatchResult(List.of(), List.of())
+                : userService.addTasksBatch(assignments);
+        // в dlt только после записи: если пачка упадет и будет повторена, битые сообщения не уйдут туда второй раз
+        for (ConsumerRecord<String, TaskPayload> record : malformed) {
+            // битый JSON повторять бесполезно, сразу в dlt, остальная пачка идет дальше
+            log.error("Ошибка разбора задачи из Kafka, partition {}, offset {}: {}",
+                    record.partition(), record.offset(), record.value().getErrors());
+            deadLetterPublishingRecoverer.accept(record,
+                    new MalformedMessageExeption("Битое сообщение с задачей: " + record.value().getErrors()));
+        }
+        // как NotFoundExeption в поштучном режиме: задание несуществующему пользователю уходит в dlt
+        for (TaskAssignment assignment : result.getRejected()) {
+            ConsumerRecord<String, TaskPayload> record = recordsByAssignment.get(assignment);
+            log.error("Задача из Kafka, partition {}, offset {}: пользователь {} не найден",
+                    record.partition(), record.offset(), assignment.getAssignedUser());
+            deadLetterPublishingRecoverer.accept(record,
+                    new NotFoundExeption("пользователь не найден: " + assignment.getAssignedUser()));
+        }
+        log.info("Пачка задач из Kafka: получено {}, сохранено {}, в dlt {}", records.size(),
+                result.getSaved().size(), malformed.size() + result.getRejected().size());
+    }
+}
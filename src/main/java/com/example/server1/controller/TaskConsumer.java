@@ -1,139 +1,144 @@
 package com.example.server1.controller;
 
 
+import com.example.server1.config.KafkaErrorHandlingConfig;
+import com.example.server1.config.KafkaTopics;
 import com.example.server1.entity.*;
+import com.example.server1.exeptions.MalformedMessageExeption;
+import com.example.server1.exeptions.NotFoundExeption;
+import com.example.server1.messaging.InMemoryMessageBus;
+import com.example.server1.service.MessageDeduplicator;
+import com.example.server1.service.TaskLaneScheduler;
 import com.example.server1.service.UserService;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.context.annotation.Profile;
+import org.springframework.kafka.annotation.DltHandler;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.retrytopic.TopicSuffixingStrategy;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.retry.annotation.Backoff;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-
 @Slf4j
 @Component
 @RequiredArgsConstructor
+@Profile("!" + InMemoryMessageBus.PROFILE)
 public class TaskConsumer {
 
     private final UserService userService;
-    private final ObjectMapper objectMapper;
-
-    // Существующий consumer для создания задач
-    @KafkaListener(topics = "task-assignments")
+    private final TaskDtoConverter taskDtoConverter;
+    private final MessageDeduplicator messageDeduplicator;
+    private final TaskDeletionReader taskDeletionReader;
+    private final TaskLaneScheduler taskLaneScheduler;
+
+    // Существующий consumer для создания задач; при kafka.task-assignments.batch.enabled=true
+    // вместо него работает TaskBatchConsumer, при kafka.task-assignments.pipeline.enabled=true - TaskPipelineConsumer.
+    // Ошибки не глотаются: временные уходят в retry топики с растущей задержкой, не блокируя партицию,
+    // детерминированные (битый JSON, нет пользователя) сразу в task-assignments-dlt.
+    // Повторно доставленное сообщение (rebalance, повтор отправки) отсекается MessageDeduplicator'ом
+    // в той же транзакции, что и вставка задачи. Топики полос приоритета читаются тем же listener'ом,
+    // очередность задает TaskLaneScheduler паузой партиций менее важных полос
+    @RetryableTopic(
+            attempts = "${kafka.retry.attempts:4}",
+            backoff = @Backoff(
+                    delayExpression = "${kafka.retry.delay-ms:1000}",
+                    multiplierExpression = "${kafka.retry.multiplier:2.0}",
+                    maxDelayExpression = "${kafka.retry.max-delay-ms:30000}"),
+            numPartitions = "${kafka.topics.task-partitions:6}",
+            exclude = {MalformedMessageExeption.class, NotFoundExeption.class},
+            traversingCauses = "true",
+            topicSuffixingStrategy = TopicSuffixingStrategy.SUFFIX_WITH_INDEX_VALUE,
+            kafkaTemplate = KafkaErrorHandlingConfig.RAW_TEMPLATE,
+            listenerContainerFactory = "taskPayloadKafkaListenerContainerFactory")
+    @KafkaListener(topics = {KafkaTopics.TASK_ASSIGNMENTS_URGENT, KafkaTopics.TASK_ASSIGNMENTS_NORMAL, KafkaTopics.TASK_ASSIGNMENTS},
+            containerFactory = "taskPayloadKafkaListenerContainerFactory",
+            concurrency = "${kafka.topics.task-assignments.concurrency:3}",
+            autoStartup = "#{!${kafka.task-assignments.batch.enabled:false} && !${kafka.task-assignments.pipeline.enabled:false}}")
     @Transactional
-    public void consumeTask(String taskJson) {
-        try {
-            log.info("Получено сообщение из Kafka: {}", taskJson);
-
-            // Парсим в DTO
-            TaskDto taskDto = objectMapper.readValue(taskJson, TaskDto.class);
-
-            // Конвертируем DTO в Entity
-            Task task = convertToEntity(taskDto);
+    public void consumeTask(ConsumerRecord<String, TaskPayload> record) {
+        // JSON уже разобран TaskPayloadDeserializer'ом
+        TaskPayload payload = record.value();
+        taskLaneScheduler.recordLatency(record);
+        log.info("Получено сообщение из Kafka: {}, partition {}, offset {}",
+                payload.getTitle(), record.partition(), record.offset());
+        if (payload.isMalformed()) {
+            throw new MalformedMessageExeption("Битое сообщение с задачей: " + payload.getErrors());
+        }
+        if (skipDuplicate(record)) {
+            return;
+        }
+        warnIfKeyMismatch(record.key(), payload.getAssignedUser());
 
-            // Сохраняем через ваш сервис
-            userService.addTasks(taskDto.getAssignedUser(), task);
+        // Конвертируем в Entity
+        Task task = taskDtoConverter.convertToEntity(payload);
 
-            log.info("Задача сохранена для пользователя: {}", taskDto.getAssignedUser());
+        // Сохраняем через ваш сервис
+        userService.addTasks(payload.getAssignedUser(), task);
 
-        } catch (Exception e) {
-            log.error("Ошибка обработки задачи из Kafka: {}", e.getMessage());
-            e.printStackTrace();
-        }
+        log.info("Задача сохранена для пользователя: {}", payload.getAssignedUser());
     }
 
-    @KafkaListener(topics = "task-deletions")
+    @RetryableTopic(
+            attempts = "${kafka.retry.attempts:4}",
+            backoff = @Backoff(
+                    delayExpression = "${kafka.retry.delay-ms:1000}",
+                    multiplierExpression = "${kafka.retry.multiplier:2.0}",
+                    maxDelayExpression = "${kafka.retry.max-delay-ms:30000}"),
+            numPartitions = "${kafka.topics.task-partitions:6}",
+            exclude = {MalformedMessageExeption.class, NotFoundExeption.class},
+            traversingCauses = "true",
+            topicSuffixingStrategy = TopicSuffixingStrategy.SUFFIX_WITH_INDEX_VALUE,
+            kafkaTemplate = KafkaErrorHandlingConfig.RAW_TEMPLATE,
+            listenerContainerFactory = "bytesKafkaListenerContainerFactory")
+    @KafkaListener(topics = KafkaTopics.TASK_DELETIONS,
+            containerFactory = "bytesKafkaListenerContainerFactory",
+            concurrency = "${kafka.topics.task-deletions.concurrency:3}",
+            autoStartup = "#{!${kafka.task-deletions.batch.enabled:false}}")
     @Transactional
-    public void consumeTaskDeletion(String deletionJson) {
-        try {
-            log.info("Получено сообщение об удалении из Kafka: {}", deletionJson);
-
-            // Парсим в DTO удаления
-            TaskDeleteDto deleteDto = objectMapper.readValue(deletionJson, TaskDeleteDto.class);
-
-            // Исправляем порядок параметров: username, title
-            userService.deleteTask(deleteDto.getUsername(), deleteDto.getId());
-
-            log.info("Задача удалена для пользователя: {}, название: {}",
-                    deleteDto.getUsername(), deleteDto.getId());
-
-        } catch (Exception e) {
-            log.error("Ошибка обработки удаления задачи из Kafka: {}", e.getMessage());
-            e.printStackTrace();
+    public void consumeTaskDeletion(ConsumerRecord<String, byte[]> record) {
+        log.info("Получено сообщение об удалении из Kafka, partition {}, offset {}", record.partition(), record.offset());
+        if (skipDuplicate(record)) {
+            return;
         }
-    }
-
-    // Остальные методы остаются без изменений
-    private Task convertToEntity(TaskDto dto) {
-        Task task = new Task();
-        task.setTitle(dto.getTitle());
-        task.setDescription(dto.getDescription());
 
-        // Конвертируем строку в Enum Importance
-        task.setImportance(convertToImportance(dto.getImportance()));
+        // Парсим в DTO удаления: avro или JSON, по заголовку content-type
+        TaskDeleteDto deleteDto = taskDeletionReader.read(record.headers(), record.value());
+        warnIfKeyMismatch(record.key(), deleteDto.getUsername());
 
-        // Конвертируем строку в Enum Status
-        task.setStatus(convertToStatus(dto.getStatus()));
+        // Исправляем порядок параметров: username, title
+        userService.deleteTask(deleteDto.getUsername(), deleteDto.getId());
 
-        // Конвертируем строку в LocalDateTime
-        if (dto.getDeadline() != null) {
-            try {
-                LocalDateTime deadline = parseDateTime(dto.getDeadline());
-                task.setDeadline(deadline);
-            } catch (Exception e) {
-                log.error("Ошибка парсинга даты: {}", dto.getDeadline());
-                task.setDeadline(LocalDateTime.now().plusDays(1));
-            }
-        } else {
-            task.setDeadline(LocalDateTime.now().plusDays(1));
-        }
-
-        return task;
+        log.info("Задача удалена для пользователя: {}, название: {}",
+                deleteDto.getUsername(), deleteDto.getId());
     }
 
-    private Importance convertToImportance(String importanceStr) {
-        if (importanceStr == null) {
-            return Importance.МОЖЕТ_ПОДОЖДАТЬ;
-        }
-
-        try {
-            return Importance.valueOf(importanceStr.toUpperCase());
-        } catch (IllegalArgumentException e) {
-            log.warn("Неизвестный тип важности: {}, используем значение по умолчанию", importanceStr);
-            return Importance.МОЖЕТ_ПОДОЖДАТЬ;
-        }
+    // сообщение уже лежит в *-dlt вместе с заголовками об ошибке, его можно переотправить через /admin/dlt/replay
+    @DltHandler
+    public void handleDeadLetter(Object payload,
+                                 @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
+                                 @Header(name = KafkaHeaders.DLT_EXCEPTION_MESSAGE, required = false) String error) {
+        log.error("Сообщение отправлено в {}: {}, ошибка: {}", topic, payload, error);
     }
 
-    private Status convertToStatus(String statusStr) {
-        if (statusStr == null) {
-            return Status.НЕ_НАЧАТА;
-        }
-
-        try {
-            return Status.valueOf(statusStr.toUpperCase());
-        } catch (IllegalArgumentException e) {
-            log.warn("Неизвестный статус: {}, используем значение по умолчанию", statusStr);
-            return Status.НЕ_НАЧАТА;
+    private boolean skipDuplicate(ConsumerRecord<String, ?> record) {
+        String messageKey = MessageDeduplicator.messageKey(record);
+        if (messageDeduplicator.markProcessed(messageKey)) {
+            return false;
         }
+        log.info("Сообщение {} уже обработано, пропускаем", messageKey);
+        return true;
     }
 
-    private LocalDateTime parseDateTime(String dateTimeStr) {
-        DateTimeFormatter[] formatters = {
-                DateTimeFormatter.ISO_LOCAL_DATE_TIME,
-                DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"),
-                DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm")
-        };
-
-        for (DateTimeFormatter formatter : formatters) {
-            try {
-                return LocalDateTime.parse(dateTimeStr, formatter);
-            } catch (Exception e) {
-                continue;
-            }
+    // порядок сообщений одного пользователя держится только если ключ записи = username
+    private void warnIfKeyMismatch(String key, String username) {
+        if (key == null || !key.equals(username)) {
+            log.warn("Ключ сообщения {} не совпадает с пользователем {}, порядок для пользователя не гарантирован",
+                    key, username);
         }
-        throw new IllegalArgumentException("Неизвестный формат даты: " + dateTimeStr);
     }
-}
\ No newline at end of file
+}
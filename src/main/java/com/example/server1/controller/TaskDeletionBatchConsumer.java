@@ -0,0 +1,74 @@
+package com.example.server1.controller;
+
+import com.example.server1.config.KafkaTopics;
+import com.example.server1.entity.TaskDeleteDto;
+import com.example.server1.entity.TaskDeletion;
+import com.example.server1.exeptions.MalformedMessageExeption;
+import com.example.server1.exeptions.NotFoundExeption;
+import com.example.server1.messaging.InMemoryMessageBus;
+import com.example.server1.service.MessageDeduplicator;
+import com.example.server1.service.UserService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.context.annotation.Profile;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// пакетный consumer task-deletions (kafka.task-deletions.batch.enabled=true): пачка удаляется одной транзакцией
+// через UserService.deleteTasksBatch вместо загрузки пользователя со всеми задачами на каждое сообщение.
+// удаления чужих или несуществующих задач уходят в task-deletions-dlt, остальная пачка идет дальше
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@Profile("!" + InMemoryMessageBus.PROFILE)
+public class TaskDeletionBatchConsumer {
+
+    private final UserService userService;
+    private final TaskDeletionReader taskDeletionReader;
+    private final DeadLetterPublishingRecoverer deadLetterPublishingRecoverer;
+
+    // idIsGroup = false: группа та же, что у поштучного consumer'а, offset'ы при смене режима не теряются
+    @KafkaListener(id = "taskDeletionsBatch",
+            idIsGroup = false,
+            topics = KafkaTopics.TASK_DELETIONS,
+            concurrency = "${kafka.topics.task-deletions.concurrency:3}",
+            containerFactory = "bytesBatchKafkaListenerContainerFactory",
+            autoStartup = "${kafka.task-deletions.batch.enabled:false}")
+    public void consumeTaskDeletionBatch(List<ConsumerRecord<String, byte[]>> records) {
+        List<TaskDeletion> deletions = new ArrayList<>(records.size());
+        Map<TaskDeletion, ConsumerRecord<String, byte[]>> recordByDeletion = new IdentityHashMap<>();
+        Map<ConsumerRecord<String, byte[]>, MalformedMessageExeption> malformed = new LinkedHashMap<>();
+        for (ConsumerRecord<String, byte[]> record : records) {
+            try {
+                TaskDeleteDto deleteDto = taskDeletionReader.read(record.headers(), record.value());
+                TaskDeletion deletion = new TaskDeletion(deleteDto.getUsername(), deleteDto.getId(),
+                        MessageDeduplicator.messageKey(record));
+                deletions.add(deletion);
+                recordByDeletion.put(deletion, record);
+            } catch (MalformedMessageExeption e) {
+                malformed.put(record, e);
+            }
+        }
+        List<TaskDeletion> rejected = deletions.isEmpty() ? List.of() : userService.deleteTasksBatch(deletions);
+        // в dlt только после записи: если пачка упадет и будет повторена, битые сообщения не уйдут туда второй раз
+        malformed.forEach((record, e) -> {
+            log.error("Ошибка разбора удаления из Kafka, partition {}, offset {}: {}",
+                    record.partition(), record.offset(), e.getMessage());
+            deadLetterPublishingRecoverer.accept(record, e);
+        });
+        for (TaskDeletion deletion : rejected) {
+            deadLetterPublishingRecoverer.accept(recordByDeletion.get(deletion),
+                    new NotFoundExeption("задача " + deletion.getTaskId() + " пользователя "
+                            + deletion.getUsername() + " не найдена"));
+        }
+        log.info("Пачка удалений из Kafka: получено {}, отклонено {}", records.size(), malformed.size() + rejected.size());
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.server1.controller;
+
+import com.example.server1.avro.AvroCodec;
+import com.example.server1.entity.TaskDeleteDto;
+import com.example.server1.exeptions.MalformedMessageExeption;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.kafka.common.header.Headers;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+// разбор сообщения task-deletions: avro или JSON, по заголовку content-type.
+// общий для поштучного и пакетного consumer'а
+@Component
+@RequiredArgsConstructor
+public class TaskDeletionReader {
+
+    private final ObjectMapper objectMapper;
+    private final AvroCodec avroCodec;
+
+    public TaskDeleteDto read(Headers headers, byte[] data) {
+        if (AvroCodec.isAvro(headers, data)) {
+            return fromAvro(data);
+        }
+        try {
+            return objectMapper.readValue(data, TaskDeleteDto.class);
+        } catch (IOException e) {
+            throw new MalformedMessageExeption("Битое сообщение об удалении: " + e.getMessage());
+        }
+    }
+
+    private TaskDeleteDto fromAvro(byte[] data) {
+        GenericRecord record;
+        try {
+            record = avroCodec.decode(data);
+        } catch (RuntimeException e) {
+            throw new MalformedMessageExeption("Битое сообщение об удалении: " + e.getMessage());
+        }
+        TaskDeleteDto deleteDto = new TaskDeleteDto();
+        deleteDto.setUsername(record.get("username").toString());
+        deleteDto.setId((Long) record.get("id"));
+        return deleteDto;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.server1.controller;
+
+import com.example.server1.entity.Importance;
+import com.example.server1.entity.Status;
+import com.example.server1.entity.Task;
+import com.example.server1.entity.TaskPayload;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+// разбор задачи из kafka в Task, общий для поштучного и пакетного consumer'а
+@Slf4j
+@Component
+public class TaskDtoConverter {
+
+    // payload уже типизирован, остается подставить значения по умолчанию для пропущенных полей
+    public Task convertToEntity(TaskPayload payload) {
+        if (!payload.getErrors().isEmpty()) {
+            log.warn("Задача для {} разобрана с ошибками, используем значения по умолчанию: {}",
+                    payload.getAssignedUser(), payload.getErrors());
+        }
+        Task task = new Task();
+        task.setTitle(payload.getTitle());
+        task.setDescription(payload.getDescription());
+        task.setImportance(payload.getImportance() != null ? payload.getImportance() : Importance.МОЖЕТ_ПОДОЖДАТЬ);
+        task.setStatus(payload.getStatus() != null ? payload.getStatus() : Status.НЕ_НАЧАТА);
+        task.setDeadline(payload.getDeadline() != null ? payload.getDeadline() : LocalDateTime.now().plusDays(1));
+        return task;
+    }
+}
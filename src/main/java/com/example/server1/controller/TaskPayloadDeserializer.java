@@ -0,0 +1,248 @@
+package com.example.server1.controller;
+
+import com.example.server1.avro.AvroCodec;
+import com.example.server1.entity.Importance;
+import com.example.server1.entity.Status;
+import com.example.server1.entity.TaskPayload;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// разбирает task-assignments прямо из байт сообщения в TaskPayload потоковым парсером jackson,
+// без промежуточной строки и TaskDto. Неизвестная важность/статус или неразборчивая дата
+// не бросают исключение, а записываются в payload.errors; исключение ловится только на битом JSON.
+// Если задан AvroCodec, сообщения в avro (по content-type или первому байту) читаются им
+public class TaskPayloadDeserializer implements Deserializer<TaskPayload> {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final Map<String, Importance> IMPORTANCE_BY_NAME = byName(Importance.values());
+    private static final Map<String, Status> STATUS_BY_NAME = byName(Status.values());
+
+    private final AvroCodec avroCodec;
+
+    public TaskPayloadDeserializer() {
+        this(null);
+    }
+
+    public TaskPayloadDeserializer(AvroCodec avroCodec) {
+        this.avroCodec = avroCodec;
+    }
+
+    @Override
+    public TaskPayload deserialize(String topic, Headers headers, byte[] data) {
+        if (avroCodec != null && AvroCodec.isAvro(headers, data)) {
+            return fromAvro(data);
+        }
+        return deserialize(topic, data);
+    }
+
+    @Override
+    public TaskPayload deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        TaskPayload payload = new TaskPayload();
+        payload.setRaw(data);
+        try (JsonParser parser = JSON_FACTORY.createParser(data)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                payload.setMalformed(true);
+                payload.addError("ожидался JSON объект");
+                return payload;
+            }
+            String field;
+            while ((field = parser.nextFieldName()) != null) {
+                JsonToken token = parser.nextToken();
+                switch (field) {
+                    case "title" -> payload.setTitle(text(parser, token, field, payload));
+                    case "description" -> payload.setDescription(text(parser, token, field, payload));
+                    case "assignedUser" -> payload.setAssignedUser(text(parser, token, field, payload));
+                    case "importance" -> {
+                        String value = text(parser, token, field, payload);
+                        if (value != null) {
+                            payload.setImportance(parseImportance(value));
+                            if (payload.getImportance() == null) {
+                                payload.addError("неизвестная важность: " + value);
+                            }
+                        }
+                    }
+                    case "status" -> {
+                        String value = text(parser, token, field, payload);
+                        if (value != null) {
+                            payload.setStatus(parseStatus(value));
+                            if (payload.getStatus() == null) {
+                                payload.addError("неизвестный статус: " + value);
+                            }
+                        }
+                    }
+                    case "deadline" -> {
+                        String value = text(parser, token, field, payload);
+                        if (value != null) {
+                            payload.setDeadline(parseDateTime(value));
+                            if (payload.getDeadline() == null) {
+                                payload.addError("неизвестный формат даты: " + value);
+                            }
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            payload.setMalformed(true);
+            payload.addError(e.getOriginalMessage());
+        } catch (IOException e) {
+            payload.setMalformed(true);
+            payload.addError(e.getMessage());
+        }
+        return payload;
+    }
+
+    private TaskPayload fromAvro(byte[] data) {
+        TaskPayload payload = new TaskPayload();
+        payload.setRaw(data);
+        GenericRecord record;
+        try {
+            record = avroCodec.decode(data);
+        } catch (RuntimeException e) {
+            payload.setMalformed(true);
+            payload.addError(e.getMessage());
+            return payload;
+        }
+        payload.setTitle(string(record.get("title")));
+        payload.setDescription(string(record.get("description")));
+        payload.setAssignedUser(string(record.get("assignedUser")));
+        Object importance = record.get("importance");
+        if (importance != null) {
+            try {
+                payload.setImportance(Importance.fromCode(((Integer) importance).shortValue()));
+            } catch (IllegalArgumentException e) {
+                payload.addError(e.getMessage());
+            }
+        }
+        Object status = record.get("status");
+        if (status != null) {
+            try {
+                payload.setStatus(Status.fromCode(((Integer) status).shortValue()));
+            } catch (IllegalArgumentException e) {
+                payload.addError(e.getMessage());
+            }
+        }
+        Object deadline = record.get("deadline");
+        if (deadline != null) {
+            payload.setDeadline(LocalDateTime.ofInstant(Instant.ofEpochMilli((Long) deadline), ZoneOffset.UTC));
+        }
+        return payload;
+    }
+
+    public static Importance parseImportance(String value) {
+        Importance importance = IMPORTANCE_BY_NAME.get(value);
+        return importance != null ? importance : IMPORTANCE_BY_NAME.get(value.toUpperCase(Locale.ROOT));
+    }
+
+    public static Status parseStatus(String value) {
+        Status status = STATUS_BY_NAME.get(value);
+        return status != null ? status : STATUS_BY_NAME.get(value.toUpperCase(Locale.ROOT));
+    }
+
+    // форматы: yyyy-MM-ddTHH:mm[:ss[.n]] (ISO), yyyy-MM-dd HH:mm:ss, dd.MM.yyyy HH:mm;
+    // формат выбирается по разделителям, цифры разбираются вручную. null - если дата не разбирается
+    public static LocalDateTime parseDateTime(String value) {
+        int length = value.length();
+        if (length >= 16 && value.charAt(4) == '-' && value.charAt(7) == '-' && value.charAt(13) == ':') {
+            char separator = value.charAt(10);
+            boolean iso = separator == 'T';
+            if (!iso && (separator != ' ' || length != 19)) {
+                return null;
+            }
+            int second = 0;
+            int nano = 0;
+            if (length > 16) {
+                if (length < 19 || value.charAt(16) != ':') {
+                    return null;
+                }
+                second = digits(value, 17, 19);
+                if (length > 19) {
+                    int fraction = length - 20;
+                    if (!iso || value.charAt(19) != '.' || fraction < 1 || fraction > 9) {
+                        return null;
+                    }
+                    nano = digits(value, 20, length);
+                    if (nano < 0) {
+                        return null;
+                    }
+                    for (int i = fraction; i < 9; i++) {
+                        nano *= 10;
+                    }
+                }
+            }
+            return of(digits(value, 0, 4), digits(value, 5, 7), digits(value, 8, 10),
+                    digits(value, 11, 13), digits(value, 14, 16), second, nano);
+        }
+        if (length == 16 && value.charAt(2) == '.' && value.charAt(5) == '.'
+                && value.charAt(10) == ' ' && value.charAt(13) == ':') {
+            return of(digits(value, 6, 10), digits(value, 3, 5), digits(value, 0, 2),
+                    digits(value, 11, 13), digits(value, 14, 16), 0, 0);
+        }
+        return null;
+    }
+
+    private static LocalDateTime of(int year, int month, int day, int hour, int minute, int second, int nano) {
+        if (year < 0 || month < 1 || month > 12 || day < 1
+                || day > Month.of(month).length(Year.isLeap(year))
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return null;
+        }
+        return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+    }
+
+    // -1 если в диапазоне есть не цифра
+    private static int digits(String value, int from, int to) {
+        int result = 0;
+        for (int i = from; i < to; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            result = result * 10 + digit;
+        }
+        return result;
+    }
+
+    private static String text(JsonParser parser, JsonToken token, String field, TaskPayload payload) throws IOException {
+        if (token == JsonToken.VALUE_STRING) {
+            return parser.getText();
+        }
+        if (token != JsonToken.VALUE_NULL) {
+            payload.addError("поле " + field + " должно быть строкой");
+            parser.skipChildren();
+        }
+        return null;
+    }
+
+    private static String string(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    private static <E extends Enum<E>> Map<String, E> byName(E[] values) {
+        Map<String, E> result = new HashMap<>();
+        for (E value : values) {
+            result.put(value.name(), value);
+            result.put(value.name().toLowerCase(Locale.ROOT), value);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.server1.controller;
+
+import com.example.server1.entity.TaskPayload;
+import org.apache.kafka.common.serialization.Serializer;
+
+// возвращает исходные байты сообщения: в retry топики и dlt уходит ровно то, что пришло
+public class TaskPayloadSerializer implements Serializer<TaskPayload> {
+
+    @Override
+    public byte[] serialize(String topic, TaskPayload payload) {
+        return payload == null ? null : payload.getRaw();
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.server1.controller;
+
+import com.example.server1.config.KafkaTopics;
+import com.example.server1.entity.TaskAssignment;
+import com.example.server1.entity.TaskPayload;
+import com.example.server1.exeptions.MalformedMessageExeption;
+import com.example.server1.exeptions.QueueFullExeption;
+import com.example.server1.messaging.InMemoryMessageBus;
+import com.example.server1.service.MessageDeduplicator;
+import com.example.server1.service.TaskLaneScheduler;
+import com.example.server1.service.TaskWritePipeline;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.context.annotation.Profile;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+// consumer task-assignments в конвейерном режиме (kafka.task-assignments.pipeline.enabled=true):
+// поток kafka не ходит в базу, только передает разобранную задачу в TaskWritePipeline.
+// offset'ы подтверждаются асинхронно потоками записи, контейнер коммитит их без пропусков;
+// при заполненной очереди поток kafka не блокируется, партиция ставится на паузу
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@Profile("!" + InMemoryMessageBus.PROFILE)
+public class TaskPipelineConsumer {
+
+    private final TaskWritePipeline taskWritePipeline;
+    private final TaskDtoConverter taskDtoConverter;
+    private final DeadLetterPublishingRecoverer deadLetterPublishingRecoverer;
+    private final TaskLaneScheduler taskLaneScheduler;
+
+    // idIsGroup = false: группа та же, что у поштучного consumer'а, offset'ы при смене режима не теряются
+    @KafkaListener(id = "taskAssignmentsPipeline",
+            idIsGroup = false,
+            topics = {KafkaTopics.TASK_ASSIGNMENTS_URGENT, KafkaTopics.TASK_ASSIGNMENTS_NORMAL, KafkaTopics.TASK_ASSIGNMENTS},
+            concurrency = "${kafka.topics.task-assignments.concurrency:3}",
+            containerFactory = "pipelineKafkaListenerContainerFactory",
+            autoStartup = "${kafka.task-assignments.pipeline.enabled:false}")
+    public void consumeTask(ConsumerRecord<String, TaskPayload> record, Acknowledgment ack) throws InterruptedException {
+        TaskPayload payload = record.value();
+        taskLaneScheduler.recordLatency(record);
+        if (payload.isMalformed()) {
+            log.error("Ошибка разбора задачи из Kafka, partition {}, offset {}: {}",
+                    record.partition(), record.offset(), payload.getErrors());
+            deadLetterPublishingRecoverer.accept(record,
+                    new MalformedMessageExeption("Битое сообщение с задачей: " + payload.getErrors()));
+            ack.acknowledge();
+            return;
+        }
+        boolean accepted = taskWritePipeline.publish(record, new TaskAssignment(payload.getAssignedUser(),
+                taskDtoConverter.convertToEntity(payload), MessageDeduplicator.messageKey(record)), ack);
+        if (!accepted) {
+            // pipelineErrorHandler вернет партицию к этой записи и поставит ее на паузу, poll при этом не останавливается
+            throw new QueueFullExeption("Очередь записи задач заполнена, partition " + record.partition()
+                    + ", offset " + record.offset());
+        }
+    }
+}
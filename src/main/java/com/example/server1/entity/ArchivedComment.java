@@ -0,0 +1,25 @@
+package com.example.server1.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Table(name = "comments_archive", indexes = {
+        @Index(name = "idx_comments_archive_task", columnList = "task_id")
+})
+public class ArchivedComment {
+    @Id
+    private Long id;
+
+    private String description;
+
+    @Column(name = "task_id")
+    private Long taskId;
+}
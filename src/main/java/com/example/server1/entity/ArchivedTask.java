@@ -0,0 +1,49 @@
+package com.example.server1.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// завершенная задача, перенесенная из tasks; id сохраняется прежний
+@Data
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Table(name = "tasks_archive", indexes = {
+        @Index(name = "idx_tasks_archive_username", columnList = "username, id")
+})
+public class ArchivedTask {
+    @Id
+    private Long id;
+
+    @Column(nullable = false)
+    private String title;
+
+    private String description;
+
+    @Convert(converter = StatusConverter.class)
+    @Column(nullable = false)
+    private Status status;
+
+    @Convert(converter = ImportanceConverter.class)
+    @Column(nullable = false)
+    private Importance importance;
+
+    private LocalDateTime deadline;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    private String username;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+}
@@ -0,0 +1,53 @@
+package com.example.server1.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+// сообщение шины в памяти, которое обработчик группы так и не принял; аналог <topic>-dlt в профиле inmemory.
+// хранится в базе, поэтому переживает перезапуск и доступно для разбора и повторной отправки
+@Data
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Table(name = "dead_letter_messages")
+public class DeadLetterMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String topic;
+
+    @Column(name = "partition_no", nullable = false)
+    private int partition;
+
+    @Column(name = "record_offset", nullable = false)
+    private long offset;
+
+    @Column(name = "group_id", nullable = false)
+    private String group;
+
+    @Column(name = "message_key")
+    private String messageKey;
+
+    @Column(name = "content_type", length = 100)
+    private String contentType;
+
+    @ToString.Exclude
+    @Column(columnDefinition = "bytea")
+    private byte[] payload;
+
+    @Column(length = 1000)
+    private String error;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
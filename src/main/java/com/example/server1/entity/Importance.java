@@ -1,8 +1,33 @@
 package com.example.server1.entity;
 
+// code хранится в базе (smallint), менять у существующих значений нельзя
 public enum Importance {
-    СРОЧНАЯ,
-    НАДО_ПОТОРОПИТЬСЯ,
-    МОЖЕТ_ПОДОЖДАТЬ
+    СРОЧНАЯ(0),
+    НАДО_ПОТОРОПИТЬСЯ(1),
+    МОЖЕТ_ПОДОЖДАТЬ(2);
 
+    private static final Importance[] BY_CODE = new Importance[values().length];
+
+    static {
+        for (Importance importance : values()) {
+            BY_CODE[importance.code] = importance;
+        }
+    }
+
+    private final short code;
+
+    Importance(int code) {
+        this.code = (short) code;
+    }
+
+    public short getCode() {
+        return code;
+    }
+
+    public static Importance fromCode(short code) {
+        if (code < 0 || code >= BY_CODE.length || BY_CODE[code] == null) {
+            throw new IllegalArgumentException("Неизвестный код важности: " + code);
+        }
+        return BY_CODE[code];
+    }
 }
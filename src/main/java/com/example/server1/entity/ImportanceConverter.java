@@ -0,0 +1,18 @@
+package com.example.server1.entity;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+@Converter
+public class ImportanceConverter implements AttributeConverter<Importance, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(Importance importance) {
+        return importance == null ? null : importance.getCode();
+    }
+
+    @Override
+    public Importance convertToEntityAttribute(Short code) {
+        return code == null ? null : Importance.fromCode(code);
+    }
+}
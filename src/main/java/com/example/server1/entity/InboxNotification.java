@@ -0,0 +1,52 @@
+package com.example.server1.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// уведомление в ящике пользователя, копия записи notifications_for_user; partition/offset источника
+// уникальны, поэтому повторная доставка той же записи не создает дубликат
+@Data
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Table(name = "notifications_inbox",
+        indexes = @Index(name = "idx_notifications_inbox_username", columnList = "username, id"),
+        uniqueConstraints = @UniqueConstraint(name = "uk_notifications_inbox_source",
+                columnNames = {"source_partition", "source_offset"}))
+public class InboxNotification {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String username;
+
+    // NotificationType; null для уведомлений старого текстового формата
+    @Column(length = 50)
+    private String type;
+
+    @Column(nullable = false, columnDefinition = "text")
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "read_at")
+    private LocalDateTime readAt;
+
+    @JsonIgnore
+    @Column(name = "source_partition", nullable = false)
+    private int sourcePartition;
+
+    @JsonIgnore
+    @Column(name = "source_offset", nullable = false)
+    private long sourceOffset;
+}
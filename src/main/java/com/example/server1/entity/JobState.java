@@ -0,0 +1,33 @@
+package com.example.server1.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// состояние фоновой задачи: блокировка на кластер и водяная метка
+@Data
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Table(name = "job_state")
+public class JobState {
+
+    @Id
+    private String name;
+
+    @Column(name = "locked_by")
+    private String lockedBy;
+
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+
+    private LocalDateTime watermark;
+
+    @Column(name = "watermark_id")
+    private Long watermarkId;
+}
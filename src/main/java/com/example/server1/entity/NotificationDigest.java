@@ -0,0 +1,36 @@
+package com.example.server1.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// копящаяся сводка уведомлений о новых заданиях пользователя; пишется в транзакции, создавшей задания,
+// NotificationCoalescer по истечении окна переносит ее в outbox и удаляет строку
+@Data
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Table(name = "notification_digests", indexes = {
+        @Index(name = "idx_notification_digests_first_seen_at", columnList = "first_seen_at")
+})
+public class NotificationDigest {
+
+    @Id
+    @Column(length = 100)
+    private String username;
+
+    @Column(name = "first_seen_at", nullable = false)
+    private LocalDateTime firstSeenAt;
+
+    @Column(name = "task_count", nullable = false)
+    private int taskCount;
+
+    // первые NotificationEvent.MAX_LISTED id через запятую
+    @Column(name = "task_ids", length = 400)
+    private String taskIds;
+}
@@ -0,0 +1,91 @@
+package com.example.server1.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// уведомление в виде данных: recipient null - для администратора. count - сколько заданий охватывает
+// уведомление (сводки), taskIds/titles - не больше нескольких первых; createdAt - миллисекунды epoch
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationEvent {
+
+    // в сводке перечисляются только первые задания
+    public static final int MAX_LISTED = 10;
+
+    private NotificationType type;
+    private String recipient;
+    private Long taskId;
+    private String title;
+    private String actor;
+    @Builder.Default
+    private int count = 1;
+    private List<Long> taskIds;
+    private List<String> titles;
+    private long createdAt;
+
+    public static NotificationEvent tasksAssigned(String recipient, int count, List<Long> taskIds) {
+        return NotificationEvent.builder()
+                .type(NotificationType.TASK_ASSIGNED)
+                .recipient(recipient)
+                .taskId(count == 1 && !taskIds.isEmpty() ? taskIds.get(0) : null)
+                .count(count)
+                .taskIds(head(taskIds))
+                .createdAt(System.currentTimeMillis())
+                .build();
+    }
+
+    public static NotificationEvent taskCompleted(String actor, Task task) {
+        return ofTask(NotificationType.TASK_COMPLETED, null, task).actor(actor).build();
+    }
+
+    public static NotificationEvent taskRework(String recipient, Task task) {
+        return ofTask(NotificationType.TASK_REWORK, recipient, task).build();
+    }
+
+    public static NotificationEvent taskUpdated(String recipient, Task task) {
+        return ofTask(NotificationType.TASK_UPDATED, recipient, task).build();
+    }
+
+    public static NotificationEvent tasksDeleted(String recipient, int count, List<Long> taskIds, List<String> titles) {
+        return NotificationEvent.builder()
+                .type(NotificationType.TASK_DELETED)
+                .recipient(recipient)
+                .taskId(count == 1 && !taskIds.isEmpty() ? taskIds.get(0) : null)
+                .title(count == 1 && !titles.isEmpty() ? titles.get(0) : null)
+                .count(count)
+                .taskIds(head(taskIds))
+                .titles(head(titles))
+                .createdAt(System.currentTimeMillis())
+                .build();
+    }
+
+    public static NotificationEvent tasksOverdue(String recipient, int count, List<String> titles) {
+        return NotificationEvent.builder()
+                .type(NotificationType.TASKS_OVERDUE)
+                .recipient(recipient)
+                .count(count)
+                .titles(head(titles))
+                .createdAt(System.currentTimeMillis())
+                .build();
+    }
+
+    private static <T> List<T> head(List<T> items) {
+        return items.size() > MAX_LISTED ? new ArrayList<>(items.subList(0, MAX_LISTED)) : items;
+    }
+
+    private static NotificationEventBuilder ofTask(NotificationType type, String recipient, Task task) {
+        return NotificationEvent.builder()
+                .type(type)
+                .recipient(recipient)
+                .taskId(task.getId())
+                .title(task.getTitle())
+                .createdAt(System.currentTimeMillis());
+    }
+}
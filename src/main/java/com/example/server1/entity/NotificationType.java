@@ -0,0 +1,11 @@
+package com.example.server1.entity;
+
+// тип уведомления; текст по типу собирает consumer, для старого формата - NotificationEventSerializer.toText
+public enum NotificationType {
+    TASK_ASSIGNED,
+    TASK_COMPLETED,
+    TASK_REWORK,
+    TASK_UPDATED,
+    TASK_DELETED,
+    TASKS_OVERDUE
+}
@@ -0,0 +1,17 @@
+package com.example.server1.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OverdueTask {
+    private Long id;
+    private String title;
+    private LocalDateTime deadline;
+    private String username;
+}
@@ -0,0 +1,17 @@
+package com.example.server1.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// задача вместе с владельцем, для проверки прав при пакетном удалении
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OwnedTask {
+    private Long id;
+    private String title;
+    private Status status;
+    private Long userId;
+    private String username;
+}
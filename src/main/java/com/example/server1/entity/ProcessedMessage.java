@@ -0,0 +1,28 @@
+package com.example.server1.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// ключ уже обработанного сообщения kafka; пишется в той же транзакции, что и результат обработки
+@Data
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Table(name = "processed_messages", indexes = {
+        @Index(name = "idx_processed_messages_processed_at", columnList = "processed_at")
+})
+public class ProcessedMessage {
+
+    @Id
+    @Column(name = "message_key", length = 200)
+    private String messageKey;
+
+    @Column(name = "processed_at", nullable = false)
+    private LocalDateTime processedAt;
+}
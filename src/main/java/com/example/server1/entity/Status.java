@@ -1,8 +1,34 @@
 package com.example.server1.entity;
 
+// code хранится в базе (smallint), менять у существующих значений нельзя
 public enum Status {
-    НЕ_НАЧАТА,
-    В_РАБОТЕ,
-    ЗАВЕРШЕНА,
-    НА_ДОРАБОТКЕ
+    НЕ_НАЧАТА(0),
+    В_РАБОТЕ(1),
+    ЗАВЕРШЕНА(2),
+    НА_ДОРАБОТКЕ(3);
+
+    private static final Status[] BY_CODE = new Status[values().length];
+
+    static {
+        for (Status status : values()) {
+            BY_CODE[status.code] = status;
+        }
+    }
+
+    private final short code;
+
+    Status(int code) {
+        this.code = (short) code;
+    }
+
+    public short getCode() {
+        return code;
+    }
+
+    public static Status fromCode(short code) {
+        if (code < 0 || code >= BY_CODE.length || BY_CODE[code] == null) {
+            throw new IllegalArgumentException("Неизвестный код статуса: " + code);
+        }
+        return BY_CODE[code];
+    }
 }
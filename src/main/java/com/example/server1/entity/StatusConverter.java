@@ -0,0 +1,18 @@
+package com.example.server1.entity;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+@Converter
+public class StatusConverter implements AttributeConverter<Status, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(Status status) {
+        return status == null ? null : status.getCode();
+    }
+
+    @Override
+    public Status convertToEntityAttribute(Short code) {
+        return code == null ? null : Status.fromCode(code);
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.server1.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatusCount {
+    private Status status;
+    private Long count;
+}
@@ -15,7 +15,11 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
-@Table(name = "tasks")
+@Table(name = "tasks", indexes = {
+        @Index(name = "idx_tasks_status", columnList = "status"),
+        @Index(name = "idx_tasks_importance", columnList = "importance"),
+        @Index(name = "idx_tasks_user_deadline", columnList = "user_id, deadline")
+})
 @JsonIgnoreProperties("assignee")
 public class Task {
     @Id
@@ -27,16 +31,20 @@ public class Task {
 
     private String description;
 
-    @Enumerated(EnumType.STRING)
+    @Convert(converter = StatusConverter.class)
     @Column(nullable = false)
     private Status status;
 
-    @Enumerated(EnumType.STRING)
+    @Convert(converter = ImportanceConverter.class)
     @Column(nullable = false)
     private Importance importance;
 
     private LocalDateTime deadline;
 
+    // когда задачу последний раз завершили, по этому времени она уходит в архив
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
     @JoinColumn(name = "user_id")
     @ManyToOne
     private User assignee;
@@ -0,0 +1,20 @@
+package com.example.server1.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// задача из kafka вместе с тем, кому ее назначить; messageKey - ключ идемпотентности сообщения
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskAssignment {
+    private String assignedUser;
+    private Task task;
+    private String messageKey;
+
+    public TaskAssignment(String assignedUser, Task task) {
+        this.assignedUser = assignedUser;
+        this.task = task;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.server1.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// итог UserService.addTasksBatch: сохраненные задания и задания несуществующим пользователям (их отправляют в dlt);
+// уже обработанные сообщения не попадают ни в один список
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskBatchResult {
+    private List<TaskAssignment> saved;
+    private List<TaskAssignment> rejected;
+}
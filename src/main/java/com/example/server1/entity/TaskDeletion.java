@@ -0,0 +1,15 @@
+package com.example.server1.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// удаление задачи из kafka; messageKey - ключ идемпотентности сообщения
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskDeletion {
+    private String username;
+    private Long taskId;
+    private String messageKey;
+}
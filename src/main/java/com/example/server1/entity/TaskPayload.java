@@ -0,0 +1,38 @@
+package com.example.server1.entity;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// задача из task-assignments, уже разобранная в типы TaskPayloadDeserializer'ом.
+// неразобранные поля не бросают исключение, а попадают в errors; raw - исходные байты сообщения для dlt
+@Data
+@NoArgsConstructor
+public class TaskPayload {
+    private String title;
+    private String description;
+    private String assignedUser;
+    private Importance importance;
+    private Status status;
+    private LocalDateTime deadline;
+    @ToString.Exclude
+    private byte[] raw;
+    private boolean malformed;
+    private List<String> errors;
+
+    public void addError(String error) {
+        if (errors == null) {
+            errors = new ArrayList<>(2);
+        }
+        errors.add(error);
+    }
+
+    public List<String> getErrors() {
+        return errors == null ? Collections.emptyList() : errors;
+    }
+}
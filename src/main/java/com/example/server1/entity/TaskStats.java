@@ -0,0 +1,22 @@
+package com.example.server1.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskStats {
+    private Map<Status, Long> byStatus;
+    private Map<Importance, Long> byImportance;
+    private List<UserTaskCount> byUser;
+    private long overdue;
+    private LocalDateTime generatedAt;
+}
@@ -0,0 +1,14 @@
+package com.example.server1.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserTaskCount {
+    private String username;
+    private Long total;
+    private Long overdue;
+}
@@ -0,0 +1,30 @@
+package com.example.server1.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// счетчик задач пользователя в одном статусе, поддерживается при каждом изменении задач
+@Data
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@IdClass(UserTaskCounterId.class)
+@Table(name = "user_task_counters")
+public class UserTaskCounter {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    // код Status, конвертеры на поля ключа не действуют, поэтому хранится как есть
+    @Id
+    @Column(name = "status", nullable = false)
+    private short statusCode;
+
+    @Column(name = "task_count", nullable = false)
+    private long taskCount;
+}
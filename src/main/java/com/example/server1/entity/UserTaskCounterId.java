@@ -0,0 +1,15 @@
+package com.example.server1.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserTaskCounterId implements Serializable {
+    private Long userId;
+    private short statusCode;
+}
@@ -0,0 +1,16 @@
+package com.example.server1.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserTaskSummary {
+    private String username;
+    private Map<Status, Long> byStatus;
+    private long total;
+}
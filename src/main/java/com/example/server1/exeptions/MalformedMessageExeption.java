@@ -0,0 +1,9 @@
+package com.example.server1.exeptions;
+
+// сообщение kafka не разбирается; повторять бесполезно, оно сразу уходит в dlt
+public class MalformedMessageExeption extends RuntimeException{
+
+    public MalformedMessageExeption(String message){
+        super(message);
+    }
+}
@@ -16,4 +16,11 @@ public class MyExeptionHandler {
     {
         return ex.getMessage();
     }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String handlerIllegalArgumentException(IllegalArgumentException ex)
+    {
+        return ex.getMessage();
+    }
 }
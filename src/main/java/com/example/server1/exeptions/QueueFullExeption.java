@@ -0,0 +1,9 @@
+package com.example.server1.exeptions;
+
+// очередь записи заполнена; сообщение не потеряно, контейнер kafka вернется к нему после паузы партиции
+public class QueueFullExeption extends RuntimeException{
+
+    public QueueFullExeption(String message){
+        super(message);
+    }
+}
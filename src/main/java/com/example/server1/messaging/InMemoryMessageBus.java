@@ -0,0 +1,331 @@
+package com.example.server1.messaging;
+
+import com.example.server1.avro.AvroCodec;
+import com.example.server1.entity.DeadLetterMessage;
+import com.example.server1.repository.DeadLetterMessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.apache.kafka.common.utils.Utils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// шина в памяти для одного узла без kafka (профиль inmemory). Семантика как у топиков kafka:
+// партиция по murmur2 от ключа, у каждой партиции свой offset, каждая группа получает все сообщения
+// и читает партицию одним потоком, поэтому сообщения одного ключа идут по порядку.
+// Очередь группы на партицию ограничена messaging.inmemory.queue-capacity: если места нет хотя бы у одной группы,
+// publish завершается ошибкой и сообщение остается в outbox до следующего прохода relay.
+// Ошибка обработчика повторяется с теми же kafka.retry.* задержками; если пачка так и не принята, записи
+// передаются по одной, и только те, что не обработались сами, откладываются в dead_letter_messages (аналог <topic>-dlt),
+// остальная пачка идет дальше.
+// Сообщения живут только в памяти: при остановке очереди дочитываются, при падении процесса теряются.
+// Offset'ы начинаются с времени старта в микросекундах, а не с 0: после перезапуска они больше всех прежних,
+// поэтому ключи на основе partition-offset (notifications_inbox, processed_messages, Last-Event-ID SSE) не повторяются
+@Slf4j
+@Component
+@Profile(InMemoryMessageBus.PROFILE)
+public class InMemoryMessageBus implements MessageBus {
+
+    public static final String PROFILE = "inmemory";
+
+    private final MeterRegistry meterRegistry;
+    private final DeadLetterMessageRepository deadLetterMessageRepository;
+
+    @Value("${messaging.inmemory.partitions:3}")
+    private int partitions;
+
+    @Value("${messaging.inmemory.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${messaging.inmemory.max-batch:500}")
+    private int maxBatch;
+
+    @Value("${kafka.retry.attempts:4}")
+    private int attempts;
+
+    @Value("${kafka.retry.delay-ms:1000}")
+    private long delayMs;
+
+    @Value("${kafka.retry.multiplier:2.0}")
+    private double multiplier;
+
+    @Value("${kafka.retry.max-delay-ms:30000}")
+    private long maxDelayMs;
+
+    private final Map<String, Topic> topics = new ConcurrentHashMap<>();
+    private final long offsetBase;
+    private volatile boolean running = true;
+
+    public InMemoryMessageBus(MeterRegistry meterRegistry, DeadLetterMessageRepository deadLetterMessageRepository) {
+        this.meterRegistry = meterRegistry;
+        this.deadLetterMessageRepository = deadLetterMessageRepository;
+        this.offsetBase = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+    }
+
+    @Override
+    public CompletableFuture<?> publish(String topic, String key, String contentType, byte[] payload) {
+        if (!running) {
+            return CompletableFuture.failedFuture(new IllegalStateException("шина остановлена"));
+        }
+        Topic target = topic(topic);
+        int partition = target.partition(key);
+        RecordHeaders headers = new RecordHeaders();
+        if (contentType != null) {
+            headers.add(AvroCodec.CONTENT_TYPE_HEADER, AvroCodec.contentType(contentType));
+        }
+        // offset и постановка во все группы под одной блокировкой партиции: порядок у групп одинаковый
+        synchronized (target.locks[partition]) {
+            for (Subscription subscription : target.subscriptions) {
+                if (subscription.queues[partition].remainingCapacity() == 0) {
+                    return CompletableFuture.failedFuture(new IllegalStateException(
+                            "очередь " + topic + "-" + partition + " группы " + subscription.group + " переполнена"));
+                }
+            }
+            long offset = target.offsets[partition]++;
+            ConsumerRecord<String, byte[]> record = new ConsumerRecord<>(topic, partition, offset,
+                    System.currentTimeMillis(), TimestampType.CREATE_TIME, -1, -1, key, payload, headers, Optional.empty());
+            for (Subscription subscription : target.subscriptions) {
+                subscription.queues[partition].add(record);
+            }
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    // обработчик получает пачки записей одной партиции, до messaging.inmemory.max-batch за раз;
+    // подписка видит только сообщения, опубликованные после нее (как группа с auto.offset.reset=latest)
+    public void subscribe(String topic, String group, Consumer<List<ConsumerRecord<String, byte[]>>> handler) {
+        Topic target = topic(topic);
+        Subscription subscription = new Subscription(topic, group, handler);
+        for (int partition = 0; partition < partitions; partition++) {
+            subscription.queues[partition] = new ArrayBlockingQueue<>(queueCapacity);
+        }
+        // новая группа добавляется под блокировками всех партиций, чтобы не получить сообщение с середины
+        addSubscription(target, subscription, 0);
+        Gauge.builder("messaging.inmemory.queued", subscription, Subscription::queued)
+                .description("Сообщения в очередях группы, еще не переданные обработчику")
+                .tag("topic", topic)
+                .tag("group", group)
+                .register(meterRegistry);
+        for (int partition = 0; partition < partitions; partition++) {
+            int p = partition;
+            Thread thread = new Thread(() -> dispatch(subscription, p), "bus-" + topic + "-" + group + "-" + p);
+            thread.setDaemon(true);
+            subscription.threads.add(thread);
+            thread.start();
+        }
+        log.info("Группа {} подписана на {} ({} партиций)", group, topic, partitions);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        for (Topic topic : topics.values()) {
+            for (Subscription subscription : topic.subscriptions) {
+                for (Thread thread : subscription.threads) {
+                    try {
+                        thread.join(TimeUnit.SECONDS.toMillis(10));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private void addSubscription(Topic target, Subscription subscription, int partition) {
+        if (partition == partitions) {
+            target.subscriptions.add(subscription);
+            return;
+        }
+        synchronized (target.locks[partition]) {
+            addSubscription(target, subscription, partition + 1);
+        }
+    }
+
+    private void dispatch(Subscription subscription, int partition) {
+        BlockingQueue<ConsumerRecord<String, byte[]>> queue = subscription.queues[partition];
+        List<ConsumerRecord<String, byte[]>> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                ConsumerRecord<String, byte[]> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+                deliver(subscription, batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void deliver(Subscription subscription, List<ConsumerRecord<String, byte[]>> batch) throws InterruptedException {
+        Exception error = tryDeliver(subscription, batch, attempts);
+        if (error == null) {
+            return;
+        }
+        if (batch.size() == 1) {
+            park(subscription, batch.get(0), error);
+            return;
+        }
+        // как dlt в kafka: откладывается только запись, которая не обрабатывается сама; уже принятые записи пачки
+        // приходят повторно (at-least-once), обработчики отсекают их по partition-offset
+        log.warn("Пачка из {} сообщений {} для группы {} не обработана, передаем по одной: {}",
+                batch.size(), subscription.topic, subscription.group, error.getMessage());
+        for (ConsumerRecord<String, byte[]> record : batch) {
+            Exception recordError = tryDeliver(subscription, List.of(record), 1);
+            if (recordError != null) {
+                park(subscription, record, recordError);
+            }
+        }
+    }
+
+    // null если обработчик принял записи
+    private Exception tryDeliver(Subscription subscription, List<ConsumerRecord<String, byte[]>> records, int maxAttempts)
+            throws InterruptedException {
+        long delay = delayMs;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                subscription.handler.accept(List.copyOf(records));
+                return null;
+            } catch (Exception e) {
+                if (attempt >= maxAttempts) {
+                    return e;
+                }
+                log.warn("Ошибка обработки {} группой {}, попытка {} из {}: {}",
+                        subscription.topic, subscription.group, attempt, maxAttempts, e.getMessage());
+                Thread.sleep(delay);
+                delay = Math.min((long) (delay * multiplier), maxDelayMs);
+            }
+        }
+    }
+
+    // запись сохраняется в базе; пока база недоступна, поток партиции ждет, а не теряет сообщение
+    private void park(Subscription subscription, ConsumerRecord<String, byte[]> record, Exception error)
+            throws InterruptedException {
+        log.error("Сообщение {}-{}@{} для группы {} не обработано, откладываем в dead_letter_messages: {}",
+                record.topic(), record.partition(), record.offset(), subscription.group, error.getMessage(), error);
+        Header contentType = record.headers().lastHeader(AvroCodec.CONTENT_TYPE_HEADER);
+        DeadLetterMessage message = DeadLetterMessage.builder()
+                .topic(record.topic())
+                .partition(record.partition())
+                .offset(record.offset())
+                .group(subscription.group)
+                .messageKey(record.key())
+                .contentType(contentType != null ? new String(contentType.value(), StandardCharsets.UTF_8) : null)
+                .payload(record.value())
+                .error(errorText(error))
+                .createdAt(LocalDateTime.now())
+                .build();
+        while (true) {
+            try {
+                deadLetterMessageRepository.save(message);
+                subscription.failed.increment();
+                return;
+            } catch (RuntimeException e) {
+                if (!running) {
+                    log.error("Шина остановлена, сообщение {}-{}@{} потеряно: {}",
+                            record.topic(), record.partition(), record.offset(), e.getMessage());
+                    return;
+                }
+                log.warn("Не удалось сохранить сообщение в dead_letter_messages, повтор через {} мс: {}",
+                        maxDelayMs, e.getMessage());
+                Thread.sleep(maxDelayMs);
+            }
+        }
+    }
+
+    private static String errorText(Exception error) {
+        String text = String.valueOf(error.getMessage());
+        return text.length() <= 1000 ? text : text.substring(0, 1000);
+    }
+
+    private Topic topic(String name) {
+        return topics.computeIfAbsent(name, n -> new Topic(partitions, offsetBase));
+    }
+
+    private static final class Topic {
+
+        private final Object[] locks;
+        private final long[] offsets;
+        private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+        private int roundRobin;
+
+        private Topic(int partitions, long offsetBase) {
+            locks = new Object[partitions];
+            for (int i = 0; i < partitions; i++) {
+                locks[i] = new Object();
+            }
+            offsets = new long[partitions];
+            Arrays.fill(offsets, offsetBase);
+        }
+
+        // как у producer'а kafka: по ключу - murmur2, без ключа - по кругу
+        private int partition(String key) {
+            if (key == null) {
+                synchronized (this) {
+                    roundRobin = (roundRobin + 1) % locks.length;
+                    return roundRobin;
+                }
+            }
+            return Utils.toPositive(Utils.murmur2(key.getBytes(StandardCharsets.UTF_8))) % locks.length;
+        }
+    }
+
+    private final class Subscription {
+
+        private final String topic;
+        private final String group;
+        private final Consumer<List<ConsumerRecord<String, byte[]>>> handler;
+        @SuppressWarnings("unchecked")
+        private final BlockingQueue<ConsumerRecord<String, byte[]>>[] queues = new BlockingQueue[partitions];
+        private final List<Thread> threads = new ArrayList<>();
+        private final Counter failed;
+
+        private Subscription(String topic, String group, Consumer<List<ConsumerRecord<String, byte[]>>> handler) {
+            this.topic = topic;
+            this.group = group;
+            this.handler = handler;
+            this.failed = Counter.builder("messaging.inmemory.failed")
+                    .description("Сообщения, отложенные в dead_letter_messages после всех попыток обработки")
+                    .tag("topic", topic)
+                    .tag("group", group)
+                    .register(meterRegistry);
+        }
+
+        private double queued() {
+            double total = 0;
+            for (BlockingQueue<ConsumerRecord<String, byte[]>> queue : queues) {
+                total += queue.size();
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.server1.messaging;
+
+import com.example.server1.avro.AvroCodec;
+import com.example.server1.service.KafkaSendMetrics;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.context.annotation.Profile;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+
+// сообщения через rawKafkaTemplate, с заголовком content-type; каждая отправка учитывается в KafkaSendMetrics.
+// send бросает сам, если за kafka.producer.max-block-ms нет метаданных топика
+@Component
+@Profile("!" + InMemoryMessageBus.PROFILE)
+public class KafkaMessageBus implements MessageBus {
+
+    private final KafkaTemplate<String, Object> rawKafkaTemplate;
+    private final KafkaSendMetrics kafkaSendMetrics;
+
+    public KafkaMessageBus(KafkaTemplate<String, Object> rawKafkaTemplate, KafkaSendMetrics kafkaSendMetrics) {
+        this.rawKafkaTemplate = rawKafkaTemplate;
+        this.kafkaSendMetrics = kafkaSendMetrics;
+    }
+
+    @Override
+    public CompletableFuture<?> publish(String topic, String key, String contentType, byte[] payload) {
+        long start = System.nanoTime();
+        RecordHeaders headers = new RecordHeaders();
+        if (contentType != null) {
+            headers.add(AvroCodec.CONTENT_TYPE_HEADER, AvroCodec.contentType(contentType));
+        }
+        return kafkaSendMetrics.track(topic, start,
+                rawKafkaTemplate.send(new ProducerRecord<>(topic, null, key, payload, headers)));
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.server1.messaging;
+
+import java.util.concurrent.CompletableFuture;
+
+// отправка сообщений, которые читает сам сервис (outbox -> уведомления -> SSE и ящик).
+// обычно это kafka (KafkaMessageBus), на одном узле без брокера - очередь в памяти (InMemoryMessageBus, профиль inmemory).
+// future завершается после подтверждения; при ошибке сообщение остается у отправителя и отправляется повторно
+public interface MessageBus {
+
+    // contentType и payload могут быть null; порядок сохраняется для сообщений с одним key
+    CompletableFuture<?> publish(String topic, String key, String contentType, byte[] payload);
+}
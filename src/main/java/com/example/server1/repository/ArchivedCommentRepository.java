@@ -0,0 +1,21 @@
+package com.example.server1.repository;
+
+import com.example.server1.entity.ArchivedComment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ArchivedCommentRepository extends JpaRepository<ArchivedComment, Long> {
+
+    List<ArchivedComment> findByTaskIdOrderById(Long taskId);
+
+    @Modifying
+    @Query(value = "INSERT INTO comments_archive (id, task_id, description) " +
+            "SELECT id, task_id, description FROM comments WHERE task_id IN (:task_ids)",
+            nativeQuery = true)
+    int copyFromComments(@Param("task_ids") Collection<Long> taskIds);
+}
@@ -0,0 +1,26 @@
+package com.example.server1.repository;
+
+import com.example.server1.entity.ArchivedTask;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface ArchivedTaskRepository extends JpaRepository<ArchivedTask, Long> {
+
+    List<ArchivedTask> findByUsernameOrderByIdDesc(String username, Pageable pageable);
+
+    List<ArchivedTask> findByUsernameAndIdLessThanOrderByIdDesc(String username, Long id, Pageable pageable);
+
+    @Modifying
+    @Query(value = "INSERT INTO tasks_archive (id, title, description, status, importance, deadline, completed_at, user_id, username, archived_at) " +
+            "SELECT t.id, t.title, t.description, t.status, t.importance, t.deadline, t.completed_at, t.user_id, u.username, :now " +
+            "FROM tasks t LEFT JOIN users u ON u.id = t.user_id WHERE t.id IN (:ids)",
+            nativeQuery = true)
+    int copyFromTasks(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+}
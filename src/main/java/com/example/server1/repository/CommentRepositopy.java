@@ -3,8 +3,17 @@ package com.example.server1.repository;
 import com.example.server1.entity.Comment;
 import com.example.server1.entity.Task;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
 
 public interface CommentRepositopy extends JpaRepository<Comment,Long> {
 
     void deleteAllByTask(Task task);
+
+    @Modifying
+    @Query(value = "DELETE FROM comments WHERE task_id IN (:task_ids)", nativeQuery = true)
+    int deleteByTaskIds(@Param("task_ids") Collection<Long> taskIds);
 }
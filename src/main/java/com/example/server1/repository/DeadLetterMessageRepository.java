@@ -0,0 +1,7 @@
+package com.example.server1.repository;
+
+import com.example.server1.entity.DeadLetterMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface DeadLetterMessageRepository extends JpaRepository<DeadLetterMessage, Long> {
+}
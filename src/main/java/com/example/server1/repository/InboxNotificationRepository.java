@@ -0,0 +1,39 @@
+package com.example.server1.repository;
+
+import com.example.server1.entity.InboxNotification;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface InboxNotificationRepository extends JpaRepository<InboxNotification, Long> {
+
+    // страницы ключом по id через индекс (username, id), без OFFSET
+    List<InboxNotification> findByUsernameOrderByIdDesc(String username, Pageable pageable);
+
+    List<InboxNotification> findByUsernameAndIdLessThanOrderByIdDesc(String username, Long id, Pageable pageable);
+
+    // по частичному индексу idx_notifications_inbox_unread
+    @Query("SELECT count(n) FROM InboxNotification n WHERE n.username = :username AND n.readAt IS NULL")
+    long countUnread(@Param("username") String username);
+
+    @Modifying
+    @Query("UPDATE InboxNotification n SET n.readAt = :now " +
+            "WHERE n.username = :username AND n.id IN :ids AND n.readAt IS NULL")
+    int markRead(@Param("username") String username, @Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE InboxNotification n SET n.readAt = :now WHERE n.username = :username AND n.readAt IS NULL")
+    int markAllRead(@Param("username") String username, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query(value = "DELETE FROM notifications_inbox WHERE id IN (" +
+            "SELECT id FROM notifications_inbox WHERE read_at < :cutoff LIMIT :limit)",
+            nativeQuery = true)
+    int deleteReadOlderThan(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+}
@@ -0,0 +1,30 @@
+package com.example.server1.repository;
+
+import com.example.server1.entity.JobState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+
+public interface JobStateRepository extends JpaRepository<JobState, String> {
+
+    @Modifying
+    @Query(value = "INSERT INTO job_state (name) VALUES (:name) ON CONFLICT (name) DO NOTHING", nativeQuery = true)
+    int insertIfMissing(@Param("name") String name);
+
+    @Modifying
+    @Query(value = "UPDATE job_state SET locked_by = :node, locked_until = :until " +
+            "WHERE name = :name AND (locked_until IS NULL OR locked_until < :now OR locked_by = :node)",
+            nativeQuery = true)
+    int tryLock(@Param("name") String name,
+                @Param("node") String node,
+                @Param("now") LocalDateTime now,
+                @Param("until") LocalDateTime until);
+
+    @Modifying
+    @Query(value = "UPDATE job_state SET locked_by = NULL, locked_until = NULL WHERE name = :name AND locked_by = :node",
+            nativeQuery = true)
+    int unlock(@Param("name") String name, @Param("node") String node);
+}
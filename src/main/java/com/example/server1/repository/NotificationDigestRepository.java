@@ -0,0 +1,25 @@
+package com.example.server1.repository;
+
+import com.example.server1.entity.NotificationDigest;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+
+public interface NotificationDigestRepository extends JpaRepository<NotificationDigest, String> {
+
+    // добавляет задания к сводке пользователя: счетчик суммируется, id дописываются до :maxIds штук,
+    // время первого задания остается от самой ранней записи
+    @Modifying
+    @Query(value = "INSERT INTO notification_digests (username, first_seen_at, task_count, task_ids) " +
+            "VALUES (:username, :now, :count, :ids) " +
+            "ON CONFLICT (username) DO UPDATE SET " +
+            "task_count = notification_digests.task_count + EXCLUDED.task_count, " +
+            "task_ids = array_to_string((string_to_array(notification_digests.task_ids, ',') " +
+            "|| string_to_array(EXCLUDED.task_ids, ','))[1:CAST(:maxIds AS int)], ',')",
+            nativeQuery = true)
+    int add(@Param("username") String username, @Param("now") LocalDateTime now,
+            @Param("count") int count, @Param("ids") String ids, @Param("maxIds") int maxIds);
+}
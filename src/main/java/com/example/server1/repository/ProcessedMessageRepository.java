@@ -0,0 +1,30 @@
+package com.example.server1.repository;
+
+import com.example.server1.entity.ProcessedMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface ProcessedMessageRepository extends JpaRepository<ProcessedMessage, String> {
+
+    // 1 если ключ новый, 0 если сообщение уже обрабатывали
+    @Modifying
+    @Query(value = "INSERT INTO processed_messages (message_key, processed_at) VALUES (:key, :now) " +
+            "ON CONFLICT (message_key) DO NOTHING",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("key") String key, @Param("now") LocalDateTime now);
+
+    @Query(value = "SELECT message_key FROM processed_messages WHERE message_key IN (:keys)", nativeQuery = true)
+    List<String> findExistingKeys(@Param("keys") Collection<String> keys);
+
+    @Modifying
+    @Query(value = "DELETE FROM processed_messages WHERE message_key IN (" +
+            "SELECT message_key FROM processed_messages WHERE processed_at < :cutoff LIMIT :limit)",
+            nativeQuery = true)
+    int deleteOlderThan(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+}
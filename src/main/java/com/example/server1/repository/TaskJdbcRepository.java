@@ -0,0 +1,56 @@
+package com.example.server1.repository;
+
+import com.example.server1.entity.Task;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+// пакетная вставка задач одним JDBC batch; JPA с IDENTITY ключами вставляет только по одной строке
+@Repository
+@RequiredArgsConstructor
+public class TaskJdbcRepository {
+
+    private static final String INSERT_TASK =
+            "INSERT INTO tasks (title, description, status, importance, deadline, user_id) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // выставляет задачам сгенерированные id
+    public void batchInsert(List<Task> tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_TASK, new String[]{"id"})) {
+                for (Task task : tasks) {
+                    ps.setString(1, task.getTitle());
+                    ps.setString(2, task.getDescription());
+                    ps.setShort(3, task.getStatus().getCode());
+                    ps.setShort(4, task.getImportance().getCode());
+                    if (task.getDeadline() != null) {
+                        ps.setTimestamp(5, Timestamp.valueOf(task.getDeadline()));
+                    } else {
+                        ps.setNull(5, Types.TIMESTAMP);
+                    }
+                    ps.setLong(6, task.getAssignee().getId());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    int i = 0;
+                    while (keys.next() && i < tasks.size()) {
+                        tasks.get(i++).setId(keys.getLong(1));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+}
@@ -1,11 +1,22 @@
 package com.example.server1.repository;
 
+import com.example.server1.entity.ImportanceCount;
+import com.example.server1.entity.OverdueTask;
+import com.example.server1.entity.OwnedTask;
+import com.example.server1.entity.Status;
+import com.example.server1.entity.StatusCount;
 import com.example.server1.entity.Task;
+import com.example.server1.entity.UserTaskCount;
+import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,12 +27,71 @@ public interface TaskRepository extends JpaRepository<Task,Long> {
     @Query(value = "DELETE FROM tasks WHERE user_id = :user_id", nativeQuery = true)
     int deleteByUserId(@Param("user_id") Long user_id);
 
+    @Query(value = "SELECT id FROM tasks WHERE user_id = :user_id", nativeQuery = true)
+    List<Long> findIdsByUserId(@Param("user_id") Long user_id);
+
     Optional<Task> findByTitle (String title);
 
     Optional<Task> findById (Long id);
 
+    // смена статуса: строка задачи заблокирована до конца транзакции, поэтому дельта счетчиков
+    // считается от статуса, который не изменит параллельный запрос
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select t from Task t where t.id = :id")
+    Optional<Task> findByIdForUpdate(@Param("id") Long id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select t from Task t where t.title = :title")
+    Optional<Task> findTaskByTitleForUpdate(@Param("title") String title);
+
     void deleteTaskById(Long id);
 
     List<Task> id(Long id);
 
+    @Query("select new com.example.server1.entity.StatusCount(t.status, count(t)) from Task t group by t.status")
+    List<StatusCount> countByStatus();
+
+    @Query("select new com.example.server1.entity.ImportanceCount(t.importance, count(t)) from Task t group by t.importance")
+    List<ImportanceCount> countByImportance();
+
+    @Query("select new com.example.server1.entity.UserTaskCount(u.username, count(t), " +
+            "sum(case when t.deadline < :now and t.status <> :done then 1L else 0L end)) " +
+            "from Task t join t.assignee u group by u.username order by u.username")
+    List<UserTaskCount> countByUser(@Param("now") LocalDateTime now, @Param("done") Status done);
+
+    @Query("select count(t) from Task t where t.deadline < :now and t.status <> :done")
+    long countOverdue(@Param("now") LocalDateTime now, @Param("done") Status done);
+
+
+    // задачи, у которых срок прошел после водяной метки (deadline, id); идет по idx_tasks_open_deadline
+    @Query("select new com.example.server1.entity.OverdueTask(t.id, t.title, t.deadline, u.username) " +
+            "from Task t join t.assignee u " +
+            "where t.status <> :done and t.deadline <= :now " +
+            "and (t.deadline > :watermark or (t.deadline = :watermark and t.id > :watermarkId)) " +
+            "order by t.deadline, t.id")
+    List<OverdueTask> findNewlyOverdue(@Param("watermark") LocalDateTime watermark,
+                                       @Param("watermarkId") Long watermarkId,
+                                       @Param("now") LocalDateTime now,
+                                       @Param("done") Status done,
+                                       Pageable pageable);
+
+    // завершенные задачи старше cutoff; строки блокируются, параллельный архиватор их пропустит
+    @Query(value = "SELECT id FROM tasks WHERE status = :done AND completed_at < :cutoff " +
+            "ORDER BY completed_at, id LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<Long> lockArchivableIds(@Param("done") short done,
+                                 @Param("cutoff") LocalDateTime cutoff,
+                                 @Param("limit") int limit);
+
+    @Query(value = "SELECT user_id, count(*) FROM tasks WHERE id IN (:ids) AND user_id IS NOT NULL GROUP BY user_id",
+            nativeQuery = true)
+    List<Object[]> countByUserIds(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query(value = "DELETE FROM tasks WHERE id IN (:ids)", nativeQuery = true)
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("select new com.example.server1.entity.OwnedTask(t.id, t.title, t.status, u.id, u.username) " +
+            "from Task t join t.assignee u where t.id in :ids")
+    List<OwnedTask> findOwnedByIds(@Param("ids") Collection<Long> ids);
 }
@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,4 +23,6 @@ public interface UserRepository extends JpaRepository<User,Long> {
     User getUserByUsername(@Param("username") String username);
 
     List<User> findAllByRole(Role role);
+
+    List<User> findAllByUsernameIn(Collection<String> usernames);
 }
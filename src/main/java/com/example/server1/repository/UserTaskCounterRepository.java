@@ -0,0 +1,41 @@
+package com.example.server1.repository;
+
+import com.example.server1.entity.UserTaskCounter;
+import com.example.server1.entity.UserTaskCounterId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface UserTaskCounterRepository extends JpaRepository<UserTaskCounter, UserTaskCounterId> {
+
+    List<UserTaskCounter> findByUserId(Long userId);
+
+    @Modifying
+    @Query(value = "INSERT INTO user_task_counters (user_id, status, task_count) VALUES (:user_id, :status, :delta) " +
+            "ON CONFLICT (user_id, status) DO UPDATE SET task_count = user_task_counters.task_count + EXCLUDED.task_count",
+            nativeQuery = true)
+    int add(@Param("user_id") Long userId, @Param("status") short status, @Param("delta") long delta);
+
+    @Modifying
+    @Query(value = "DELETE FROM user_task_counters WHERE user_id = :user_id", nativeQuery = true)
+    int deleteByUserId(@Param("user_id") Long userId);
+
+    // пересчет ждет завершения транзакций, уже изменивших счетчики, а новые изменения ждут конца пересчета;
+    // чтение счетчиков не блокируется
+    @Modifying
+    @Query(value = "LOCK TABLE user_task_counters IN EXCLUSIVE MODE", nativeQuery = true)
+    void lockForRebuild();
+
+    @Modifying
+    @Query(value = "DELETE FROM user_task_counters", nativeQuery = true)
+    int deleteAllCounters();
+
+    @Modifying
+    @Query(value = "INSERT INTO user_task_counters (user_id, status, task_count) " +
+            "SELECT user_id, status, count(*) FROM tasks WHERE user_id IS NOT NULL GROUP BY user_id, status",
+            nativeQuery = true)
+    int rebuildFromTasks();
+}
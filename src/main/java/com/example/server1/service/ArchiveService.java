@@ -0,0 +1,89 @@
+package com.example.server1.service;
+
+import com.example.server1.entity.ArchivedComment;
+import com.example.server1.entity.ArchivedTask;
+import com.example.server1.entity.Status;
+import com.example.server1.exeptions.NotFoundExeption;
+import com.example.server1.repository.ArchivedCommentRepository;
+import com.example.server1.repository.ArchivedTaskRepository;
+import com.example.server1.repository.CommentRepositopy;
+import com.example.server1.repository.TaskRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// перенос старых завершенных задач и их комментариев в tasks_archive / comments_archive,
+// чтобы в tasks оставалась только текущая работа
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ArchiveService {
+
+    private static final int MAX_PAGE_SIZE = 200;
+
+    private final TaskRepository taskRepository;
+    private final CommentRepositopy commentRepositopy;
+    private final ArchivedTaskRepository archivedTaskRepository;
+    private final ArchivedCommentRepository archivedCommentRepository;
+    private final TaskCounterService taskCounterService;
+    private final TaskChangelogPublisher taskChangelogPublisher;
+
+    @Value("${archive.completed-age:P30D}")
+    private Duration completedAge;
+
+    @Value("${archive.batch-size:200}")
+    private int batchSize;
+
+    // одна пачка = одна короткая транзакция; возвращает сколько задач перенесено
+    @Transactional
+    public int archiveBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = taskRepository.lockArchivableIds(Status.ЗАВЕРШЕНА.getCode(), now.minus(completedAge), batchSize);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        for (Object[] row : taskRepository.countByUserIds(ids)) {
+            Long userId = ((Number) row[0]).longValue();
+            long count = ((Number) row[1]).longValue();
+            taskCounterService.add(userId, Status.ЗАВЕРШЕНА, -count);
+        }
+        archivedTaskRepository.copyFromTasks(ids, now);
+        archivedCommentRepository.copyFromComments(ids);
+        commentRepositopy.deleteByTaskIds(ids);
+        taskRepository.deleteByIds(ids);
+        taskChangelogPublisher.deleted(ids);
+        log.info("в архив перенесено задач: {}", ids.size());
+        return ids.size();
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    // страница архива пользователя от новых к старым; beforeId - id последней задачи предыдущей страницы
+    @Transactional(readOnly = true)
+    public List<ArchivedTask> findArchivedTasks(String username, Long beforeId, int size) {
+        PageRequest page = PageRequest.of(0, Math.min(Math.max(size, 1), MAX_PAGE_SIZE));
+        if (beforeId == null) {
+            return archivedTaskRepository.findByUsernameOrderByIdDesc(username, page);
+        }
+        return archivedTaskRepository.findByUsernameAndIdLessThanOrderByIdDesc(username, beforeId, page);
+    }
+
+    @Transactional(readOnly = true)
+    public ArchivedTask findArchivedTask(Long id) {
+        return archivedTaskRepository.findById(id).orElseThrow(() -> new NotFoundExeption("задача в архиве не найдена"));
+    }
+
+    @Transactional(readOnly = true)
+    public List<ArchivedComment> findArchivedComments(Long taskId) {
+        return archivedCommentRepository.findByTaskIdOrderById(taskId);
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.server1.service;
+
+import com.example.server1.messaging.InMemoryMessageBus;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// обратное давление от пула соединений к kafka: когда потоков в очереди за соединением Hikari
+// или время ожидания соединения выше верхней границы, listener'ы ставятся на паузу; снимается пауза,
+// когда оба показателя опустились ниже нижней. На паузе consumer продолжает poll без записей,
+// поэтому max.poll.interval.ms не превышается и rebalance не происходит
+@Slf4j
+@Service
+@Profile("!" + InMemoryMessageBus.PROFILE)
+public class ConsumerBackpressureService {
+
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+    private final DataSource dataSource;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${kafka.backpressure.enabled:true}")
+    private boolean enabled;
+
+    @Value("${kafka.backpressure.pending-threads.high:5}")
+    private int pendingHigh;
+
+    @Value("${kafka.backpressure.pending-threads.low:0}")
+    private int pendingLow;
+
+    @Value("${kafka.backpressure.connection-wait-ms.high:500}")
+    private double waitHighMs;
+
+    @Value("${kafka.backpressure.connection-wait-ms.low:50}")
+    private double waitLowMs;
+
+    private final AtomicInteger paused = new AtomicInteger();
+    private final AtomicInteger pendingThreads = new AtomicInteger();
+    private final Map<String, AtomicInteger> lagByListener = new ConcurrentHashMap<>();
+
+    private long lastAcquireCount;
+    private double lastAcquireTotalMs;
+
+    public ConsumerBackpressureService(KafkaListenerEndpointRegistry listenerRegistry,
+                                       DataSource dataSource,
+                                       MeterRegistry meterRegistry) {
+        this.listenerRegistry = listenerRegistry;
+        this.dataSource = dataSource;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("kafka.consumer.paused", paused, AtomicInteger::get)
+                .description("1 - listener'ы на паузе из-за нехватки соединений с базой")
+                .register(meterRegistry);
+        Gauge.builder("kafka.backpressure.pending.threads", pendingThreads, AtomicInteger::get)
+                .description("Потоки, ждущие соединение Hikari, на момент последней проверки")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${kafka.backpressure.check-interval-ms:500}")
+    public void check() {
+        updateLag();
+        HikariPoolMXBean pool = pool();
+        if (!enabled || pool == null) {
+            return;
+        }
+        int pending = pool.getThreadsAwaitingConnection();
+        double waitMs = connectionWaitMs();
+        pendingThreads.set(pending);
+
+        if (paused.get() == 0 && (pending >= pendingHigh || waitMs >= waitHighMs)) {
+            log.warn("Пул соединений перегружен (ожидают {}, ожидание {} мс), kafka listener'ы на паузе",
+                    pending, Math.round(waitMs));
+            databaseListeners().forEach(MessageListenerContainer::pause);
+            paused.set(1);
+            meterRegistry.counter("kafka.backpressure.pauses").increment();
+        } else if (paused.get() == 1 && pending <= pendingLow && waitMs <= waitLowMs) {
+            log.info("Пул соединений разгружен, kafka listener'ы возобновлены");
+            databaseListeners().forEach(MessageListenerContainer::resume);
+            paused.set(0);
+        }
+    }
+
+    public boolean isPaused() {
+        return paused.get() == 1;
+    }
+
+    // среднее время получения соединения с прошлой проверки; 0 если метрики Hikari не подключены
+    private double connectionWaitMs() {
+        Timer acquire = meterRegistry.find("hikaricp.connections.acquire").timer();
+        if (acquire == null) {
+            return 0;
+        }
+        long count = acquire.count();
+        double totalMs = acquire.totalTime(TimeUnit.MILLISECONDS);
+        long deltaCount = count - lastAcquireCount;
+        double deltaMs = totalMs - lastAcquireTotalMs;
+        lastAcquireCount = count;
+        lastAcquireTotalMs = totalMs;
+        return deltaCount > 0 ? deltaMs / deltaCount : 0;
+    }
+
+    // lag по каждому listener'у: максимум records-lag-max по его consumer'ам
+    private void updateLag() {
+        for (MessageListenerContainer container : listenerRegistry.getAllListenerContainers()) {
+            int lag = 0;
+            for (Map<MetricName, ? extends Metric> metrics : container.metrics().values()) {
+                for (Map.Entry<MetricName, ? extends Metric> metric : metrics.entrySet()) {
+                    if ("records-lag-max".equals(metric.getKey().name())
+                            && metric.getValue().metricValue() instanceof Double value && !value.isNaN()) {
+                        lag = Math.max(lag, value.intValue());
+                    }
+                }
+            }
+            lagByListener.computeIfAbsent(container.getListenerId(), id -> {
+                AtomicInteger gauge = new AtomicInteger();
+                Gauge.builder("kafka.consumer.lag", gauge, AtomicInteger::get)
+                        .tag("listener", id)
+                        .description("Наибольшее отставание consumer'ов listener'а, записей")
+                        .register(meterRegistry);
+                return gauge;
+            }).set(lag);
+        }
+    }
+
+    // поток SSE в базу не ходит, его не останавливаем
+    private List<MessageListenerContainer> databaseListeners() {
+        return listenerRegistry.getAllListenerContainers().stream()
+                .filter(container -> !NotificationStreamService.LISTENER_ID.equals(container.getListenerId()))
+                .toList();
+    }
+
+    private HikariPoolMXBean pool() {
+        return dataSource instanceof HikariDataSource hikari ? hikari.getHikariPoolMXBean() : null;
+    }
+}
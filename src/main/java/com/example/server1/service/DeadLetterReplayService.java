@@ -0,0 +1,161 @@
+package com.example.server1.service;
+
+import com.example.server1.config.KafkaErrorHandlingConfig;
+import com.example.server1.config.KafkaTopics;
+import com.example.server1.messaging.InMemoryMessageBus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// переотправка сообщений из <topic>-dlt обратно в исходный топик, после того как причина ошибки устранена
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@Profile("!" + InMemoryMessageBus.PROFILE)
+public class DeadLetterReplayService {
+
+    private static final Set<String> REPLAYABLE_TOPICS = Set.of(KafkaTopics.TASK_ASSIGNMENTS,
+            KafkaTopics.TASK_ASSIGNMENTS_URGENT, KafkaTopics.TASK_ASSIGNMENTS_NORMAL, KafkaTopics.TASK_DELETIONS);
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(2);
+    // страховка на случай, если конечный offset недостижим (например, после удаления записей)
+    private static final int MAX_EMPTY_POLLS = 3;
+
+    private final ConsumerFactory<String, String> consumerFactory;
+    private final KafkaTemplate<String, Object> rawKafkaTemplate;
+    private final KafkaSendMetrics kafkaSendMetrics;
+
+    @Value("${kafka.dlt.replay-group:dlt-replay}")
+    private String replayGroup;
+
+    // возвращает сколько сообщений переотправлено, не больше maxRecords. Читается то, что лежало в dlt на момент вызова:
+    // партиции назначаются напрямую (без ожидания rebalance), чтение идет с offset'ов группы replayGroup или с начала,
+    // до конечных offset'ов, снятых при старте. offset'ы dlt коммитятся только после подтверждения отправки
+    public synchronized int replay(String topic, int maxRecords) {
+        if (!REPLAYABLE_TOPICS.contains(topic)) {
+            throw new IllegalArgumentException("Нельзя переотправить сообщения топика " + topic);
+        }
+        String dltTopic = topic + KafkaErrorHandlingConfig.DLT_SUFFIX;
+        Properties overrides = new Properties();
+        overrides.put("max.poll.records", String.valueOf(Math.min(maxRecords, 500)));
+        overrides.put("enable.auto.commit", "false");
+
+        int replayed = 0;
+        try (Consumer<String, byte[]> consumer = createConsumer(overrides)) {
+            List<TopicPartition> partitions = consumer.partitionsFor(dltTopic, POLL_TIMEOUT).stream()
+                    .map(info -> new TopicPartition(dltTopic, info.partition()))
+                    .toList();
+            consumer.assign(partitions);
+            Map<TopicPartition, OffsetAndMetadata> committed = consumer.committed(new HashSet<>(partitions));
+            for (TopicPartition partition : partitions) {
+                OffsetAndMetadata offset = committed.get(partition);
+                if (offset != null) {
+                    consumer.seek(partition, offset.offset());
+                } else {
+                    consumer.seekToBeginning(List.of(partition));
+                }
+            }
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+            int emptyPolls = 0;
+            while (replayed < maxRecords && !reachedEnd(consumer, endOffsets) && emptyPolls < MAX_EMPTY_POLLS) {
+                ConsumerRecords<String, byte[]> records = consumer.poll(POLL_TIMEOUT);
+                if (records.isEmpty()) {
+                    emptyPolls++;
+                    continue;
+                }
+                emptyPolls = 0;
+                List<CompletableFuture<SendResult<String, Object>>> sends = new ArrayList<>(records.count());
+                Map<TopicPartition, OffsetAndMetadata> next = new HashMap<>();
+                for (ConsumerRecord<String, byte[]> record : records) {
+                    TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+                    if (replayed + sends.size() >= maxRecords) {
+                        break;
+                    }
+                    if (record.offset() >= endOffsets.get(partition)) {
+                        // попало в dlt после вызова, останется до следующей переотправки
+                        continue;
+                    }
+                    ProducerRecord<String, Object> original = toOriginal(record, topic);
+                    long start = System.nanoTime();
+                    sends.add(kafkaSendMetrics.track(original.topic(), start, rawKafkaTemplate.send(original)));
+                    next.put(partition, new OffsetAndMetadata(record.offset() + 1));
+                }
+                CompletableFuture.allOf(sends.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+                consumer.commitSync(next);
+                replayed += sends.size();
+            }
+        } catch (Exception e) {
+            log.error("Ошибка переотправки из {}: {}", dltTopic, e.getMessage());
+            throw new IllegalStateException("Переотправка из " + dltTopic + " прервана после " + replayed + " сообщений", e);
+        }
+        log.info("Из {} переотправлено сообщений: {}", dltTopic, replayed);
+        return replayed;
+    }
+
+    // значения читаются байтами: в dlt могут лежать и JSON, и avro
+    Consumer<String, byte[]> createConsumer(Properties overrides) {
+        ConsumerFactory<String, byte[]> bytesConsumerFactory = new DefaultKafkaConsumerFactory<>(
+                consumerFactory.getConfigurationProperties(), new StringDeserializer(), new ByteArrayDeserializer());
+        return bytesConsumerFactory.createConsumer(replayGroup, null, null, overrides);
+    }
+
+    private static boolean reachedEnd(Consumer<?, ?> consumer, Map<TopicPartition, Long> endOffsets) {
+        for (Map.Entry<TopicPartition, Long> end : endOffsets.entrySet()) {
+            if (consumer.position(end.getKey()) < end.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // заголовки ошибки и retry остаются в dlt, в исходный топик уходят ключ, значение, свои заголовки
+    // и исходные topic/partition/offset: по ним MessageDeduplicator отсечет повторную переотправку
+    private ProducerRecord<String, Object> toOriginal(ConsumerRecord<String, byte[]> record, String defaultTopic) {
+        Header originalTopic = MessageDeduplicator.firstHeader(record.headers(), KafkaHeaders.DLT_ORIGINAL_TOPIC);
+        String target = originalTopic != null
+                ? new String(originalTopic.value(), StandardCharsets.UTF_8)
+                : defaultTopic;
+        RecordHeaders headers = new RecordHeaders();
+        for (Header header : record.headers()) {
+            if (!header.key().startsWith("kafka_") && !header.key().startsWith("retry_topic-")) {
+                headers.add(header);
+            }
+        }
+        for (String name : List.of(KafkaHeaders.DLT_ORIGINAL_TOPIC, KafkaHeaders.DLT_ORIGINAL_PARTITION,
+                KafkaHeaders.DLT_ORIGINAL_OFFSET)) {
+            Header original = MessageDeduplicator.firstHeader(record.headers(), name);
+            if (original != null) {
+                headers.add(original);
+            }
+        }
+        return new ProducerRecord<>(target, null, record.key(), record.value(), headers);
+    }
+}
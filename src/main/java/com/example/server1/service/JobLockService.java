@@ -0,0 +1,55 @@
+package com.example.server1.service;
+
+import com.example.server1.repository.JobStateRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// блокировка фоновых задач через строку в job_state, чтобы на кластере задачу выполнял один узел;
+// если узел упал, блокировка сама истекает через ttl
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class JobLockService {
+
+    private final JobStateRepository jobStateRepository;
+
+    private final String nodeId = resolveNodeId();
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean tryLock(String job, Duration ttl) {
+        jobStateRepository.insertIfMissing(job);
+        LocalDateTime now = LocalDateTime.now();
+        boolean locked = jobStateRepository.tryLock(job, nodeId, now, now.plus(ttl)) == 1;
+        if (!locked) {
+            log.debug("задача {} уже выполняется на другом узле", job);
+        }
+        return locked;
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void unlock(String job) {
+        jobStateRepository.unlock(job, nodeId);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    private static String resolveNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
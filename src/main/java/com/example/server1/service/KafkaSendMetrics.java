@@ -0,0 +1,53 @@
+package com.example.server1.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// учет отправок в kafka по подтверждению брокера: kafka.producer.sends{topic,result} и
+// kafka.producer.send.latency{topic} от вызова send до ack (включая ожидание linger и место в буфере)
+@Component
+public class KafkaSendMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, TopicMeters> byTopic = new ConcurrentHashMap<>();
+
+    public KafkaSendMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    // startNanos берется до send: send может блокироваться на max.block.ms, когда буфер producer'а заполнен
+    public <T> CompletableFuture<T> track(String topic, long startNanos, CompletableFuture<T> send) {
+        TopicMeters meters = byTopic.computeIfAbsent(topic, this::register);
+        return send.whenComplete((result, ex) -> {
+            meters.latency.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            (ex == null ? meters.success : meters.failure).increment();
+        });
+    }
+
+    private TopicMeters register(String topic) {
+        Timer latency = Timer.builder("kafka.producer.send.latency")
+                .description("От вызова send до подтверждения брокером")
+                .tag("topic", topic)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Counter success = Counter.builder("kafka.producer.sends")
+                .tag("topic", topic)
+                .tag("result", "success")
+                .register(meterRegistry);
+        Counter failure = Counter.builder("kafka.producer.sends")
+                .tag("topic", topic)
+                .tag("result", "failure")
+                .register(meterRegistry);
+        return new TopicMeters(latency, success, failure);
+    }
+
+    private record TopicMeters(Timer latency, Counter success, Counter failure) {
+    }
+}
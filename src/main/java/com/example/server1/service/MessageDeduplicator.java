@@ -0,0 +1,179 @@
+package com.example.server1.service;
+
+import com.example.server1.repository.ProcessedMessageRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// защита от повторной обработки сообщения kafka (redelivery после rebalance, повтор отправки).
+// ключ пишется в processed_messages в той же транзакции, что и результат, уникальность держит primary key;
+// недавние ключи дополнительно лежат в ограниченном LRU кэше, чтобы горячие дубликаты не ходили в базу
+@Slf4j
+@Service
+public class MessageDeduplicator {
+
+    public static final String MESSAGE_ID_HEADER = "message-id";
+
+    private static final String INSERT_KEYS =
+            "INSERT INTO processed_messages (message_key, processed_at) SELECT unnest(?), ? " +
+                    "ON CONFLICT (message_key) DO NOTHING RETURNING message_key";
+
+    private final ProcessedMessageRepository processedMessageRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<String, Boolean> recentKeys;
+
+    public MessageDeduplicator(ProcessedMessageRepository processedMessageRepository,
+                               JdbcTemplate jdbcTemplate,
+                               @Value("${kafka.dedupe.cache-size:10000}") int cacheSize) {
+        this.processedMessageRepository = processedMessageRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.recentKeys = Collections.synchronizedMap(new LinkedHashMap<>(cacheSize, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    // ключ из заголовка message-id; без него - исходные topic/partition/offset.
+    // для сообщений из retry топиков и dlt берутся заголовки kafka_dlt-original-*, которые пишет
+    // DeadLetterPublishingRecoverer; он дописывает их на каждом переходе, исходный топик - в первом
+    public static String messageKey(ConsumerRecord<?, ?> record) {
+        Header messageId = record.headers().lastHeader(MESSAGE_ID_HEADER);
+        if (messageId != null) {
+            return "id:" + new String(messageId.value(), StandardCharsets.UTF_8);
+        }
+        Header originalTopic = firstHeader(record.headers(), KafkaHeaders.DLT_ORIGINAL_TOPIC);
+        Header originalPartition = firstHeader(record.headers(), KafkaHeaders.DLT_ORIGINAL_PARTITION);
+        Header originalOffset = firstHeader(record.headers(), KafkaHeaders.DLT_ORIGINAL_OFFSET);
+        if (originalTopic != null && originalPartition != null && originalOffset != null) {
+            return new String(originalTopic.value(), StandardCharsets.UTF_8)
+                    + "-" + ByteBuffer.wrap(originalPartition.value()).getInt()
+                    + "@" + ByteBuffer.wrap(originalOffset.value()).getLong();
+        }
+        return record.topic() + "-" + record.partition() + "@" + record.offset();
+    }
+
+    static Header firstHeader(Headers headers, String name) {
+        Iterator<Header> values = headers.headers(name).iterator();
+        return values.hasNext() ? values.next() : null;
+    }
+
+    // true если сообщение новое и его надо обработать; вызывать внутри транзакции обработки
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean markProcessed(String key) {
+        if (recentKeys.containsKey(key)) {
+            return false;
+        }
+        boolean fresh = processedMessageRepository.insertIfAbsent(key, LocalDateTime.now()) == 1;
+        if (fresh) {
+            rememberAfterCommit(Collections.singleton(key));
+        } else {
+            recentKeys.put(key, Boolean.TRUE);
+        }
+        return fresh;
+    }
+
+    // пакетная версия: одна вставка на все ключи, возвращает новые
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Set<String> markProcessed(Collection<String> keys) {
+        Set<String> candidates = new HashSet<>();
+        for (String key : keys) {
+            if (!recentKeys.containsKey(key)) {
+                candidates.add(key);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return candidates;
+        }
+        Set<String> fresh = jdbcTemplate.execute((ConnectionCallback<Set<String>>) connection -> {
+            Set<String> inserted = new HashSet<>();
+            Array array = connection.createArrayOf("text", candidates.toArray());
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_KEYS)) {
+                ps.setArray(1, array);
+                ps.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        inserted.add(rs.getString(1));
+                    }
+                }
+            } finally {
+                array.free();
+            }
+            return inserted;
+        });
+        for (String key : candidates) {
+            if (!fresh.contains(key)) {
+                recentKeys.put(key, Boolean.TRUE);
+            }
+        }
+        rememberAfterCommit(fresh);
+        return fresh;
+    }
+
+    // какие из ключей уже обработаны; ничего не отмечает
+    public Set<String> findProcessed(Collection<String> keys) {
+        Set<String> processed = new HashSet<>();
+        List<String> unknown = new ArrayList<>();
+        for (String key : keys) {
+            if (recentKeys.containsKey(key)) {
+                processed.add(key);
+            } else {
+                unknown.add(key);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            processed.addAll(processedMessageRepository.findExistingKeys(unknown));
+        }
+        return processed;
+    }
+
+    @Transactional
+    public int pruneOlderThan(LocalDateTime cutoff, int limit) {
+        return processedMessageRepository.deleteOlderThan(cutoff, limit);
+    }
+
+    private void rememberAfterCommit(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            keys.forEach(key -> recentKeys.put(key, Boolean.TRUE));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                keys.forEach(key -> recentKeys.put(key, Boolean.TRUE));
+            }
+        });
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.server1.service;
+
+import com.example.server1.controller.NotificationProduser;
+import com.example.server1.entity.NotificationEvent;
+import com.example.server1.repository.NotificationDigestRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+// склеивает уведомления о новых заданиях одного пользователя за окно notifications.coalesce.window:
+// вместо 500 уведомлений TASK_ASSIGNED при массовом назначении уходит одно с count=500 и первыми id заданий.
+// сводка копится в notification_digests той же транзакцией, что создает задания, поэтому закоммиченные
+// задания не теряют уведомление при падении узла. по истечении окна сводка переносится в outbox
+// собственной транзакцией планировщика; строки забираются SKIP LOCKED, несколько узлов не мешают друг другу.
+// если сводок больше notifications.coalesce.max-recipients, они сбрасываются не дожидаясь окна
+@Slf4j
+@Service
+public class NotificationCoalescer {
+
+    // забирает сводки пачкой и удаляет их; занятые чужой транзакцией строки пропускаются
+    private static final String CLAIM_DUE =
+            "DELETE FROM notification_digests WHERE username IN (" +
+            "SELECT username FROM notification_digests WHERE first_seen_at <= ? " +
+            "ORDER BY first_seen_at LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "RETURNING username, task_count, task_ids";
+
+    private final NotificationProduser notificationProduser;
+    private final NotificationDigestRepository notificationDigestRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicLong pending = new AtomicLong();
+
+    @Value("${notifications.coalesce.enabled:true}")
+    private boolean enabled;
+
+    @Value("${notifications.coalesce.window:PT5S}")
+    private Duration window;
+
+    @Value("${notifications.coalesce.max-recipients:10000}")
+    private int maxRecipients;
+
+    @Value("${notifications.coalesce.flush-batch-size:500}")
+    private int flushBatchSize;
+
+    public NotificationCoalescer(NotificationProduser notificationProduser,
+                                 NotificationDigestRepository notificationDigestRepository,
+                                 JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry) {
+        this.notificationProduser = notificationProduser;
+        this.notificationDigestRepository = notificationDigestRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        // своя транзакция, даже если сброс вызван изнутри чужой
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        Gauge.builder("notifications.coalesce.pending", pending, AtomicLong::get)
+                .description("Пользователи, для которых копится сводка уведомлений")
+                .register(meterRegistry);
+    }
+
+    // вызывается внутри транзакции, создавшей задания; при откате сводка откатывается вместе с ними.
+    // строка пользователя блокируется до коммита, поэтому пачки пишут сводки в порядке username
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void tasksAssigned(String username, List<Long> taskIds) {
+        if (!enabled) {
+            notificationProduser.send(NotificationEvent.tasksAssigned(username, taskIds.size(), taskIds));
+            return;
+        }
+        String ids = taskIds.stream()
+                .limit(NotificationEvent.MAX_LISTED)
+                .map(String::valueOf)
+                .collect(Collectors.joining(","));
+        notificationDigestRepository.add(username, LocalDateTime.now(), taskIds.size(), ids, NotificationEvent.MAX_LISTED);
+    }
+
+    @Scheduled(fixedDelayString = "${notifications.coalesce.flush-interval-ms:500}")
+    public void flushDue() {
+        long count = notificationDigestRepository.count();
+        pending.set(count);
+        if (count == 0) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (count > maxRecipients) {
+            log.warn("Сводок уведомлений накопилось {}, сбрасываем досрочно", count);
+            flush(now);
+        } else {
+            flush(now.minus(window));
+        }
+    }
+
+    private void flush(LocalDateTime cutoff) {
+        int claimed;
+        do {
+            claimed = transactionTemplate.execute(status -> {
+                List<NotificationEvent> events = jdbcTemplate.query(CLAIM_DUE, (rs, rowNum) ->
+                                NotificationEvent.tasksAssigned(rs.getString("username"), rs.getInt("task_count"),
+                                        parseIds(rs.getString("task_ids"))),
+                        Timestamp.valueOf(cutoff), flushBatchSize);
+                events.forEach(notificationProduser::send);
+                return events.size();
+            });
+        } while (claimed == flushBatchSize);
+    }
+
+    private static List<Long> parseIds(String ids) {
+        if (ids == null || ids.isEmpty()) {
+            return List.of();
+        }
+        return Arrays.stream(ids.split(",")).map(Long::valueOf).toList();
+    }
+}
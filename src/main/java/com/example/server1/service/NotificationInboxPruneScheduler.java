@@ -0,0 +1,55 @@
+package com.example.server1.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// удаляет из notifications_inbox уведомления, прочитанные раньше notifications.inbox.read-retention; непрочитанные не трогает
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class NotificationInboxPruneScheduler {
+
+    public static final String JOB_NAME = "notifications-inbox-prune";
+
+    private final JobLockService jobLockService;
+    private final NotificationInboxService notificationInboxService;
+
+    @Value("${notifications.inbox.read-retention:P30D}")
+    private Duration retention;
+
+    @Value("${notifications.inbox.prune-batch-size:5000}")
+    private int batchSize;
+
+    @Value("${notifications.inbox.lock-ttl:PT10M}")
+    private Duration lockTtl;
+
+    @Scheduled(fixedDelayString = "${notifications.inbox.prune-interval-ms:3600000}",
+            initialDelayString = "${notifications.inbox.prune-initial-delay-ms:180000}")
+    public void prune() {
+        if (!jobLockService.tryLock(JOB_NAME, lockTtl)) {
+            return;
+        }
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+            int total = 0;
+            int deleted;
+            do {
+                deleted = notificationInboxService.pruneReadOlderThan(cutoff, batchSize);
+                total += deleted;
+            } while (deleted == batchSize);
+            if (total > 0) {
+                log.info("Удалено прочитанных уведомлений: {}", total);
+            }
+        } catch (Exception e) {
+            log.error("Ошибка очистки notifications_inbox: {}", e.getMessage(), e);
+        } finally {
+            jobLockService.unlock(JOB_NAME);
+        }
+    }
+}
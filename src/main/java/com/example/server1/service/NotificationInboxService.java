@@ -0,0 +1,122 @@
+package com.example.server1.service;
+
+import com.example.server1.entity.InboxNotification;
+import com.example.server1.repository.InboxNotificationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// ящик уведомлений: запись пачками из kafka, чтение страницами по id, отметка о прочтении.
+// число непрочитанных кэшируется на notifications.inbox.unread-cache-ttl-ms; кэш пользователя сбрасывается
+// после коммита новых уведомлений и отметок на этом узле, изменения с других узлов видны через ttl
+@Slf4j
+@Service
+public class NotificationInboxService {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private static final String INSERT_NOTIFICATION =
+            "INSERT INTO notifications_inbox (username, type, payload, created_at, source_partition, source_offset) " +
+                    "VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT (source_partition, source_offset) DO NOTHING";
+
+    private final InboxNotificationRepository inboxNotificationRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${notifications.inbox.unread-cache-ttl-ms:30000}")
+    private long unreadCacheTtlMs;
+
+    @Value("${notifications.inbox.unread-cache-size:100000}")
+    private int unreadCacheSize;
+
+    private final Map<String, CachedCount> unreadCache = new ConcurrentHashMap<>();
+
+    public NotificationInboxService(InboxNotificationRepository inboxNotificationRepository,
+                                    JdbcTemplate jdbcTemplate,
+                                    PlatformTransactionManager transactionManager) {
+        this.inboxNotificationRepository = inboxNotificationRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // одним JDBC batch; повторно доставленные записи отбрасывает уникальный ключ источника
+    public void saveBatch(List<InboxNotification> notifications) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_NOTIFICATION,
+                notifications, notifications.size(), (ps, notification) -> {
+                    ps.setString(1, notification.getUsername());
+                    ps.setString(2, notification.getType());
+                    ps.setString(3, notification.getPayload());
+                    ps.setTimestamp(4, Timestamp.valueOf(notification.getCreatedAt()));
+                    ps.setInt(5, notification.getSourcePartition());
+                    ps.setLong(6, notification.getSourceOffset());
+                }));
+        Set<String> usernames = new HashSet<>();
+        notifications.forEach(notification -> usernames.add(notification.getUsername()));
+        usernames.forEach(unreadCache::remove);
+    }
+
+    @Transactional(readOnly = true)
+    public List<InboxNotification> findPage(String username, Long beforeId, int size) {
+        PageRequest page = PageRequest.of(0, Math.min(Math.max(size, 1), MAX_PAGE_SIZE));
+        if (beforeId == null) {
+            return inboxNotificationRepository.findByUsernameOrderByIdDesc(username, page);
+        }
+        return inboxNotificationRepository.findByUsernameAndIdLessThanOrderByIdDesc(username, beforeId, page);
+    }
+
+    public long unreadCount(String username) {
+        CachedCount cached = unreadCache.get(username);
+        long now = System.currentTimeMillis();
+        if (cached != null && now - cached.loadedAt() < unreadCacheTtlMs) {
+            return cached.count();
+        }
+        long count = inboxNotificationRepository.countUnread(username);
+        if (unreadCache.size() >= unreadCacheSize) {
+            unreadCache.clear();
+        }
+        unreadCache.put(username, new CachedCount(count, now));
+        return count;
+    }
+
+    public int markRead(String username, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        Integer updated = transactionTemplate.execute(status ->
+                inboxNotificationRepository.markRead(username, ids, LocalDateTime.now()));
+        unreadCache.remove(username);
+        return updated != null ? updated : 0;
+    }
+
+    public int markAllRead(String username) {
+        Integer updated = transactionTemplate.execute(status ->
+                inboxNotificationRepository.markAllRead(username, LocalDateTime.now()));
+        unreadCache.remove(username);
+        return updated != null ? updated : 0;
+    }
+
+    @Transactional
+    public int pruneReadOlderThan(LocalDateTime cutoff, int limit) {
+        return inboxNotificationRepository.deleteReadOlderThan(cutoff, limit);
+    }
+
+    private record CachedCount(long count, long loadedAt) {
+    }
+}
@@ -0,0 +1,322 @@
+package com.example.server1.service;
+
+import com.example.server1.controller.NotificationRecordReader;
+import com.example.server1.config.KafkaTopics;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// поток уведомлений пользователям по SSE. На узле один consumer notifications_for_user в собственной группе
+// (читает все партиции), запись раздается подписчикам с таким же ключом-username. У каждого подключения
+// своя ограниченная очередь; отправку делает общий небольшой пул, поэтому медленный клиент не держит consumer,
+// а при переполнении очереди отключается. Запись в сокет блокирующая: если она идет дольше stream.send-timeout-ms,
+// клиент отключается, а на время, пока поток висит в записи, пул получает замещающий поток, чтобы остальные
+// подключения не ждали. Последние stream.replay-buffer записей хранятся в кольцевом буфере
+// для возобновления по Last-Event-ID (id события - partition-offset)
+@Slf4j
+@Service
+public class NotificationStreamService {
+
+    public static final String LISTENER_ID = "notificationStream";
+
+    private final NotificationRecordReader notificationRecordReader;
+
+    @Value("${notifications.stream.max-connections:50000}")
+    private int maxConnections;
+
+    @Value("${notifications.stream.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${notifications.stream.send-timeout-ms:5000}")
+    private long sendTimeoutMs;
+
+    // предел потоков отправки вместе с замещающими
+    @Value("${notifications.stream.max-sender-threads:64}")
+    private int maxSenderThreads;
+
+    private final Map<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final ReplayBuffer replayBuffer;
+    private final ThreadPoolExecutor senders;
+    private final int senderThreads;
+    private int stalledSenders;
+
+    public NotificationStreamService(NotificationRecordReader notificationRecordReader,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${notifications.stream.replay-buffer:10000}") int replayBufferSize,
+                                     @Value("${notifications.stream.sender-threads:4}") int senderThreads) {
+        this.notificationRecordReader = notificationRecordReader;
+        this.replayBuffer = new ReplayBuffer(replayBufferSize);
+        this.senderThreads = senderThreads;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.senders = new ThreadPoolExecutor(senderThreads, senderThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "notification-stream-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("notifications.stream.connections", connections, AtomicInteger::get)
+                .description("Открытые SSE подключения на узле")
+                .register(meterRegistry);
+    }
+
+    // null, если лимит подключений узла исчерпан
+    public SseEmitter subscribe(String username, String lastEventId, long timeoutMs) {
+        if (connections.incrementAndGet() > maxConnections) {
+            connections.decrementAndGet();
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(username, emitter);
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+        // под блокировкой буфера: новая запись не может попасть между повтором пропущенных и подпиской
+        synchronized (replayBuffer) {
+            if (lastEventId != null) {
+                replayBuffer.after(username, lastEventId).forEach(subscriber::offer);
+            }
+            subscribers.computeIfAbsent(username, u -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        }
+        return emitter;
+    }
+
+    // группа своя у каждого запуска узла, offset'ы не коммитятся (streamKafkaListenerContainerFactory):
+    // после рестарта чтение идет с конца топика, пропущенное отдает replay буфер, а пустая группа без offset'ов
+    // удаляется брокером и не копится
+    @KafkaListener(id = LISTENER_ID,
+            topics = KafkaTopics.NOTIFICATIONS_FOR_USER,
+            groupId = "notification-stream-#{@jobLockService.nodeId}",
+            properties = {"auto.offset.reset=latest", "enable.auto.commit=false"},
+            containerFactory = "streamKafkaListenerContainerFactory",
+            autoStartup = "${notifications.stream.enabled:true}")
+    public void onNotification(ConsumerRecord<String, byte[]> record) {
+        if (record.key() == null || record.value() == null) {
+            return;
+        }
+        StreamEvent event;
+        try {
+            event = new StreamEvent(record.key(), record.partition(), record.offset(), notificationRecordReader.data(record));
+        } catch (Exception e) {
+            log.warn("Уведомление {}-{} не разобрано для SSE: {}", record.partition(), record.offset(), e.getMessage());
+            return;
+        }
+        synchronized (replayBuffer) {
+            replayBuffer.add(event);
+            Set<Subscriber> userSubscribers = subscribers.get(record.key());
+            if (userSubscribers != null) {
+                userSubscribers.forEach(subscriber -> subscriber.offer(event));
+            }
+        }
+    }
+
+    // комментарий раз в heartbeat-interval: прокси не закрывают простаивающее подключение, мертвые отваливаются
+    @Scheduled(fixedDelayString = "${notifications.stream.heartbeat-interval-ms:25000}")
+    public void heartbeat() {
+        subscribers.values().forEach(set -> set.forEach(subscriber -> subscriber.offer(StreamEvent.HEARTBEAT)));
+    }
+
+    // отключает клиентов, запись которым идет дольше send-timeout-ms; сам поток освободится, когда tomcat
+    // прервет запись по своему таймауту
+    @Scheduled(fixedDelayString = "${notifications.stream.send-check-interval-ms:1000}")
+    public void expireStalledSends() {
+        long now = System.nanoTime();
+        subscribers.values().forEach(set -> set.forEach(subscriber -> {
+            if (subscriber.expire(now)) {
+                log.info("SSE клиент {} не принимает данные дольше {} мс, отключаем", subscriber.username, sendTimeoutMs);
+                unsubscribe(subscriber);
+            }
+        }));
+    }
+
+    public int connectionCount() {
+        return connections.get();
+    }
+
+    // false, если предел потоков исчерпан: тогда подключение отключается, но поток не замещается
+    private synchronized boolean addSender() {
+        if (senderThreads + stalledSenders >= maxSenderThreads) {
+            return false;
+        }
+        stalledSenders++;
+        senders.setMaximumPoolSize(senderThreads + stalledSenders);
+        senders.setCorePoolSize(senderThreads + stalledSenders);
+        return true;
+    }
+
+    private synchronized void removeSender() {
+        stalledSenders--;
+        senders.setCorePoolSize(senderThreads + stalledSenders);
+        senders.setMaximumPoolSize(senderThreads + stalledSenders);
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return;
+        }
+        connections.decrementAndGet();
+        subscribers.computeIfPresent(subscriber.username, (u, set) -> {
+            set.remove(subscriber);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    record StreamEvent(String username, int partition, long offset, String data) {
+
+        static final StreamEvent HEARTBEAT = new StreamEvent(null, -1, -1, null);
+
+        String id() {
+            return partition + "-" + offset;
+        }
+    }
+
+    private final class Subscriber {
+
+        private final String username;
+        private final SseEmitter emitter;
+        private final Queue<StreamEvent> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        // под блокировкой подписчика; 0 - запись не идет
+        private long sendStartedNanos;
+        private boolean replaced;
+        private volatile boolean expired;
+
+        private Subscriber(String username, SseEmitter emitter) {
+            this.username = username;
+            this.emitter = emitter;
+        }
+
+        // не блокируется: при переполнении очереди клиент считается медленным и отключается
+        void offer(StreamEvent event) {
+            if (closed.get()) {
+                return;
+            }
+            if (size.incrementAndGet() > queueCapacity) {
+                log.info("SSE клиент {} не успевает читать уведомления, отключаем", username);
+                unsubscribe(this);
+                emitter.complete();
+                return;
+            }
+            queue.add(event);
+            if (scheduled.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                StreamEvent event;
+                while (!closed.get() && (event = queue.poll()) != null) {
+                    size.decrementAndGet();
+                    send(event);
+                }
+                if (expired) {
+                    emitter.complete();
+                }
+            } catch (IOException | IllegalStateException e) {
+                unsubscribe(this);
+                emitter.completeWithError(e);
+            } finally {
+                scheduled.set(false);
+                if (!queue.isEmpty() && !closed.get() && scheduled.compareAndSet(false, true)) {
+                    senders.execute(this::drain);
+                }
+            }
+        }
+
+        private void send(StreamEvent event) throws IOException {
+            synchronized (this) {
+                sendStartedNanos = System.nanoTime();
+            }
+            try {
+                if (event == StreamEvent.HEARTBEAT) {
+                    emitter.send(SseEmitter.event().comment("ping"));
+                } else {
+                    emitter.send(SseEmitter.event().id(event.id()).name("notification").data(event.data()));
+                }
+            } finally {
+                synchronized (this) {
+                    sendStartedNanos = 0;
+                    if (replaced) {
+                        replaced = false;
+                        removeSender();
+                    }
+                }
+            }
+        }
+
+        // true, если текущая запись идет дольше send-timeout-ms; вызывается один раз на подключение
+        synchronized boolean expire(long now) {
+            if (expired || sendStartedNanos == 0 || now - sendStartedNanos < TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs)) {
+                return false;
+            }
+            expired = true;
+            replaced = addSender();
+            return true;
+        }
+    }
+
+    // последние записи всех пользователей; для возобновления ищутся записи пользователя новее Last-Event-ID.
+    // записи одного пользователя лежат в одной партиции (ключ username), поэтому достаточно сравнить offset.
+    // доступ под блокировкой самого буфера
+    static final class ReplayBuffer {
+
+        private final StreamEvent[] events;
+        private long written;
+
+        ReplayBuffer(int size) {
+            this.events = new StreamEvent[Math.max(size, 1)];
+        }
+
+        void add(StreamEvent event) {
+            events[(int) (written % events.length)] = event;
+            written++;
+        }
+
+        List<StreamEvent> after(String username, String lastEventId) {
+            int dash = lastEventId.indexOf('-');
+            List<StreamEvent> result = new ArrayList<>();
+            if (dash < 0) {
+                return result;
+            }
+            int partition;
+            long offset;
+            try {
+                partition = Integer.parseInt(lastEventId.substring(0, dash));
+                offset = Long.parseLong(lastEventId.substring(dash + 1));
+            } catch (NumberFormatException e) {
+                return result;
+            }
+            long from = Math.max(0, written - events.length);
+            for (long i = from; i < written; i++) {
+                StreamEvent event = events[(int) (i % events.length)];
+                if (username.equals(event.username()) && (event.partition() != partition || event.offset() > offset)) {
+                    result.add(event);
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.server1.service;
+
+import com.example.server1.entity.OutboxMessage;
+import com.example.server1.messaging.MessageBus;
+import com.example.server1.repository.OutboxMessageRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// отправляет сообщения из outbox_messages в MessageBus (kafka или шина в памяти).
+// Пачка строк блокируется FOR UPDATE SKIP LOCKED, все сообщения пачки отправляются асинхронно,
+// после подтверждений строки удаляются в той же транзакции.
+// Неотправленные строки остаются до следующего прохода, поэтому доставка at-least-once.
+// При outbox.relay.ordered пачки отправляет один узел за раз (advisory блокировка транзакции), и сообщения
+// одного ключа уходят в порядке id; подтвержденное сообщение, ключ которого раньше в пачке не отправился,
+// тоже остается и уходит повторно после него. Так последняя запись по ключу в сжатом task-changelog совпадает с базой.
+// Без ordered узлы кластера разбирают разные пачки параллельно, порядок по ключу между узлами не гарантируется.
+// Если пачка не отправилась целиком, брокер считается недоступным: сообщения копятся в outbox_messages,
+// relay ждет outbox.relay.backoff (растет вдвое до outbox.relay.max-backoff) и пробует одно самое старое сообщение.
+// После его подтверждения отправка пачками возобновляется с начала очереди, в порядке id
+@Slf4j
+@Component
+public class OutboxRelay {
+
+    private final OutboxMessageRepository outboxMessageRepository;
+    private static final long RELAY_LOCK_KEY = 0x6f7574626f78L;
+
+    private final MessageBus messageBus;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${outbox.relay.batch-size:500}")
+    private int batchSize;
+
+    @Value("${outbox.relay.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    @Value("${outbox.relay.send-timeout:PT10S}")
+    private Duration sendTimeout;
+
+    @Value("${outbox.relay.ordered:true}")
+    private boolean ordered;
+
+    @Value("${outbox.relay.backoff:PT1S}")
+    private Duration initialBackoff;
+
+    @Value("${outbox.relay.max-backoff:PT1M}")
+    private Duration maxBackoff;
+
+    private final AtomicInteger brokerAvailable = new AtomicInteger(1);
+    private final AtomicLong oldestPendingAgeMs = new AtomicLong();
+    private volatile long backoffMs;
+    private volatile long retryAt;
+
+    public OutboxRelay(OutboxMessageRepository outboxMessageRepository,
+                       MessageBus messageBus,
+                       MeterRegistry meterRegistry,
+                       PlatformTransactionManager transactionManager) {
+        this.outboxMessageRepository = outboxMessageRepository;
+        this.messageBus = messageBus;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        Gauge.builder("outbox.broker.available", brokerAvailable, AtomicInteger::get)
+                .description("1 - брокер принимает сообщения outbox, 0 - relay ждет восстановления брокера")
+                .register(meterRegistry);
+        Gauge.builder("outbox.oldest.age", oldestPendingAgeMs, age -> age.get() / 1000.0)
+                .description("Возраст самого старого неотправленного сообщения outbox на последнем проходе, секунды")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:200}",
+            initialDelayString = "${outbox.relay.initial-delay-ms:5000}")
+    public void relay() {
+        if (System.currentTimeMillis() < retryAt) {
+            return;
+        }
+        try {
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                Integer locked = transactionTemplate.execute(status -> relayBatch());
+                if (locked == null || locked < batchSize || !isBrokerAvailable()) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Ошибка отправки outbox: {}", e.getMessage(), e);
+        }
+    }
+
+    // возвращает сколько строк было взято; удаляются только подтвержденные брокером.
+    // Пока брокер недоступен, берется одна строка, поэтому relay() дальше этой пробы не идет
+    int relayBatch() {
+        if (ordered && !outboxMessageRepository.tryRelayLock(RELAY_LOCK_KEY)) {
+            return 0;
+        }
+        List<OutboxMessage> messages = outboxMessageRepository.lockBatch(isBrokerAvailable() ? batchSize : 1);
+        if (messages.isEmpty()) {
+            oldestPendingAgeMs.set(0);
+            return 0;
+        }
+        oldestPendingAgeMs.set(Math.max(0, Duration.between(messages.get(0).getCreatedAt(), LocalDateTime.now()).toMillis()));
+        List<CompletableFuture<?>> sends = new ArrayList<>(messages.size());
+        for (OutboxMessage message : messages) {
+            try {
+                sends.add(messageBus.publish(message.getTopic(), message.getMessageKey(),
+                        message.getContentType(), message.getPayload()));
+            } catch (Exception e) {
+                // kafka бросает сразу, если за kafka.producer.max-block-ms нет метаданных топика: остальные ждали бы столько же
+                sends.add(CompletableFuture.failedFuture(e));
+                break;
+            }
+        }
+        long deadline = System.nanoTime() + sendTimeout.toNanos();
+        List<Long> sent = new ArrayList<>(messages.size());
+        Set<String> failedKeys = new HashSet<>();
+        int acked = 0;
+        int failed = 0;
+        for (int i = 0; i < sends.size(); i++) {
+            OutboxMessage message = messages.get(i);
+            String key = message.getMessageKey() == null ? null : message.getTopic() + '/' + message.getMessageKey();
+            try {
+                sends.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                acked++;
+                if (key == null || !failedKeys.contains(key)) {
+                    sent.add(message.getId());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                failed++;
+                if (ordered && key != null) {
+                    failedKeys.add(key);
+                }
+                log.warn("Сообщение outbox {} в {} не отправлено: {}", message.getId(), message.getTopic(), e.getMessage());
+            }
+        }
+        if (!sent.isEmpty()) {
+            outboxMessageRepository.deleteByIds(sent);
+        }
+        if (failed > 0) {
+            log.warn("Outbox: отправлено {}, не отправлено {}, повтор на следующем проходе", acked, failed);
+        }
+        if (acked == 0 && failed > 0) {
+            brokerUnavailable();
+        } else if (acked > 0) {
+            brokerAvailable();
+        }
+        return messages.size();
+    }
+
+    public boolean isBrokerAvailable() {
+        return brokerAvailable.get() == 1;
+    }
+
+    private void brokerUnavailable() {
+        backoffMs = isBrokerAvailable()
+                ? initialBackoff.toMillis()
+                : Math.min(backoffMs * 2, maxBackoff.toMillis());
+        retryAt = System.currentTimeMillis() + backoffMs;
+        if (brokerAvailable.getAndSet(0) == 1) {
+            log.warn("Брокер недоступен, сообщения копятся в outbox_messages, проверка раз в {}..{} мс",
+                    backoffMs, maxBackoff.toMillis());
+        }
+    }
+
+    private void brokerAvailable() {
+        retryAt = 0;
+        if (brokerAvailable.getAndSet(1) == 0) {
+            log.info("Брокер снова доступен, отправка outbox возобновлена");
+        }
+    }
+}
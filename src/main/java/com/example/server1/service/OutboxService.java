@@ -0,0 +1,56 @@
+package com.example.server1.service;
+
+import com.example.server1.entity.OutboxMessage;
+import com.example.server1.repository.OutboxMessageRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// запись сообщений в outbox; вызывается только внутри транзакции изменения,
+// поэтому при откате сообщение не уходит, а при коммите его гарантированно отправит OutboxRelay
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private static final String INSERT_MESSAGE =
+            "INSERT INTO outbox_messages (topic, message_key, content_type, payload, created_at) VALUES (?, ?, ?, ?, ?)";
+
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(String topic, String key, String contentType, byte[] payload) {
+        outboxMessageRepository.save(OutboxMessage.builder()
+                .topic(topic)
+                .messageKey(key)
+                .contentType(contentType)
+                .payload(payload)
+                .createdAt(LocalDateTime.now())
+                .build());
+    }
+
+    // несколько сообщений одного топика одним JDBC batch, в порядке итерации payloadByKey; null значение - tombstone
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueAll(String topic, String contentType, Map<String, byte[]> payloadByKey) {
+        if (payloadByKey.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Map.Entry<String, byte[]>> messages = new ArrayList<>(payloadByKey.entrySet());
+        jdbcTemplate.batchUpdate(INSERT_MESSAGE, messages, messages.size(), (ps, message) -> {
+            ps.setString(1, topic);
+            ps.setString(2, message.getKey());
+            ps.setString(3, contentType);
+            ps.setBytes(4, message.getValue());
+            ps.setTimestamp(5, now);
+        });
+    }
+}
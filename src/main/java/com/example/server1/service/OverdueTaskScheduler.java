@@ -0,0 +1,36 @@
+package com.example.server1.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OverdueTaskScheduler {
+
+    private final JobLockService jobLockService;
+    private final OverdueTaskService overdueTaskService;
+
+    @Value("${overdue.lock-ttl:PT5M}")
+    private Duration lockTtl;
+
+    @Scheduled(fixedDelayString = "${overdue.check.interval-ms:60000}",
+            initialDelayString = "${overdue.check.initial-delay-ms:30000}")
+    public void checkOverdueTasks() {
+        if (!jobLockService.tryLock(OverdueTaskService.JOB_NAME, lockTtl)) {
+            return;
+        }
+        try {
+            overdueTaskService.processNewlyOverdue();
+        } catch (Exception e) {
+            log.error("Ошибка проверки просроченных задач: {}", e.getMessage(), e);
+        } finally {
+            jobLockService.unlock(OverdueTaskService.JOB_NAME);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.server1.service;
+
+import com.example.server1.controller.NotificationProduser;
+import com.example.server1.entity.JobState;
+import com.example.server1.entity.NotificationEvent;
+import com.example.server1.entity.OverdueTask;
+import com.example.server1.entity.Status;
+import com.example.server1.repository.JobStateRepository;
+import com.example.server1.repository.TaskRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OverdueTaskService {
+
+    public static final String JOB_NAME = "overdue-tasks";
+
+    private final TaskRepository taskRepository;
+    private final JobStateRepository jobStateRepository;
+    private final NotificationProduser notificationProduser;
+
+    @Value("${overdue.batch-size:500}")
+    private int batchSize;
+
+    @Value("${overdue.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    // при первом запуске не шлем уведомления про задачи, просроченные давным-давно
+    @Value("${overdue.initial-lookback:P1D}")
+    private Duration initialLookback;
+
+    // находит задачи, просроченные с прошлого запуска, и шлет одно уведомление на пользователя;
+    // водяная метка двигается в той же транзакции, поэтому задача попадает в уведомление один раз
+    @Transactional
+    public int processNewlyOverdue() {
+        LocalDateTime now = LocalDateTime.now();
+        JobState state = jobStateRepository.findById(JOB_NAME)
+                .orElseGet(() -> JobState.builder().name(JOB_NAME).build());
+        LocalDateTime watermark = state.getWatermark() != null ? state.getWatermark() : now.minus(initialLookback);
+        Long watermarkId = state.getWatermarkId() != null ? state.getWatermarkId() : 0L;
+
+        Map<String, List<String>> titlesByUser = new LinkedHashMap<>();
+        int found = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            List<OverdueTask> overdue = taskRepository.findNewlyOverdue(
+                    watermark, watermarkId, now, Status.ЗАВЕРШЕНА, PageRequest.of(0, batchSize));
+            for (OverdueTask task : overdue) {
+                titlesByUser.computeIfAbsent(task.getUsername(), k -> new ArrayList<>()).add(task.getTitle());
+            }
+            found += overdue.size();
+            if (!overdue.isEmpty()) {
+                OverdueTask last = overdue.get(overdue.size() - 1);
+                watermark = last.getDeadline();
+                watermarkId = last.getId();
+            }
+            if (overdue.size() < batchSize) {
+                // догнали текущее время, дальше метку можно ставить на now
+                watermark = now;
+                watermarkId = Long.MAX_VALUE;
+                break;
+            }
+        }
+
+        titlesByUser.forEach((username, titles) ->
+                notificationProduser.send(NotificationEvent.tasksOverdue(username, titles.size(), titles)));
+
+        state.setWatermark(watermark);
+        state.setWatermarkId(watermarkId);
+        jobStateRepository.save(state);
+
+        if (found > 0) {
+            log.info("просроченных задач: {}, пользователей: {}", found, titlesByUser.size());
+        }
+        return found;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.server1.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// чистит processed_messages от ключей старше kafka.dedupe.retention, порциями, чтобы не держать длинную транзакцию
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProcessedMessagePruneScheduler {
+
+    public static final String JOB_NAME = "processed-messages-prune";
+
+    private final JobLockService jobLockService;
+    private final MessageDeduplicator messageDeduplicator;
+
+    @Value("${kafka.dedupe.retention:P7D}")
+    private Duration retention;
+
+    @Value("${kafka.dedupe.prune-batch-size:5000}")
+    private int batchSize;
+
+    @Value("${kafka.dedupe.lock-ttl:PT10M}")
+    private Duration lockTtl;
+
+    @Scheduled(fixedDelayString = "${kafka.dedupe.prune-interval-ms:3600000}",
+            initialDelayString = "${kafka.dedupe.prune-initial-delay-ms:120000}")
+    public void prune() {
+        if (!jobLockService.tryLock(JOB_NAME, lockTtl)) {
+            return;
+        }
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+            int total = 0;
+            int deleted;
+            do {
+                deleted = messageDeduplicator.pruneOlderThan(cutoff, batchSize);
+                total += deleted;
+            } while (deleted == batchSize);
+            if (total > 0) {
+                log.info("Удалено ключей обработанных сообщений: {}", total);
+            }
+        } catch (Exception e) {
+            log.error("Ошибка очистки processed_messages: {}", e.getMessage(), e);
+        } finally {
+            jobLockService.unlock(JOB_NAME);
+        }
+    }
+}
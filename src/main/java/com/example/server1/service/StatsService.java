@@ -0,0 +1,76 @@
+package com.example.server1.service;
+
+import com.example.server1.entity.Importance;
+import com.example.server1.entity.ImportanceCount;
+import com.example.server1.entity.Status;
+import com.example.server1.entity.StatusCount;
+import com.example.server1.entity.TaskStats;
+import com.example.server1.repository.TaskRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StatsService {
+
+    private final TaskRepository taskRepository;
+
+    // 0 отключает кэш, иначе столько миллисекунд отдаем уже посчитанную статистику
+    @Value("${stats.cache.ttl-ms:5000}")
+    private long cacheTtlMs;
+
+    private volatile TaskStats cached;
+    private volatile long cachedAt;
+
+    public TaskStats getStats() {
+        TaskStats stats = cached;
+        if (stats != null && cacheTtlMs > 0 && System.currentTimeMillis() - cachedAt < cacheTtlMs) {
+            return stats;
+        }
+        synchronized (this) {
+            if (cached != null && cacheTtlMs > 0 && System.currentTimeMillis() - cachedAt < cacheTtlMs) {
+                return cached;
+            }
+            stats = computeStats();
+            cached = stats;
+            cachedAt = System.currentTimeMillis();
+            return stats;
+        }
+    }
+
+    public TaskStats computeStats() {
+        LocalDateTime now = LocalDateTime.now();
+
+        Map<Status, Long> byStatus = new EnumMap<>(Status.class);
+        for (Status status : Status.values()) {
+            byStatus.put(status, 0L);
+        }
+        for (StatusCount count : taskRepository.countByStatus()) {
+            byStatus.put(count.getStatus(), count.getCount());
+        }
+
+        Map<Importance, Long> byImportance = new EnumMap<>(Importance.class);
+        for (Importance importance : Importance.values()) {
+            byImportance.put(importance, 0L);
+        }
+        for (ImportanceCount count : taskRepository.countByImportance()) {
+            byImportance.put(count.getImportance(), count.getCount());
+        }
+
+        log.info("stats recomputed");
+        return TaskStats.builder()
+                .byStatus(byStatus)
+                .byImportance(byImportance)
+                .byUser(taskRepository.countByUser(now, Status.ЗАВЕРШЕНА))
+                .overdue(taskRepository.countOverdue(now, Status.ЗАВЕРШЕНА))
+                .generatedAt(now)
+                .build();
+    }
+}
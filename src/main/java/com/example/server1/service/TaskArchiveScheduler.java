@@ -0,0 +1,51 @@
+package com.example.server1.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TaskArchiveScheduler {
+
+    public static final String JOB_NAME = "archive-tasks";
+
+    private final JobLockService jobLockService;
+    private final ArchiveService archiveService;
+
+    @Value("${archive.max-batches-per-run:50}")
+    private int maxBatchesPerRun;
+
+    @Value("${archive.lock-ttl:PT10M}")
+    private Duration lockTtl;
+
+    @Scheduled(fixedDelayString = "${archive.interval-ms:600000}",
+            initialDelayString = "${archive.initial-delay-ms:60000}")
+    public void archiveCompletedTasks() {
+        if (!jobLockService.tryLock(JOB_NAME, lockTtl)) {
+            return;
+        }
+        int total = 0;
+        try {
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                int moved = archiveService.archiveBatch();
+                total += moved;
+                if (moved < archiveService.getBatchSize()) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Ошибка архивации задач: {}", e.getMessage(), e);
+        } finally {
+            jobLockService.unlock(JOB_NAME);
+        }
+        if (total > 0) {
+            log.info("архивация завершена, задач: {}", total);
+        }
+    }
+}
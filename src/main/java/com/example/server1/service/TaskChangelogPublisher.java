@@ -0,0 +1,97 @@
+package com.example.server1.service;
+
+import com.example.server1.avro.AvroCodec;
+import com.example.server1.config.KafkaTopics;
+import com.example.server1.entity.Task;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// пишет текущее состояние задачи в task-changelog через outbox, в транзакции изменения: топик совпадает с базой.
+// ключ - id задачи, значение - JSON задачи, при удалении или переносе в архив - tombstone.
+// перед записью в outbox изменения задач сбрасываются в базу: строка задачи блокируется раньше,
+// чем выдается id строки outbox, поэтому для одной задачи порядок id в outbox = порядок коммитов
+@Service
+@RequiredArgsConstructor
+public class TaskChangelogPublisher {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final OutboxService outboxService;
+    private final EntityManager entityManager;
+
+    @Value("${kafka.task-changelog.enabled:true}")
+    private boolean enabled;
+
+    public void changed(Task task) {
+        changed(List.of(task));
+    }
+
+    public void changed(Collection<Task> tasks) {
+        if (!enabled || tasks.isEmpty()) {
+            return;
+        }
+        entityManager.flush();
+        long changedAt = System.currentTimeMillis();
+        Map<String, byte[]> payloads = new LinkedHashMap<>();
+        for (Task task : tasks) {
+            payloads.put(String.valueOf(task.getId()), toJson(task, changedAt));
+        }
+        outboxService.enqueueAll(KafkaTopics.TASK_CHANGELOG, AvroCodec.JSON, payloads);
+    }
+
+    public void deleted(Collection<Long> taskIds) {
+        if (!enabled || taskIds.isEmpty()) {
+            return;
+        }
+        entityManager.flush();
+        Map<String, byte[]> tombstones = new LinkedHashMap<>();
+        for (Long id : taskIds) {
+            tombstones.put(String.valueOf(id), null);
+        }
+        outboxService.enqueueAll(KafkaTopics.TASK_CHANGELOG, null, tombstones);
+    }
+
+    static byte[] toJson(Task task, long changedAt) {
+        ByteArrayBuilder buffer = new ByteArrayBuilder(256);
+        try (JsonGenerator generator = JSON.createGenerator(buffer)) {
+            generator.writeStartObject();
+            generator.writeNumberField("id", task.getId());
+            generator.writeStringField("title", task.getTitle());
+            if (task.getDescription() != null) {
+                generator.writeStringField("description", task.getDescription());
+            }
+            if (task.getStatus() != null) {
+                generator.writeStringField("status", task.getStatus().name());
+            }
+            if (task.getImportance() != null) {
+                generator.writeStringField("importance", task.getImportance().name());
+            }
+            if (task.getDeadline() != null) {
+                generator.writeStringField("deadline", task.getDeadline().toString());
+            }
+            if (task.getCompletedAt() != null) {
+                generator.writeStringField("completedAt", task.getCompletedAt().toString());
+            }
+            if (task.getAssignee() != null) {
+                generator.writeStringField("assignee", task.getAssignee().getUsername());
+            }
+            generator.writeNumberField("changedAt", changedAt);
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.server1.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// пересчет счетчиков задач при старте; на кластере его выполняет один узел, остальные пропускают
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TaskCounterRebuildJob {
+
+    public static final String JOB_NAME = "rebuild-task-counters";
+
+    private final JobLockService jobLockService;
+    private final TaskCounterService taskCounterService;
+
+    @Value("${counters.rebuild-on-startup:false}")
+    private boolean rebuildOnStartup;
+
+    @Value("${counters.rebuild-lock-ttl:PT10M}")
+    private Duration lockTtl;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (!jobLockService.tryLock(JOB_NAME, lockTtl)) {
+            return;
+        }
+        try {
+            taskCounterService.rebuild(rebuildOnStartup);
+        } catch (Exception e) {
+            log.error("Ошибка пересчета счетчиков задач: {}", e.getMessage(), e);
+        } finally {
+            jobLockService.unlock(JOB_NAME);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.server1.service;
+
+import com.example.server1.entity.Status;
+import com.example.server1.entity.User;
+import com.example.server1.entity.UserTaskCounter;
+import com.example.server1.entity.UserTaskSummary;
+import com.example.server1.repository.UserTaskCounterRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+// счетчики задач по пользователям и статусам,
+// обновляются в той же транзакции, что и сами задачи
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TaskCounterService {
+
+    private final UserTaskCounterRepository counterRepository;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void taskAdded(Long userId, Status status) {
+        add(userId, status, 1);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void taskRemoved(Long userId, Status status) {
+        add(userId, status, -1);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void add(Long userId, Status status, long delta) {
+        if (userId == null || status == null || delta == 0) {
+            return;
+        }
+        counterRepository.add(userId, status.getCode(), delta);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void statusChanged(Long userId, Status from, Status to) {
+        if (from == to) {
+            return;
+        }
+        add(userId, from, -1);
+        add(userId, to, 1);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void userDeleted(Long userId) {
+        counterRepository.deleteByUserId(userId);
+    }
+
+    @Transactional(readOnly = true)
+    public UserTaskSummary getSummary(User user) {
+        Map<Status, Long> byStatus = new EnumMap<>(Status.class);
+        for (Status status : Status.values()) {
+            byStatus.put(status, 0L);
+        }
+        long total = 0;
+        for (UserTaskCounter counter : counterRepository.findByUserId(user.getId())) {
+            byStatus.put(Status.fromCode(counter.getStatusCode()), counter.getTaskCount());
+            total += counter.getTaskCount();
+        }
+        return new UserTaskSummary(user.getUsername(), byStatus, total);
+    }
+
+    // пересчет из tasks под блокировкой таблицы счетчиков: параллельные изменения задач не теряются и не учитываются дважды.
+    // без force пересчитывается только пустая таблица (например, сразу после появления)
+    @Transactional
+    public boolean rebuild(boolean force) {
+        counterRepository.lockForRebuild();
+        if (!force && counterRepository.count() > 0) {
+            return false;
+        }
+        counterRepository.deleteAllCounters();
+        int rows = counterRepository.rebuildFromTasks();
+        log.info("счетчики задач пересчитаны, строк: {}", rows);
+        return true;
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.server1.service;
+
+import com.example.server1.config.TaskLane;
+import com.example.server1.messaging.InMemoryMessageBus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// приоритет полос заданий: listener читает все три топика, но пока у более важной полосы есть отставание
+// больше kafka.lanes.lag-threshold, партиции менее важных полос стоят на паузе и poll отдает только важные записи.
+// Чтобы полоса не голодала, пауза длится не дольше kafka.lanes.max-pause, после нее полоса работает
+// kafka.lanes.min-run и только потом может снова встать. Паузы партиций не мешают ConsumerBackpressureService:
+// он останавливает контейнер целиком, пауза партиций сохраняется и после его resume
+@Slf4j
+@Service
+@Profile("!" + InMemoryMessageBus.PROFILE)
+public class TaskLaneScheduler {
+
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+
+    @Value("${kafka.lanes.enabled:true}")
+    private boolean enabled;
+
+    @Value("${kafka.lanes.lag-threshold:0}")
+    private long lagThreshold;
+
+    @Value("${kafka.lanes.max-pause:PT5S}")
+    private Duration maxPause;
+
+    @Value("${kafka.lanes.min-run:PT1S}")
+    private Duration minRun;
+
+    private final Map<TaskLane, LaneState> lanes = new EnumMap<>(TaskLane.class);
+
+    public TaskLaneScheduler(KafkaListenerEndpointRegistry listenerRegistry, MeterRegistry meterRegistry) {
+        this.listenerRegistry = listenerRegistry;
+        for (TaskLane lane : TaskLane.values()) {
+            lanes.put(lane, new LaneState(meterRegistry, lane));
+        }
+    }
+
+    // от создания записи отправителем до начала обработки
+    public void recordLatency(ConsumerRecord<?, ?> record) {
+        TaskLane lane = TaskLane.forTopic(record.topic());
+        if (lane != null && record.timestamp() > 0) {
+            lanes.get(lane).latency.record(Math.max(0, System.currentTimeMillis() - record.timestamp()), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${kafka.lanes.check-interval-ms:500}")
+    public void schedule() {
+        schedule(System.currentTimeMillis());
+    }
+
+    void schedule(long now) {
+        updateLag();
+        if (!enabled) {
+            return;
+        }
+        boolean higherBusy = false;
+        for (TaskLane lane : TaskLane.values()) {
+            LaneState state = lanes.get(lane);
+            apply(lane, state, higherBusy, now);
+            higherBusy = higherBusy || state.lag.get() > lagThreshold;
+        }
+    }
+
+    public boolean isPaused(TaskLane lane) {
+        return lanes.get(lane).pausedSince != 0;
+    }
+
+    private void apply(TaskLane lane, LaneState state, boolean higherBusy, long now) {
+        if (!higherBusy || now < state.runUntil) {
+            if (state.pausedSince != 0) {
+                resume(lane);
+                state.pausedSince = 0;
+            }
+            return;
+        }
+        if (state.pausedSince == 0) {
+            state.pausedSince = now;
+            state.pauses.increment();
+            log.debug("Полоса {} на паузе: более важные задания отстают", lane);
+        } else if (now - state.pausedSince >= maxPause.toMillis()) {
+            // защита от голодания: полоса получает свое время, даже если важные задания еще идут
+            resume(lane);
+            state.pausedSince = 0;
+            state.runUntil = now + minRun.toMillis();
+            return;
+        }
+        // повторяется на каждой проверке: после rebalance новые партиции полосы тоже встают на паузу
+        pause(lane);
+    }
+
+    private void pause(TaskLane lane) {
+        for (MessageListenerContainer container : listenerRegistry.getAllListenerContainers()) {
+            for (TopicPartition partition : assigned(container)) {
+                if (partition.topic().equals(lane.getTopic()) && !container.isPartitionPauseRequested(partition)) {
+                    container.pausePartition(partition);
+                }
+            }
+        }
+    }
+
+    private void resume(TaskLane lane) {
+        for (MessageListenerContainer container : listenerRegistry.getAllListenerContainers()) {
+            for (TopicPartition partition : assigned(container)) {
+                if (partition.topic().equals(lane.getTopic()) && container.isPartitionPauseRequested(partition)) {
+                    container.resumePartition(partition);
+                }
+            }
+        }
+    }
+
+    private Collection<TopicPartition> assigned(MessageListenerContainer container) {
+        Collection<TopicPartition> partitions = container.getAssignedPartitions();
+        return partitions != null ? partitions : List.of();
+    }
+
+    // отставание полосы: сумма records-lag по партициям ее топика у всех consumer'ов узла
+    private void updateLag() {
+        Map<TaskLane, Long> lag = new EnumMap<>(TaskLane.class);
+        for (MessageListenerContainer container : listenerRegistry.getAllListenerContainers()) {
+            for (Map<MetricName, ? extends Metric> metrics : container.metrics().values()) {
+                for (Map.Entry<MetricName, ? extends Metric> metric : metrics.entrySet()) {
+                    if (!"records-lag".equals(metric.getKey().name())) {
+                        continue;
+                    }
+                    TaskLane lane = TaskLane.forTopic(metric.getKey().tags().get("topic"));
+                    if (lane != null && metric.getValue().metricValue() instanceof Double value && !value.isNaN()) {
+                        lag.merge(lane, value.longValue(), Long::sum);
+                    }
+                }
+            }
+        }
+        lanes.forEach((lane, state) -> state.lag.set(lag.getOrDefault(lane, 0L)));
+    }
+
+    private final class LaneState {
+
+        private final AtomicLong lag = new AtomicLong();
+        private final Timer latency;
+        private final Counter pauses;
+        private volatile long pausedSince;
+        private long runUntil;
+
+        private LaneState(MeterRegistry meterRegistry, TaskLane lane) {
+            String name = lane.name().toLowerCase();
+            Gauge.builder("kafka.lane.lag", lag, AtomicLong::get)
+                    .description("Отставание consumer'ов узла по топику полосы, записей")
+                    .tag("lane", name)
+                    .register(meterRegistry);
+            Gauge.builder("kafka.lane.paused", this, state -> state.pausedSince != 0 ? 1 : 0)
+                    .description("1 - партиции полосы на паузе ради более важных заданий")
+                    .tag("lane", name)
+                    .register(meterRegistry);
+            latency = Timer.builder("kafka.lane.latency")
+                    .description("От создания записи до начала обработки задания")
+                    .tag("lane", name)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            pauses = Counter.builder("kafka.lane.pauses")
+                    .tag("lane", name)
+                    .register(meterRegistry);
+        }
+    }
+}
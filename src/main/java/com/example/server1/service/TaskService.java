@@ -2,6 +2,7 @@ package com.example.server1.service;
 
 import com.example.server1.controller.NotificationProduser;
 import com.example.server1.entity.Comment;
+import com.example.server1.entity.NotificationEvent;
 import com.example.server1.entity.Status;
 import com.example.server1.entity.Task;
 import com.example.server1.exeptions.NotFoundExeption;
@@ -15,6 +16,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -26,57 +28,75 @@ public class TaskService {
     private final TaskRepository taskRepository;
     private final CommentRepositopy commentRepositopy;
     private final NotificationProduser notificationProduser;
+    private final TaskCounterService taskCounterService;
+    private final TaskChangelogPublisher taskChangelogPublisher;
 
     public Optional<Task> findById(Long id) {
         return taskRepository.findById(id);
     }
 
+    @Transactional
     public String markTaskAsInWork(Long id) {
-        Task task = taskRepository.findById(id).orElseThrow(() -> new NotFoundExeption("задача не найдена"));
+        Task task = taskRepository.findByIdForUpdate(id).orElseThrow(() -> new NotFoundExeption("задача не найдена"));
         if (task.getStatus() == Status.НЕ_НАЧАТА) {
             task.setStatus(Status.В_РАБОТЕ);
             taskRepository.save(task);
+            taskCounterService.statusChanged(assigneeId(task), Status.НЕ_НАЧАТА, Status.В_РАБОТЕ);
+            taskChangelogPublisher.changed(task);
             return "Статус изменен";
         }
         return "Так нельзя";
     }
 
+    @Transactional
     public String markTaskAsCompleted(Long id) {
-        Task task = taskRepository.findById(id).orElseThrow(() -> new NotFoundExeption("задача не найдена"));
+        Task task = taskRepository.findByIdForUpdate(id).orElseThrow(() -> new NotFoundExeption("задача не найдена"));
         if (task.getStatus() == Status.В_РАБОТЕ || task.getStatus() == Status.НА_ДОРАБОТКЕ) {
+            taskCounterService.statusChanged(assigneeId(task), task.getStatus(), Status.ЗАВЕРШЕНА);
             task.setStatus(Status.ЗАВЕРШЕНА);
-            notificationProduser.sendNotificationForAdmin("пользователь " + task.getAssignee().getUsername() + " завершил задачу " + task.getTitle());
+            task.setCompletedAt(LocalDateTime.now());
+            notificationProduser.send(NotificationEvent.taskCompleted(task.getAssignee().getUsername(), task));
             taskRepository.save(task);
+            taskChangelogPublisher.changed(task);
             return "Статус изменен";
         }
         return "Так нельзя";
     }
 
+    @Transactional
     public String markTaskAsOnRework(Long id, Comment comment) {
-        Task task = taskRepository.findById(id).orElseThrow(() -> new NotFoundExeption("задача не найдена"));
+        Task task = taskRepository.findByIdForUpdate(id).orElseThrow(() -> new NotFoundExeption("задача не найдена"));
         if (task.getStatus() == Status.ЗАВЕРШЕНА) {
             List<Comment> comments = task.getComments() != null ? task.getComments() : new ArrayList<>();
             comments.add(comment);
             task.setComments(comments);
             task.setStatus(Status.НА_ДОРАБОТКЕ);
+            task.setCompletedAt(null);
             taskRepository.save(task);
+            taskCounterService.statusChanged(assigneeId(task), Status.ЗАВЕРШЕНА, Status.НА_ДОРАБОТКЕ);
             comment.setTask(task);
             commentRepositopy.save(comment);
+            taskChangelogPublisher.changed(task);
 
-            notificationProduser.sendNotificationForUser("задачу " + task.getTitle() + " отправили на доработку", task.getAssignee().getUsername());
+            notificationProduser.send(NotificationEvent.taskRework(task.getAssignee().getUsername(), task));
             return "Статус изменен";
         }
         return "Так нельзя";
     }
 
+    @Transactional
     public String updateTask(Task task) {
-        Task existingTask = taskRepository.findTaskByTitle(task.getTitle())
+        Task existingTask = taskRepository.findTaskByTitleForUpdate(task.getTitle())
                 .orElseThrow(() -> new NotFoundExeption("Задача не найдена"));
 
         if (task.getDescription() != null) {
             existingTask.setDescription(task.getDescription());
         }
         if (task.getStatus() != null) {
+            taskCounterService.statusChanged(assigneeId(existingTask), existingTask.getStatus(), task.getStatus());
+            if (task.getStatus() != existingTask.getStatus()) {
+                existingTask.setCompletedAt(task.getStatus() == Status.ЗАВЕРШЕНА ? LocalDateTime.now() : null);
+            }
             existingTask.setStatus(task.getStatus());
         }
         if (task.getImportance() != null) {
@@ -87,8 +107,13 @@ public class TaskService {
         }
 
         taskRepository.save(existingTask);
-        notificationProduser.sendNotificationForUser("задача " + task.getTitle() + " изменена", existingTask.getAssignee().getUsername());
+        taskChangelogPublisher.changed(existingTask);
+        notificationProduser.send(NotificationEvent.taskUpdated(existingTask.getAssignee().getUsername(), existingTask));
 
         return "Задача обновлена";
     }
+
+    private Long assigneeId(Task task) {
+        return task.getAssignee() != null ? task.getAssignee().getId() : null;
+    }
 }
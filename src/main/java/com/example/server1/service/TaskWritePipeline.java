@@ -0,0 +1,266 @@
+package com.example.server1.service;
+
+import com.example.server1.entity.TaskAssignment;
+import com.example.server1.entity.TaskBatchResult;
+import com.example.server1.exeptions.NotFoundExeption;
+import com.example.server1.messaging.InMemoryMessageBus;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// конвейерный режим task-assignments: поток kafka только разбирает сообщение и кладет его в очередь,
+// запись в базу делают отдельные потоки. Очередей (полос) несколько, полоса выбирается по username,
+// поэтому задачи одного пользователя пишутся по порядку одним потоком. Поток полосы забирает
+// до micro-batch-size записей и сохраняет их одной транзакцией через UserService.addTasksBatch;
+// offset подтверждается только после commit'а (или отправки в dlt), так что при падении неподтвержденные сообщения придут снова.
+// временные ошибки (база недоступна, блокировка, таймаут) не отправляют в dlt: пачка повторяется с растущей задержкой,
+// очередь заполняется и партиции встают на паузу. Пачка делится на записи только при ошибке в самих данных
+@Slf4j
+@Service
+@Profile("!" + InMemoryMessageBus.PROFILE)
+public class TaskWritePipeline implements SmartLifecycle {
+
+    private final UserService userService;
+    private final DeadLetterPublishingRecoverer deadLetterPublishingRecoverer;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${kafka.task-assignments.pipeline.enabled:false}")
+    private boolean enabled;
+
+    @Value("${kafka.task-assignments.pipeline.lanes:4}")
+    private int laneCount;
+
+    @Value("${kafka.task-assignments.pipeline.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${kafka.task-assignments.pipeline.micro-batch-size:200}")
+    private int microBatchSize;
+
+    @Value("${kafka.task-assignments.pipeline.publish-timeout-ms:1000}")
+    private long publishTimeoutMs;
+
+    @Value("${kafka.task-assignments.pipeline.retry-delay-ms:1000}")
+    private long retryDelayMs;
+
+    @Value("${kafka.task-assignments.pipeline.retry-max-delay-ms:30000}")
+    private long retryMaxDelayMs;
+
+    private List<BlockingQueue<Entry>> lanes;
+    private List<Thread> writers;
+    private Timer latency;
+    private volatile boolean running;
+
+    public TaskWritePipeline(UserService userService,
+                             DeadLetterPublishingRecoverer deadLetterPublishingRecoverer,
+                             MeterRegistry meterRegistry) {
+        this.userService = userService;
+        this.deadLetterPublishingRecoverer = deadLetterPublishingRecoverer;
+        this.meterRegistry = meterRegistry;
+    }
+
+    // ждет места в очереди полосы не дольше publish-timeout-ms, гораздо меньше max.poll.interval.ms;
+    // false - очередь полна, сообщение не принято
+    public boolean publish(ConsumerRecord<?, ?> record, TaskAssignment assignment, Acknowledgment ack)
+            throws InterruptedException {
+        if (!running) {
+            throw new IllegalStateException("Конвейер записи задач остановлен");
+        }
+        int lane = Math.floorMod(String.valueOf(assignment.getAssignedUser()).hashCode(), lanes.size());
+        return lanes.get(lane).offer(new Entry(record, assignment, ack), publishTimeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void start() {
+        lanes = new ArrayList<>(laneCount);
+        writers = new ArrayList<>(laneCount);
+        latency = Timer.builder("task.pipeline.latency")
+                .description("От записи сообщения в kafka до commit'а задачи в базе")
+                .register(meterRegistry);
+        running = true;
+        for (int i = 0; i < laneCount; i++) {
+            BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(queueCapacity);
+            lanes.add(queue);
+            Gauge.builder("task.pipeline.queue.depth", queue, BlockingQueue::size)
+                    .tag("lane", String.valueOf(i))
+                    .description("Сообщения, ждущие записи в базу")
+                    .register(meterRegistry);
+            Thread writer = new Thread(() -> drain(queue), "task-writer-" + i);
+            writer.start();
+            writers.add(writer);
+        }
+        log.info("Конвейер записи задач запущен: полос {}, очередь {}, пачка до {}", laneCount, queueCapacity, microBatchSize);
+    }
+
+    // остановка после kafka контейнеров: новых сообщений нет, потоки дописывают то, что уже в очередях
+    @Override
+    public void stop() {
+        running = false;
+        for (Thread writer : writers) {
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        log.info("Конвейер записи задач остановлен");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return enabled;
+    }
+
+    // меньше фазы kafka контейнеров: стартует раньше, останавливается позже них
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    private void drain(BlockingQueue<Entry> queue) {
+        List<Entry> batch = new ArrayList<>(microBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, microBatchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // поток полосы не должен умирать: неподтвержденные записи придут снова после перезапуска
+                log.error("Ошибка потока записи задач, {} задач остаются неподтвержденными", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // пока узел работает, пачка повторяется до успеха; после stop() - одна попытка, и неподтвержденные
+    // записи придут снова после перезапуска. offset'ы подтверждаются после того, как каждая запись
+    // сохранена или лежит в dlt
+    private void write(List<Entry> batch) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                writeOrSplit(batch);
+                break;
+            } catch (RuntimeException e) {
+                if (!running) {
+                    log.warn("Пачка из {} задач не записана при остановке, offset'ы не подтверждены: {}",
+                            batch.size(), e.getMessage());
+                    return;
+                }
+                long delay = Math.min(retryMaxDelayMs, retryDelayMs * attempt);
+                log.warn("Ошибка записи {} задач, попытка {}, повтор через {} мс: {}",
+                        batch.size(), attempt, delay, e.getMessage());
+                Thread.sleep(delay);
+            }
+        }
+        long now = System.currentTimeMillis();
+        for (Entry entry : batch) {
+            entry.ack().acknowledge();
+            latency.record(Math.max(0, now - entry.record().timestamp()), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // ошибка в данных одной из записей: пачка пишется по одной записи, в dlt уходят только те, что не записались сами.
+    // временная ошибка выбрасывается наружу, и пачка повторяется целиком, уже записанные задачи отсечет MessageDeduplicator
+    private void writeOrSplit(List<Entry> batch) {
+        try {
+            writeEntries(batch);
+        } catch (RuntimeException e) {
+            if (isTransient(e)) {
+                throw e;
+            }
+            if (batch.size() == 1) {
+                deadLetter(batch.get(0), e);
+                return;
+            }
+            log.warn("Пачка из {} задач не записана, пишем по одной: {}", batch.size(), e.getMessage());
+            for (Entry entry : batch) {
+                try {
+                    writeEntries(List.of(entry));
+                } catch (RuntimeException entryError) {
+                    if (isTransient(entryError)) {
+                        throw entryError;
+                    }
+                    deadLetter(entry, entryError);
+                }
+            }
+        }
+    }
+
+    // задания несуществующим пользователям повторять бесполезно, они сразу уходят в dlt,
+    // как NotFoundExeption в поштучном режиме
+    private void writeEntries(List<Entry> entries) {
+        List<TaskAssignment> assignments = new ArrayList<>(entries.size());
+        entries.forEach(entry -> assignments.add(entry.assignment()));
+        TaskBatchResult result = userService.addTasksBatch(assignments);
+        Set<TaskAssignment> rejected = Collections.newSetFromMap(new IdentityHashMap<>());
+        rejected.addAll(result.getRejected());
+        for (Entry entry : entries) {
+            if (rejected.contains(entry.assignment())) {
+                deadLetter(entry, new NotFoundExeption("пользователь не найден: " + entry.assignment().getAssignedUser()));
+            }
+        }
+    }
+
+    // пройдет сама: нет соединения, таймаут, блокировка, сбой транзакции или отправки в dlt.
+    // остальное - ошибка в данных записи (нарушение ограничения, слишком длинное значение)
+    static boolean isTransient(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TransientDataAccessException
+                    || cause instanceof RecoverableDataAccessException
+                    || cause instanceof DataAccessResourceFailureException
+                    || cause instanceof TransactionException
+                    || cause instanceof SQLTransientException
+                    || cause instanceof SQLRecoverableException
+                    || cause instanceof KafkaException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void deadLetter(Entry entry, RuntimeException e) {
+        log.error("Задача из {}-{}@{} не записана, отправляем в dlt: {}",
+                entry.record().topic(), entry.record().partition(), entry.record().offset(), e.getMessage());
+        deadLetterPublishingRecoverer.accept(entry.record(), e);
+    }
+
+    private record Entry(ConsumerRecord<?, ?> record, TaskAssignment assignment, Acknowledgment ack) {
+    }
+}
@@ -1,12 +1,18 @@
 package com.example.server1.service;
 
 import com.example.server1.controller.NotificationProduser;
+import com.example.server1.entity.NotificationEvent;
+import com.example.server1.entity.OwnedTask;
 import com.example.server1.entity.Role;
 import com.example.server1.entity.Status;
 import com.example.server1.entity.Task;
+import com.example.server1.entity.TaskAssignment;
+import com.example.server1.entity.TaskBatchResult;
+import com.example.server1.entity.TaskDeletion;
 import com.example.server1.entity.User;
 import com.example.server1.exeptions.NotFoundExeption;
 import com.example.server1.repository.CommentRepositopy;
+import com.example.server1.repository.TaskJdbcRepository;
 import com.example.server1.repository.TaskRepository;
 import com.example.server1.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
@@ -22,8 +28,15 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 
@@ -37,6 +50,11 @@ public class UserService {
     private final TaskRepository taskRepository;
     private final NotificationProduser notificationProduser;
     private final CommentRepositopy commentRepositopy;
+    private final TaskCounterService taskCounterService;
+    private final TaskJdbcRepository taskJdbcRepository;
+    private final TaskChangelogPublisher taskChangelogPublisher;
+    private final MessageDeduplicator messageDeduplicator;
+    private final NotificationCoalescer notificationCoalescer;
 
     public User create(String username, String password) {
         User user = User.builder()
@@ -64,6 +82,7 @@ public class UserService {
                 .orElseThrow(() -> new RuntimeException("при попытке входа что-то пошло не так"));
     }
 
+    @Transactional
     public User addTasks(String username, Task task) {
         User user = userRepository.findByUsername(username).orElseThrow(() -> new NotFoundExeption("пользователь не найден"));
 
@@ -71,10 +90,12 @@ public class UserService {
             task.setStatus(Status.НЕ_НАЧАТА);
             task.setAssignee(user);
             taskRepository.save(task);
+            taskCounterService.taskAdded(user.getId(), Status.НЕ_НАЧАТА);
             List<Task> tasks = user.getTasks() != null ? user.getTasks() : new ArrayList<>();
             tasks.add(task);
             user.setTasks(tasks);
-            notificationProduser.sendNotificationForUser("появилось новое задание", username);
+            taskChangelogPublisher.changed(task);
+            notificationCoalescer.tasksAssigned(username, Collections.singletonList(task.getId()));
         }
         else{
             throw new NotFoundExeption("пустой список задач");
@@ -84,6 +105,76 @@ public class UserService {
     }
 
 
+    // пакетная версия addTasks: пользователи одним IN запросом, задачи одним JDBC batch,
+    // одна транзакция на всю пачку; уведомления о новых заданиях склеивает NotificationCoalescer.
+    // задания несуществующим пользователям возвращаются в rejected, их ключи не помечаются обработанными,
+    // чтобы сообщение можно было переотправить из dlt после создания пользователя
+    @Transactional
+    public TaskBatchResult addTasksBatch(List<TaskAssignment> assignments) {
+        Set<String> usernames = new HashSet<>();
+        for (TaskAssignment assignment : assignments) {
+            usernames.add(assignment.getAssignedUser());
+        }
+        Map<String, User> users = userRepository.findAllByUsernameIn(usernames).stream()
+                .collect(Collectors.toMap(User::getUsername, Function.identity()));
+
+        List<TaskAssignment> known = new ArrayList<>(assignments.size());
+        List<TaskAssignment> rejected = new ArrayList<>();
+        for (TaskAssignment assignment : assignments) {
+            if (users.containsKey(assignment.getAssignedUser()) && assignment.getTask() != null) {
+                known.add(assignment);
+            } else {
+                log.warn("задача для пользователя {} не сохранена: пользователь не найден", assignment.getAssignedUser());
+                rejected.add(assignment);
+            }
+        }
+
+        List<TaskAssignment> accepted = skipProcessed(known, TaskAssignment::getMessageKey);
+        List<Task> tasks = new ArrayList<>(accepted.size());
+        // по username: сводки уведомлений блокируют строку пользователя, одинаковый порядок исключает deadlock
+        Map<String, List<Task>> tasksByUser = new TreeMap<>();
+        for (TaskAssignment assignment : accepted) {
+            User user = users.get(assignment.getAssignedUser());
+            Task task = assignment.getTask();
+            task.setStatus(Status.НЕ_НАЧАТА);
+            task.setAssignee(user);
+            tasks.add(task);
+            tasksByUser.computeIfAbsent(user.getUsername(), u -> new ArrayList<>()).add(task);
+        }
+
+        taskJdbcRepository.batchInsert(tasks);
+        taskChangelogPublisher.changed(tasks);
+        tasksByUser.forEach((username, userTasks) -> {
+            taskCounterService.add(users.get(username).getId(), Status.НЕ_НАЧАТА, userTasks.size());
+            notificationCoalescer.tasksAssigned(username, userTasks.stream().map(Task::getId).toList());
+        });
+        return new TaskBatchResult(accepted, rejected);
+    }
+
+    // отбрасывает уже обработанные сообщения и дубликаты внутри пачки; ключи пишутся в этой же транзакции
+    private <T> List<T> skipProcessed(List<T> items, Function<T, String> messageKey) {
+        List<String> keys = new ArrayList<>(items.size());
+        for (T item : items) {
+            if (messageKey.apply(item) != null) {
+                keys.add(messageKey.apply(item));
+            }
+        }
+        if (keys.isEmpty()) {
+            return items;
+        }
+        Set<String> fresh = messageDeduplicator.markProcessed(keys);
+        List<T> result = new ArrayList<>(items.size());
+        for (T item : items) {
+            String key = messageKey.apply(item);
+            if (key == null || fresh.remove(key)) {
+                result.add(item);
+            } else {
+                log.info("Сообщение {} уже обработано, пропускаем", key);
+            }
+        }
+        return result;
+    }
+
     public User findByUsername(String username) {
         Optional<User> user = userRepository.findByUsername(username);
         return user.orElseThrow(
@@ -116,7 +207,9 @@ public class UserService {
     @Transactional
     public void deleteUserByUsername(String username){
         User user = userRepository.getUserByUsername(username);
+        taskChangelogPublisher.deleted(taskRepository.findIdsByUserId(user.getId()));
         taskRepository.deleteByUserId(user.getId());
+        taskCounterService.userDeleted(user.getId());
         userRepository.deleteByUsername(username);
     }
 
@@ -125,15 +218,88 @@ public class UserService {
         log.info("Delete task");
         log.info("username : " + username);
         User user = userRepository.getUserByUsername(username);
+        if (user == null) {
+            throw new NotFoundExeption("такого пользователя нет");
+        }
         log.info("username : " + user.getUsername());
-        Task task = user.getTasks().stream().filter(t -> t.getId().equals(id)).findFirst().orElse(null);
+        Task task = user.getTasks().stream().filter(t -> t.getId().equals(id)).findFirst()
+                .orElseThrow(() -> new NotFoundExeption("задача не найдена"));
         List<Task> new_tasks = user.getTasks().stream().filter(t -> !t.getId().equals(id)).collect(Collectors.toList());
         user.setTasks(new_tasks);
         userRepository.save(user);
         commentRepositopy.deleteAllByTask(task);
         taskRepository.deleteTaskById(id);
+        taskCounterService.taskRemoved(user.getId(), task.getStatus());
+        taskChangelogPublisher.deleted(List.of(id));
         log.info("Task deleted");
-        notificationProduser.sendNotificationForUser("задание " + task.getTitle() + " удалено", username);
+        notificationProduser.send(NotificationEvent.tasksDeleted(username, 1, List.of(id), List.of(task.getTitle())));
+    }
+
+    // пакетная версия deleteTask: владельцы проверяются одним запросом, комментарии и задачи
+    // удаляются DELETE ... WHERE id IN (...), уведомление одно на пользователя через outbox.
+    // возвращает удаления, которые не выполнены: задачи нет или она принадлежит другому пользователю.
+    // владельцы проверяются до отметки ключей, и обработанными помечаются только принятые удаления:
+    // отклоненное можно переотправить из dlt, как в поштучном режиме, где его ключ откатывается с транзакцией
+    @Transactional
+    public List<TaskDeletion> deleteTasksBatch(List<TaskDeletion> deletions) {
+        Set<Long> requestedIds = new HashSet<>();
+        for (TaskDeletion deletion : deletions) {
+            requestedIds.add(deletion.getTaskId());
+        }
+        Map<Long, OwnedTask> owned = requestedIds.isEmpty() ? Map.of() : taskRepository.findOwnedByIds(requestedIds)
+                .stream()
+                .collect(Collectors.toMap(OwnedTask::getId, Function.identity()));
+
+        List<TaskDeletion> accepted = new ArrayList<>();
+        List<TaskDeletion> notOwned = new ArrayList<>();
+        for (TaskDeletion deletion : deletions) {
+            OwnedTask task = owned.get(deletion.getTaskId());
+            if (task == null || !task.getUsername().equals(deletion.getUsername())) {
+                notOwned.add(deletion);
+            } else {
+                accepted.add(deletion);
+            }
+        }
+        Map<Long, OwnedTask> toDelete = new LinkedHashMap<>();
+        for (TaskDeletion deletion : skipProcessed(accepted, TaskDeletion::getMessageKey)) {
+            toDelete.put(deletion.getTaskId(), owned.get(deletion.getTaskId()));
+        }
+
+        // повторная доставка уже выполненного удаления: задачи нет, но это не ошибка
+        Set<String> processed = messageDeduplicator.findProcessed(notOwned.stream()
+                .map(TaskDeletion::getMessageKey)
+                .filter(Objects::nonNull)
+                .toList());
+        List<TaskDeletion> rejected = new ArrayList<>();
+        for (TaskDeletion deletion : notOwned) {
+            if (deletion.getMessageKey() != null && processed.contains(deletion.getMessageKey())) {
+                log.info("Сообщение {} уже обработано, пропускаем", deletion.getMessageKey());
+            } else if (!toDelete.containsKey(deletion.getTaskId())) {
+                rejected.add(deletion);
+            }
+        }
+        if (toDelete.isEmpty()) {
+            return rejected;
+        }
+
+        commentRepositopy.deleteByTaskIds(toDelete.keySet());
+        taskRepository.deleteByIds(toDelete.keySet());
+        taskChangelogPublisher.deleted(toDelete.keySet());
+
+        Map<Long, Map<Status, Integer>> removedByUser = new LinkedHashMap<>();
+        Map<String, List<OwnedTask>> tasksByUser = new LinkedHashMap<>();
+        for (OwnedTask task : toDelete.values()) {
+            removedByUser.computeIfAbsent(task.getUserId(), id -> new LinkedHashMap<>())
+                    .merge(task.getStatus(), 1, Integer::sum);
+            tasksByUser.computeIfAbsent(task.getUsername(), u -> new ArrayList<>()).add(task);
+        }
+        removedByUser.forEach((userId, byStatus) ->
+                byStatus.forEach((status, count) -> taskCounterService.add(userId, status, -count)));
+
+        tasksByUser.forEach((username, tasks) -> notificationProduser.send(NotificationEvent.tasksDeleted(username,
+                tasks.size(), tasks.stream().map(OwnedTask::getId).toList(), tasks.stream().map(OwnedTask::getTitle).toList())));
+        log.info("Пакетное удаление: удалено задач {}, отклонено {}", toDelete.size(), rejected.size());
+        return rejected;
     }
 
     @Transactional
@@ -145,4 +311,4 @@ public class UserService {
     public List<String> findAllUsername(){
         return userRepository.findAllByRole(Role.USER).stream().map(user -> user.getUsername()).toList();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,38 @@
+-- перевод status/importance из varchar с названиями enum в smallint коды (Status.code, Importance.code).
+-- выполняется раньше остальных скриптов: их частичные индексы уже написаны под коды.
+-- если колонка уже smallint (новая база), ничего не делает
+CREATE OR REPLACE FUNCTION pg_temp.enum_to_smallint(tbl text, col text, names text[]) RETURNS void AS $$
+DECLARE
+    expr text := 'CASE ' || quote_ident(col);
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM information_schema.columns
+                   WHERE table_name = tbl AND column_name = col AND data_type = 'character varying') THEN
+        RETURN;
+    END IF;
+    FOR i IN 1 .. array_length(names, 1) LOOP
+        expr := expr || format(' WHEN %L THEN %s', names[i], i - 1);
+    END LOOP;
+    expr := expr || ' END';
+    EXECUTE format('ALTER TABLE %I DROP CONSTRAINT IF EXISTS %I', tbl, tbl || '_' || col || '_check');
+    EXECUTE format('ALTER TABLE %I ALTER COLUMN %I TYPE smallint USING %s', tbl, col, expr);
+    RAISE NOTICE '%.% переведена в smallint', tbl, col;
+END
+$$ LANGUAGE plpgsql;
+
+-- индексы с предикатом по строковому статусу пересоздадут 001 и 002
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_name = 'tasks' AND column_name = 'status' AND data_type = 'character varying') THEN
+        DROP INDEX IF EXISTS idx_tasks_open_deadline;
+        DROP INDEX IF EXISTS idx_tasks_completed_at;
+    END IF;
+END
+$$;
+
+-- порядок названий = код
+SELECT pg_temp.enum_to_smallint('tasks', 'status', ARRAY['НЕ_НАЧАТА', 'В_РАБОТЕ', 'ЗАВЕРШЕНА', 'НА_ДОРАБОТКЕ']);
+SELECT pg_temp.enum_to_smallint('tasks', 'importance', ARRAY['СРОЧНАЯ', 'НАДО_ПОТОРОПИТЬСЯ', 'МОЖЕТ_ПОДОЖДАТЬ']);
+SELECT pg_temp.enum_to_smallint('tasks_archive', 'status', ARRAY['НЕ_НАЧАТА', 'В_РАБОТЕ', 'ЗАВЕРШЕНА', 'НА_ДОРАБОТКЕ']);
+SELECT pg_temp.enum_to_smallint('tasks_archive', 'importance', ARRAY['СРОЧНАЯ', 'НАДО_ПОТОРОПИТЬСЯ', 'МОЖЕТ_ПОДОЖДАТЬ']);
+SELECT pg_temp.enum_to_smallint('user_task_counters', 'status', ARRAY['НЕ_НАЧАТА', 'В_РАБОТЕ', 'ЗАВЕРШЕНА', 'НА_ДОРАБОТКЕ']);
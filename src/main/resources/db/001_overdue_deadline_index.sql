@@ -0,0 +1,5 @@
+-- незавершенные задачи по сроку: по этому индексу планировщик просрочек
+-- делает range scan от водяной метки, завершенные задачи в индекс не попадают
+CREATE INDEX IF NOT EXISTS idx_tasks_open_deadline
+    ON tasks (deadline, id)
+    WHERE status <> 2; -- Status.ЗАВЕРШЕНА
@@ -0,0 +1,9 @@
+-- задачи, завершенные до появления completed_at, считаем завершенными сейчас:
+-- они уйдут в архив через archive.completed-age после первого старта
+UPDATE tasks SET completed_at = now()
+WHERE status = 2 AND completed_at IS NULL; -- Status.ЗАВЕРШЕНА
+
+-- только завершенные задачи, по нему архиватор выбирает кандидатов
+CREATE INDEX IF NOT EXISTS idx_tasks_completed_at
+    ON tasks (completed_at, id)
+    WHERE status = 2; -- Status.ЗАВЕРШЕНА
@@ -0,0 +1,9 @@
+-- непрочитанные уведомления пользователя: счетчик непрочитанных считается только по ним
+CREATE INDEX IF NOT EXISTS idx_notifications_inbox_unread
+    ON notifications_inbox (username)
+    WHERE read_at IS NULL;
+
+-- прочитанные уведомления по времени прочтения, по нему чистка выбирает старые
+CREATE INDEX IF NOT EXISTS idx_notifications_inbox_read_at
+    ON notifications_inbox (read_at)
+    WHERE read_at IS NOT NULL;
@@ -1,43 +1,49 @@
 package com.example.server1.integrativetest;
 
+import com.example.server1.config.KafkaTopics;
 import com.example.server1.controller.NotificationProduser;
-import com.example.server1.controller.TaskConsumer;
+import com.example.server1.entity.Comment;
 import com.example.server1.entity.Importance;
-import com.example.server1.entity.Role;
+import com.example.server1.entity.NotificationDigest;
+import com.example.server1.entity.NotificationEvent;
+import com.example.server1.entity.OutboxMessage;
 import com.example.server1.entity.Status;
 import com.example.server1.entity.Task;
-import com.example.server1.entity.User;
+import com.example.server1.repository.NotificationDigestRepository;
+import com.example.server1.repository.OutboxMessageRepository;
 import com.example.server1.service.TaskService;
 import com.example.server1.service.UserService;
-import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.data.domain.Sort;
 import org.springframework.kafka.test.context.EmbeddedKafka;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
-@SpringBootTest
-@EmbeddedKafka(partitions = 1, topics = {"user-notifications", "admin-notifications"})
+// уведомления пишутся в outbox в транзакции сервиса, а тест откатывает свою транзакцию, поэтому
+// OutboxRelay их не видит и в брокер они не уходят. проверяется содержимое outbox_messages и notification_digests
+// внутри транзакции теста; отправку из outbox в брокер проверяют тесты OutboxRelay
+@SpringBootTest(properties = {
+        "kafka.notifications.format=event",
+        "kafka.notifications.legacy-user-topics.dual-write=false"
+})
+@EmbeddedKafka(partitions = 1)
 @ActiveProfiles("test")
 @Transactional
 class KafkaIntegrationTest {
 
-    @Autowired
-    private NotificationProduser notificationProducer;
+    private static final String USERNAME = "kafkatestuser";
 
     @Autowired
-    private TaskConsumer taskConsumer;
+    private NotificationProduser notificationProducer;
 
     @Autowired
     private UserService userService;
@@ -45,94 +51,93 @@ class KafkaIntegrationTest {
     @Autowired
     private TaskService taskService;
 
-    private User testUser;
+    @Autowired
+    private OutboxMessageRepository outboxMessageRepository;
+
+    @Autowired
+    private NotificationDigestRepository notificationDigestRepository;
+
     private Task testTask;
-    private List<String> receivedMessages = new ArrayList<>();
-    private CountDownLatch messageLatch = new CountDownLatch(1);
 
     @BeforeEach
     void setUp() {
-        receivedMessages.clear();
-        messageLatch = new CountDownLatch(1);
-
-        // Создание тестового пользователя
-        testUser = userService.create("kafkatestuser", "password");
+        userService.create(USERNAME, "password");
 
-        // Создание тестовой задачи
         testTask = Task.builder()
                 .title("Kafka Test Task")
                 .description("Test Description")
-                .status(Status.НЕ_НАЧАТА)
                 .importance(Importance.СРОЧНАЯ)
                 .deadline(LocalDateTime.now().plusDays(1))
-                .assignee(testUser)
                 .build();
+        userService.addTasks(USERNAME, testTask);
     }
 
     @Test
-    void notificationProducer_ShouldSendUserNotification() throws InterruptedException {
+    void notificationProducer_ShouldEnqueueUserNotification() {
         // Given
         String message = "Test notification for user";
-        String username = "kafkatestuser";
 
         // When
-        notificationProducer.sendNotificationForUser(message, username);
+        notificationProducer.send(NotificationEvent.taskUpdated(USERNAME, Task.builder().title(message).build()));
 
         // Then
-        assertThat(messageLatch.await(5, TimeUnit.SECONDS)).isTrue();
-        assertThat(receivedMessages).isNotEmpty();
-        assertThat(receivedMessages.get(0)).contains(message);
+        List<OutboxMessage> messages = outbox(KafkaTopics.NOTIFICATIONS_FOR_USER);
+        assertThat(messages).hasSize(1);
+        assertThat(messages.get(0).getMessageKey()).isEqualTo(USERNAME);
+        assertThat(payload(messages.get(0))).contains("\"type\":\"TASK_UPDATED\"").contains(message);
     }
 
     @Test
-    void notificationProducer_ShouldSendAdminNotification() throws InterruptedException {
+    void notificationProducer_ShouldEnqueueAdminNotification() {
         // Given
         String message = "Test notification for admin";
 
         // When
-        notificationProducer.sendNotificationForAdmin(message);
+        notificationProducer.send(NotificationEvent.taskCompleted(USERNAME, Task.builder().title(message).build()));
 
         // Then
-        assertThat(messageLatch.await(5, TimeUnit.SECONDS)).isTrue();
-        assertThat(receivedMessages).isNotEmpty();
-        assertThat(receivedMessages.get(0)).contains(message);
+        List<OutboxMessage> messages = outbox(KafkaTopics.NOTIFICATIONS_FOR_ADMIN);
+        assertThat(messages).hasSize(1);
+        assertThat(messages.get(0).getMessageKey()).isNull();
+        assertThat(payload(messages.get(0))).contains("\"type\":\"TASK_COMPLETED\"").contains(message);
+        assertThat(outbox(KafkaTopics.NOTIFICATIONS_FOR_USER)).isEmpty();
     }
 
     @Test
-    void taskService_ShouldSendNotificationWhenTaskCompleted() throws InterruptedException {
+    void taskService_ShouldEnqueueNotificationWhenTaskCompleted() {
         // Given
-        testTask.setStatus(Status.В_РАБОТЕ);
-        testTask = taskService.findById(testTask.getId()).orElse(null);
+        taskService.markTaskAsInWork(testTask.getId());
 
         // When
         taskService.markTaskAsCompleted(testTask.getId());
 
         // Then
-        assertThat(messageLatch.await(5, TimeUnit.SECONDS)).isTrue();
-        assertThat(receivedMessages).isNotEmpty();
-        assertThat(receivedMessages.get(0)).contains("завершил задачу");
-        assertThat(receivedMessages.get(0)).contains("Kafka Test Task");
+        List<OutboxMessage> messages = outbox(KafkaTopics.NOTIFICATIONS_FOR_ADMIN);
+        assertThat(messages).hasSize(1);
+        assertThat(payload(messages.get(0)))
+                .contains("\"type\":\"TASK_COMPLETED\"")
+                .contains("\"actor\":\"" + USERNAME + "\"")
+                .contains("Kafka Test Task");
     }
 
     @Test
-    void taskService_ShouldSendNotificationWhenTaskSentForRework() throws InterruptedException {
+    void taskService_ShouldEnqueueNotificationWhenTaskSentForRework() {
         // Given
-        testTask.setStatus(Status.ЗАВЕРШЕНА);
-        testTask = taskService.findById(testTask.getId()).orElse(null);
+        taskService.markTaskAsInWork(testTask.getId());
+        taskService.markTaskAsCompleted(testTask.getId());
 
         // When
-        taskService.markTaskAsOnRework(testTask.getId(), 
-            new com.example.server1.entity.Comment(null, "Need rework", testTask));
+        taskService.markTaskAsOnRework(testTask.getId(), new Comment(null, "Need rework", null));
 
         // Then
-        assertThat(messageLatch.await(5, TimeUnit.SECONDS)).isTrue();
-        assertThat(receivedMessages).isNotEmpty();
-        assertThat(receivedMessages.get(0)).contains("отправили на доработку");
-        assertThat(receivedMessages.get(0)).contains("Kafka Test Task");
+        List<OutboxMessage> messages = outbox(KafkaTopics.NOTIFICATIONS_FOR_USER);
+        assertThat(messages).hasSize(1);
+        assertThat(messages.get(0).getMessageKey()).isEqualTo(USERNAME);
+        assertThat(payload(messages.get(0))).contains("\"type\":\"TASK_REWORK\"").contains("Kafka Test Task");
     }
 
     @Test
-    void taskService_ShouldSendNotificationWhenTaskUpdated() throws InterruptedException {
+    void taskService_ShouldEnqueueNotificationWhenTaskUpdated() {
         // Given
         Task updatedTask = Task.builder()
                 .title("Kafka Test Task")
@@ -145,86 +150,51 @@ class KafkaIntegrationTest {
         taskService.updateTask(updatedTask);
 
         // Then
-        assertThat(messageLatch.await(5, TimeUnit.SECONDS)).isTrue();
-        assertThat(receivedMessages).isNotEmpty();
-        assertThat(receivedMessages.get(0)).contains("изменена");
-        assertThat(receivedMessages.get(0)).contains("Kafka Test Task");
+        List<OutboxMessage> messages = outbox(KafkaTopics.NOTIFICATIONS_FOR_USER);
+        assertThat(messages).hasSize(1);
+        assertThat(payload(messages.get(0))).contains("\"type\":\"TASK_UPDATED\"").contains("Kafka Test Task");
+        assertThat(outbox(KafkaTopics.TASK_CHANGELOG))
+                .anyMatch(m -> payload(m).contains("Updated Description"));
     }
 
     @Test
-    void userService_ShouldSendNotificationWhenTaskAdded() throws InterruptedException {
+    void userService_ShouldAddTaskToDigestInsteadOfOutbox() {
         // Given
         Task newTask = Task.builder()
                 .title("New Kafka Task")
                 .description("New Description")
-                .status(Status.НЕ_НАЧАТА)
                 .importance(Importance.СРОЧНАЯ)
                 .deadline(LocalDateTime.now().plusDays(1))
                 .build();
 
         // When
-        userService.addTasks("kafkatestuser", newTask);
+        userService.addTasks(USERNAME, newTask);
 
-        // Then
-        assertThat(messageLatch.await(5, TimeUnit.SECONDS)).isTrue();
-        assertThat(receivedMessages).isNotEmpty();
-        assertThat(receivedMessages.get(0)).contains("новое задание");
+        // Then: уведомление копит NotificationCoalescer, в outbox оно попадет при сбросе сводки
+        NotificationDigest digest = notificationDigestRepository.findById(USERNAME).orElseThrow();
+        assertThat(digest.getTaskCount()).isEqualTo(2);
+        assertThat(digest.getTaskIds()).isEqualTo(testTask.getId() + "," + newTask.getId());
+        assertThat(outbox(KafkaTopics.NOTIFICATIONS_FOR_USER)).isEmpty();
     }
 
     @Test
-    void kafkaConsumer_ShouldReceiveAndProcessMessages() throws InterruptedException {
-        // Given
-        String testMessage = "Test message for consumer";
-
+    void notificationProducer_ShouldEnqueueMultipleMessagesInOrder() {
         // When
-        notificationProducer.sendNotificationForUser(testMessage, "kafkatestuser");
-
-        // Then
-        assertThat(messageLatch.await(5, TimeUnit.SECONDS)).isTrue();
-        assertThat(receivedMessages).isNotEmpty();
-        assertThat(receivedMessages.get(0)).isEqualTo(testMessage);
-    }
-
-    @Test
-    void kafkaIntegration_ShouldHandleMultipleMessages() throws InterruptedException {
-        // Given
-        messageLatch = new CountDownLatch(3);
-        String message1 = "Message 1";
-        String message2 = "Message 2";
-        String message3 = "Message 3";
-
-        // When
-        notificationProducer.sendNotificationForUser(message1, "kafkatestuser");
-        notificationProducer.sendNotificationForUser(message2, "kafkatestuser");
-        notificationProducer.sendNotificationForUser(message3, "kafkatestuser");
-
-        // Then
-        assertThat(messageLatch.await(10, TimeUnit.SECONDS)).isTrue();
-        assertThat(receivedMessages).hasSize(3);
-        assertThat(receivedMessages).containsExactlyInAnyOrder(message1, message2, message3);
-    }
-
-    @Test
-    void kafkaIntegration_ShouldHandleConcurrentMessages() throws InterruptedException {
-        // Given
-        messageLatch = new CountDownLatch(5);
-        int numberOfThreads = 5;
-
-        // When
-        for (int i = 0; i < numberOfThreads; i++) {
-            final int messageId = i;
-            new Thread(() -> {
-                notificationProducer.sendNotificationForUser("Concurrent message " + messageId, "kafkatestuser");
-            }).start();
-        }
+        notificationProducer.send(NotificationEvent.taskUpdated(USERNAME, Task.builder().title("Message 1").build()));
+        notificationProducer.send(NotificationEvent.taskUpdated(USERNAME, Task.builder().title("Message 2").build()));
+        notificationProducer.send(NotificationEvent.taskUpdated(USERNAME, Task.builder().title("Message 3").build()));
 
         // Then
-        assertThat(messageLatch.await(10, TimeUnit.SECONDS)).isTrue();
-        assertThat(receivedMessages).hasSize(5);
+        assertThat(outbox(KafkaTopics.NOTIFICATIONS_FOR_USER))
+                .extracting(KafkaIntegrationTest::payload)
+                .satisfiesExactly(
+                        m -> assertThat(m).contains("Message 1"),
+                        m -> assertThat(m).contains("Message 2"),
+                        m -> assertThat(m).contains("Message 3"));
     }
 
     @Test
-    void kafkaIntegration_ShouldHandleLargeMessages() throws InterruptedException {
+    void notificationProducer_ShouldEnqueueLargeMessage() {
         // Given
         StringBuilder largeMessageBuilder = new StringBuilder();
         for (int i = 0; i < 1000; i++) {
@@ -233,44 +203,38 @@ class KafkaIntegrationTest {
         String largeMessage = largeMessageBuilder.toString();
 
         // When
-        notificationProducer.sendNotificationForUser(largeMessage, "kafkatestuser");
+        notificationProducer.send(NotificationEvent.taskUpdated(USERNAME, Task.builder().title(largeMessage).build()));
 
         // Then
-        assertThat(messageLatch.await(10, TimeUnit.SECONDS)).isTrue();
-        assertThat(receivedMessages).isNotEmpty();
-        assertThat(receivedMessages.get(0)).contains("Large message content");
+        List<OutboxMessage> messages = outbox(KafkaTopics.NOTIFICATIONS_FOR_USER);
+        assertThat(messages).hasSize(1);
+        assertThat(payload(messages.get(0))).contains(largeMessage);
     }
 
     @Test
-    void kafkaIntegration_ShouldHandleSpecialCharacters() throws InterruptedException {
+    void notificationProducer_ShouldKeepSpecialCharactersInPayload() {
         // Given
-        String specialMessage = "Message with special chars: !@#$%^&*()_+-=[]{}|;':\",./<>?";
+        String specialMessage = "Message with special chars: !@#$%^&*()_+-=[]{}|;':,./<>?";
         String unicodeMessage = "Message with unicode: Привет мир! 🌍";
 
         // When
-        notificationProducer.sendNotificationForUser(specialMessage, "kafkatestuser");
-        messageLatch.await(5, TimeUnit.SECONDS);
-        
-        messageLatch = new CountDownLatch(1);
-        notificationProducer.sendNotificationForUser(unicodeMessage, "kafkatestuser");
+        notificationProducer.send(NotificationEvent.taskUpdated(USERNAME, Task.builder().title(specialMessage).build()));
+        notificationProducer.send(NotificationEvent.taskUpdated(USERNAME, Task.builder().title(unicodeMessage).build()));
 
         // Then
-        assertThat(messageLatch.await(5, TimeUnit.SECONDS)).isTrue();
-        assertThat(receivedMessages).hasSize(2);
-        assertThat(receivedMessages.get(0)).isEqualTo(specialMessage);
-        assertThat(receivedMessages.get(1)).isEqualTo(unicodeMessage);
+        List<OutboxMessage> messages = outbox(KafkaTopics.NOTIFICATIONS_FOR_USER);
+        assertThat(messages).hasSize(2);
+        assertThat(payload(messages.get(0))).contains(specialMessage);
+        assertThat(payload(messages.get(1))).contains(unicodeMessage);
     }
 
-    // Kafka Consumer для тестирования
-    @KafkaListener(topics = "user-notifications")
-    public void listenToUserNotifications(ConsumerRecord<String, String> record) {
-        receivedMessages.add(record.value());
-        messageLatch.countDown();
+    private List<OutboxMessage> outbox(String topic) {
+        return outboxMessageRepository.findAll(Sort.by("id")).stream()
+                .filter(m -> topic.equals(m.getTopic()))
+                .toList();
     }
 
-    @KafkaListener(topics = "admin-notifications")
-    public void listenToAdminNotifications(ConsumerRecord<String, String> record) {
-        receivedMessages.add(record.value());
-        messageLatch.countDown();
+    private static String payload(OutboxMessage message) {
+        return new String(message.getPayload(), StandardCharsets.UTF_8);
     }
 }
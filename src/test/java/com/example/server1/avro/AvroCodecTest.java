@@ -0,0 +1,86 @@
+package com.example.server1.avro;
+
+import com.example.server1.controller.TaskPayloadDeserializer;
+import com.example.server1.entity.Importance;
+import com.example.server1.entity.Status;
+import com.example.server1.entity.TaskPayload;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AvroCodecTest {
+
+    private final AvroCodec avroCodec = new AvroCodec(new LocalSchemaRegistry());
+
+    @Test
+    void encode_ShouldRoundTripThroughTaskPayloadDeserializer() {
+        // Given
+        byte[] data = avroCodec.encode(LocalSchemaRegistry.TASK_ASSIGNMENT, assignment());
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(AvroCodec.CONTENT_TYPE_HEADER, AvroCodec.contentType(AvroCodec.AVRO));
+
+        // When
+        TaskPayload payload = new TaskPayloadDeserializer(avroCodec).deserialize("task-assignments", headers, data);
+
+        // Then
+        assertThat(payload.isMalformed()).isFalse();
+        assertThat(payload.getTitle()).isEqualTo("Test Task");
+        assertThat(payload.getAssignedUser()).isEqualTo("testuser");
+        assertThat(payload.getImportance()).isEqualTo(Importance.СРОЧНАЯ);
+        assertThat(payload.getStatus()).isEqualTo(Status.НЕ_НАЧАТА);
+        assertThat(payload.getDeadline()).isEqualTo(LocalDateTime.of(2030, 1, 1, 10, 0));
+    }
+
+    @Test
+    void encode_ShouldBeSmallerThanJson() {
+        // Given
+        String json = "{\"title\":\"Test Task\",\"description\":\"Test Description\",\"assignedUser\":\"testuser\"," +
+                "\"importance\":\"СРОЧНАЯ\",\"deadline\":\"2030-01-01T10:00:00\",\"status\":\"НЕ_НАЧАТА\"}";
+
+        // When
+        byte[] avro = avroCodec.encode(LocalSchemaRegistry.TASK_ASSIGNMENT, assignment());
+
+        // Then
+        assertThat(avro.length).isLessThan(json.getBytes(StandardCharsets.UTF_8).length / 2);
+    }
+
+    @Test
+    void isAvro_WithoutHeader_ShouldDetectByMagicByte() {
+        // Given
+        byte[] avro = avroCodec.encode(LocalSchemaRegistry.TASK_ASSIGNMENT, assignment());
+        byte[] json = "{\"title\":\"Test Task\"}".getBytes(StandardCharsets.UTF_8);
+
+        // When & Then
+        assertThat(AvroCodec.isAvro(new RecordHeaders(), avro)).isTrue();
+        assertThat(AvroCodec.isAvro(new RecordHeaders(), json)).isFalse();
+    }
+
+    @Test
+    void deserialize_WithCorruptedAvro_ShouldMarkMalformed() {
+        // Given
+        byte[] data = {0, 0, 0, 0, 99, 1, 2};
+
+        // When
+        TaskPayload payload = new TaskPayloadDeserializer(avroCodec).deserialize("task-assignments", new RecordHeaders(), data);
+
+        // Then
+        assertThat(payload.isMalformed()).isTrue();
+    }
+
+    private GenericRecord assignment() {
+        GenericRecord record = avroCodec.newRecord(LocalSchemaRegistry.TASK_ASSIGNMENT);
+        record.put("title", "Test Task");
+        record.put("description", "Test Description");
+        record.put("assignedUser", "testuser");
+        record.put("importance", (int) Importance.СРОЧНАЯ.getCode());
+        record.put("status", (int) Status.НЕ_НАЧАТА.getCode());
+        record.put("deadline", LocalDateTime.of(2030, 1, 1, 10, 0).toInstant(ZoneOffset.UTC).toEpochMilli());
+        return record;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.server1.avro;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaCompatibility;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// проверка схем при сборке: каждая версия subject'а должна читать данные всех прежних версий и наоборот
+// (FULL_TRANSITIVE), иначе producer'ы и consumer'ы нельзя обновлять в произвольном порядке
+class AvroSchemaCompatibilityTest {
+
+    private final LocalSchemaRegistry schemaRegistry = new LocalSchemaRegistry();
+
+    @Test
+    void allSchemaVersions_ShouldBeFullyTransitivelyCompatible() {
+        for (String subject : schemaRegistry.subjects()) {
+            List<Schema> versions = schemaRegistry.versions(subject);
+            for (int newer = 0; newer < versions.size(); newer++) {
+                for (int older = 0; older < newer; older++) {
+                    assertCompatible(subject, versions.get(newer), versions.get(older));
+                    assertCompatible(subject, versions.get(older), versions.get(newer));
+                }
+            }
+        }
+    }
+
+    @Test
+    void everySchemaFile_ShouldBeRegistered() throws Exception {
+        // Given
+        Properties registry = new Properties();
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(LocalSchemaRegistry.REGISTRY_FILE)) {
+            registry.load(in);
+        }
+        Set<String> registered = new HashSet<>();
+        registry.values().forEach(path -> registered.add("avro/" + ((String) path).trim() + ".avsc"));
+
+        // When
+        Resource[] files = new PathMatchingResourcePatternResolver().getResources("classpath:avro/*/*.avsc");
+
+        // Then
+        assertThat(files).isNotEmpty();
+        for (Resource file : files) {
+            String path = file.getURL().getPath();
+            String relative = path.substring(path.lastIndexOf("avro/"));
+            assertThat(registered).as("схема %s не зарегистрирована в %s", relative, LocalSchemaRegistry.REGISTRY_FILE)
+                    .contains(relative);
+        }
+    }
+
+    private static void assertCompatible(String subject, Schema reader, Schema writer) {
+        SchemaCompatibility.SchemaPairCompatibility result =
+                SchemaCompatibility.checkReaderWriterCompatibility(reader, writer);
+        assertThat(result.getType())
+                .as("%s: %s", subject, result.getDescription())
+                .isEqualTo(SchemaCompatibility.SchemaCompatibilityType.COMPATIBLE);
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.server1.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// отправка уведомлений (как из OutboxRelay) на встроенный брокер при разных batch.size, linger.ms и сжатии.
+// для каждой настройки печатает сообщений в секунду и байт на сообщение по сети (outgoing-byte-total)
+// запуск: mvn test -Pbenchmark -Dtest=NotificationProducerBenchmark
+@Slf4j
+@Tag("benchmark")
+@EmbeddedKafka(partitions = 3, topics = NotificationProducerBenchmark.TOPIC)
+class NotificationProducerBenchmark {
+
+    static final String TOPIC = "bench-notifications";
+
+    private static final int MESSAGES = 50_000;
+    private static final int USERS = 1_000;
+
+    private record Setting(int batchSize, int lingerMs, String compression) {
+    }
+
+    private static final List<Setting> SETTINGS = List.of(
+            new Setting(16384, 0, "none"),
+            new Setting(65536, 10, "none"),
+            new Setting(65536, 10, "gzip"),
+            new Setting(65536, 10, "snappy"),
+            new Setting(65536, 10, "lz4"),
+            new Setting(65536, 10, "zstd"));
+
+    @Test
+    void producerSettings_ShouldReportThroughputAndBytesPerRecord(EmbeddedKafkaBroker broker) throws Exception {
+        // прогрев брокера и jit
+        send(broker, SETTINGS.get(0));
+
+        double baselineBytes = 0;
+        double tunedBytes = 0;
+        for (Setting setting : SETTINGS) {
+            double[] result = send(broker, setting);
+            log.info("batch.size={} linger.ms={} compression={}: {} msg/s, {} байт/сообщение",
+                    setting.batchSize(), setting.lingerMs(), setting.compression(),
+                    Math.round(result[0]), String.format("%.1f", result[1]));
+            if (setting == SETTINGS.get(0)) {
+                baselineBytes = result[1];
+            }
+            if ("lz4".equals(setting.compression())) {
+                tunedBytes = result[1];
+            }
+        }
+        assertThat(tunedBytes).isLessThan(baselineBytes);
+    }
+
+    // [сообщений в секунду, байт на сообщение]
+    private double[] send(EmbeddedKafkaBroker broker, Setting setting) throws Exception {
+        Map<String, Object> props = KafkaTestUtils.producerProps(broker);
+        props.put(ProducerConfig.BATCH_SIZE_CONFIG, setting.batchSize());
+        props.put(ProducerConfig.LINGER_MS_CONFIG, setting.lingerMs());
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, setting.compression());
+        try (KafkaProducer<String, byte[]> producer =
+                     new KafkaProducer<>(props, new StringSerializer(), new ByteArraySerializer())) {
+            CompletableFuture<?>[] sends = new CompletableFuture[MESSAGES];
+            long start = System.nanoTime();
+            for (int i = 0; i < MESSAGES; i++) {
+                String username = "user" + (i % USERS);
+                byte[] message = ("появилось новых заданий: " + (i % 50 + 1) + " (задача " + i + ", срок 2030-01-01)")
+                        .getBytes(StandardCharsets.UTF_8);
+                CompletableFuture<Void> done = new CompletableFuture<>();
+                producer.send(new ProducerRecord<>(TOPIC, username, message), (metadata, ex) -> {
+                    if (ex == null) {
+                        done.complete(null);
+                    } else {
+                        done.completeExceptionally(ex);
+                    }
+                });
+                sends[i] = done;
+            }
+            CompletableFuture.allOf(sends).get(5, TimeUnit.MINUTES);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            double outgoingBytes = metric(producer, "outgoing-byte-total");
+            return new double[]{MESSAGES / seconds, outgoingBytes / MESSAGES};
+        }
+    }
+
+    private static double metric(KafkaProducer<?, ?> producer, String name) {
+        return producer.metrics().entrySet().stream()
+                .filter(e -> e.getKey().name().equals(name) && e.getKey().group().equals("producer-metrics"))
+                .map(Map.Entry::getValue)
+                .map(Metric::metricValue)
+                .mapToDouble(v -> ((Number) v).doubleValue())
+                .findFirst()
+                .orElse(0);
+    }
+}
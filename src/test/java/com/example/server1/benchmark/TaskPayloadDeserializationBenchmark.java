@@ -0,0 +1,175 @@
+package com.example.server1.benchmark;
+
+import com.example.server1.avro.AvroCodec;
+import com.example.server1.avro.LocalSchemaRegistry;
+import com.example.server1.controller.TaskDtoConverter;
+import com.example.server1.controller.TaskPayloadDeserializer;
+import com.example.server1.entity.Importance;
+import com.example.server1.entity.Status;
+import com.example.server1.entity.Task;
+import com.example.server1.entity.TaskDto;
+import com.example.server1.entity.TaskPayload;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// разбор сообщения task-assignments в Task: прежний путь (String -> ObjectMapper -> TaskDto,
+// Enum.valueOf(toUpperCase()), три DateTimeFormatter на сообщение и исключения при переборе форматов)
+// против TaskPayloadDeserializer на JSON и на avro. Один поток, результат - сообщений в секунду на ядро.
+// запуск: mvn test -Pbenchmark -Dtest=TaskPayloadDeserializationBenchmark
+@Slf4j
+@Tag("benchmark")
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(1)
+public class TaskPayloadDeserializationBenchmark {
+
+    // все три формата даты, в прежнем коде на последний приходилось два исключения
+    private static final String[] DEADLINES = {"2030-01-01T10:00:00", "2030-01-01 10:00:00", "01.01.2030 10:00"};
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final TaskDtoConverter taskDtoConverter = new TaskDtoConverter();
+    private final AvroCodec avroCodec = new AvroCodec(new LocalSchemaRegistry());
+    private final TaskPayloadDeserializer deserializer = new TaskPayloadDeserializer(avroCodec);
+    private final RecordHeaders jsonHeaders = headers(AvroCodec.JSON);
+    private final RecordHeaders avroHeaders = headers(AvroCodec.AVRO);
+
+    private byte[][] messages;
+    private byte[][] avroMessages;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        messages = new byte[DEADLINES.length][];
+        for (int i = 0; i < DEADLINES.length; i++) {
+            messages[i] = ("{\"title\":\"task " + i + "\",\"description\":\"bench\",\"assignedUser\":\"user" + i +
+                    "\",\"importance\":\"срочная\",\"deadline\":\"" + DEADLINES[i] + "\",\"status\":\"НЕ_НАЧАТА\"}")
+                    .getBytes(StandardCharsets.UTF_8);
+        }
+        avroMessages = new byte[DEADLINES.length][];
+        for (int i = 0; i < DEADLINES.length; i++) {
+            TaskPayload payload = deserializer.deserialize("task-assignments", jsonHeaders, messages[i]);
+            GenericRecord record = avroCodec.newRecord(LocalSchemaRegistry.TASK_ASSIGNMENT);
+            record.put("title", payload.getTitle());
+            record.put("description", payload.getDescription());
+            record.put("assignedUser", payload.getAssignedUser());
+            record.put("importance", (int) payload.getImportance().getCode());
+            record.put("status", (int) payload.getStatus().getCode());
+            record.put("deadline", payload.getDeadline().toInstant(ZoneOffset.UTC).toEpochMilli());
+            avroMessages[i] = avroCodec.encode(LocalSchemaRegistry.TASK_ASSIGNMENT, record);
+        }
+    }
+
+    @Benchmark
+    public Task legacyStringDto() throws Exception {
+        String json = new String(nextMessage(), StandardCharsets.UTF_8);
+        TaskDto dto = objectMapper.readValue(json, TaskDto.class);
+        Task task = new Task();
+        task.setTitle(dto.getTitle());
+        task.setDescription(dto.getDescription());
+        task.setImportance(Importance.valueOf(dto.getImportance().toUpperCase()));
+        task.setStatus(Status.valueOf(dto.getStatus().toUpperCase()));
+        task.setDeadline(legacyParseDateTime(dto.getDeadline()));
+        return task;
+    }
+
+    @Benchmark
+    public Task typedPayload() {
+        return taskDtoConverter.convertToEntity(deserializer.deserialize("task-assignments", jsonHeaders, nextMessage()));
+    }
+
+    @Benchmark
+    public Task avroPayload() {
+        byte[] message = avroMessages[next];
+        next = (next + 1) % avroMessages.length;
+        return taskDtoConverter.convertToEntity(deserializer.deserialize("task-assignments", avroHeaders, message));
+    }
+
+    @Test
+    void typedPayload_ShouldOutperformLegacyStringDto() throws Exception {
+        Collection<RunResult> results = new Runner(new OptionsBuilder()
+                .include(TaskPayloadDeserializationBenchmark.class.getName())
+                .build()).run();
+
+        double legacy = score(results, "legacyStringDto");
+        double typed = score(results, "typedPayload");
+        double avro = score(results, "avroPayload");
+        // замеры идут в отдельном процессе, сообщения для сравнения размеров готовятся здесь
+        setUp();
+        log.info("разбор task-assignments на ядро: TaskDto {} msg/s, TaskPayload {} msg/s, ускорение x{}",
+                Math.round(legacy), Math.round(typed), String.format("%.1f", typed / legacy));
+        log.info("avro: {} msg/s, размер сообщения {} байт против {} в JSON",
+                Math.round(avro), avroMessages[0].length, messages[0].length);
+        assertThat(typed).isGreaterThan(legacy);
+        assertThat(avroMessages[0].length).isLessThan(messages[0].length);
+    }
+
+    private static RecordHeaders headers(String contentType) {
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(AvroCodec.CONTENT_TYPE_HEADER, AvroCodec.contentType(contentType));
+        return headers;
+    }
+
+    private byte[] nextMessage() {
+        byte[] message = messages[next];
+        next = (next + 1) % messages.length;
+        return message;
+    }
+
+    private static double score(Collection<RunResult> results, String method) {
+        return results.stream()
+                .filter(result -> result.getParams().getBenchmark().endsWith("." + method))
+                .findFirst()
+                .orElseThrow()
+                .getPrimaryResult()
+                .getScore();
+    }
+
+    // копия прежнего TaskDtoConverter.parseDateTime
+    private static LocalDateTime legacyParseDateTime(String dateTimeStr) {
+        DateTimeFormatter[] formatters = {
+                DateTimeFormatter.ISO_LOCAL_DATE_TIME,
+                DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"),
+                DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm")
+        };
+
+        for (DateTimeFormatter formatter : formatters) {
+            try {
+                return LocalDateTime.parse(dateTimeStr, formatter);
+            } catch (Exception e) {
+                continue;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестный формат даты: " + dateTimeStr);
+    }
+}
@@ -3,10 +3,12 @@ package com.example.server1.controller;
 import com.example.server1.entity.Comment;
 import com.example.server1.entity.Role;
 import com.example.server1.entity.Task;
+import com.example.server1.entity.TaskStats;
 import com.example.server1.entity.User;
 import com.example.server1.jwt.AuthRequest;
 import com.example.server1.jwt.AuthResponse;
 import com.example.server1.jwt.JwtTokenUtils;
+import com.example.server1.service.StatsService;
 import com.example.server1.service.TaskService;
 import com.example.server1.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
@@ -40,6 +42,9 @@ class ControllerTest {
     @Mock
     private JwtTokenUtils jwtTokenUtils;
 
+    @Mock
+    private StatsService statsService;
+
     @InjectMocks
     private Controller controller;
 
@@ -254,5 +259,18 @@ class ControllerTest {
         assertThat(result.getBody()).isEqualTo("Task updated");
         verify(taskService).updateTask(task);
     }
-}
 
+    @Test
+    void getStats_ShouldReturnStatsFromService() {
+        // Given
+        TaskStats stats = TaskStats.builder().overdue(3).build();
+        when(statsService.getStats()).thenReturn(stats);
+
+        // When
+        TaskStats result = controller.getStats();
+
+        // Then
+        assertThat(result.getOverdue()).isEqualTo(3);
+        verify(statsService).getStats();
+    }
+}
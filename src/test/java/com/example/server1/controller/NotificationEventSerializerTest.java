@@ -0,0 +1,50 @@
+package com.example.server1.controller;
+
+import com.example.server1.entity.NotificationEvent;
+import com.example.server1.entity.Task;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NotificationEventSerializerTest {
+
+    @Test
+    void toJson_ShouldSkipEmptyFieldsAndReuseBuffer() {
+        // Given
+        NotificationEvent completed = NotificationEvent.taskCompleted("testuser", Task.builder().id(1L).title("Отчет").build());
+        completed.setCreatedAt(1000L);
+        NotificationEvent assigned = NotificationEvent.tasksAssigned("testuser", 3, List.of(1L, 2L, 3L));
+        assigned.setCreatedAt(2000L);
+
+        // When
+        String first = new String(NotificationEventSerializer.toJson(completed), StandardCharsets.UTF_8);
+        String second = new String(NotificationEventSerializer.toJson(assigned), StandardCharsets.UTF_8);
+
+        // Then
+        assertThat(first).isEqualTo("{\"type\":\"TASK_COMPLETED\",\"taskId\":1,\"title\":\"Отчет\",\"actor\":\"testuser\",\"createdAt\":1000}");
+        assertThat(second).isEqualTo("{\"type\":\"TASK_ASSIGNED\",\"recipient\":\"testuser\",\"count\":3,\"taskIds\":[1,2,3],\"createdAt\":2000}");
+    }
+
+    @Test
+    void toText_ShouldRenderLegacyMessages() {
+        // Given
+        Task task = Task.builder().id(1L).title("Отчет").build();
+        List<String> titles = IntStream.rangeClosed(1, 12).mapToObj(i -> "t" + i).toList();
+
+        // When & Then
+        assertThat(NotificationEventSerializer.toText(NotificationEvent.taskCompleted("testuser", task)))
+                .isEqualTo("пользователь testuser завершил задачу Отчет");
+        assertThat(NotificationEventSerializer.toText(NotificationEvent.taskRework("testuser", task)))
+                .isEqualTo("задачу Отчет отправили на доработку");
+        assertThat(NotificationEventSerializer.toText(NotificationEvent.tasksDeleted("testuser", 1, List.of(1L), List.of("Отчет"))))
+                .isEqualTo("задание Отчет удалено");
+        assertThat(NotificationEventSerializer.toText(NotificationEvent.tasksDeleted("testuser", 2, List.of(1L, 2L), List.of("a", "b"))))
+                .isEqualTo("удалено заданий: 2");
+        assertThat(NotificationEventSerializer.toText(NotificationEvent.tasksOverdue("testuser", 12, titles)))
+                .isEqualTo("просрочено заданий: 12 (t1, t2, t3, t4, t5, t6, t7, t8, t9, t10 и еще 2)");
+    }
+}
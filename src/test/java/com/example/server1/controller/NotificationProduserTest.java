@@ -0,0 +1,109 @@
+package com.example.server1.controller;
+
+import com.example.server1.avro.AvroCodec;
+import com.example.server1.avro.LocalSchemaRegistry;
+import com.example.server1.entity.NotificationEvent;
+import com.example.server1.entity.Task;
+import com.example.server1.service.OutboxService;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationProduserTest {
+
+    @Mock
+    private OutboxService outboxService;
+
+    private AvroCodec avroCodec;
+
+    private NotificationProduser notificationProduser;
+
+    private final Task task = Task.builder().id(7L).title("Test Task").build();
+
+    @BeforeEach
+    void setUp() {
+        avroCodec = new AvroCodec(new LocalSchemaRegistry());
+        notificationProduser = new NotificationProduser(outboxService, avroCodec);
+        ReflectionTestUtils.setField(notificationProduser, "format", "event");
+        ReflectionTestUtils.setField(notificationProduser, "encoding", "json");
+    }
+
+    @Test
+    void send_ShouldUseSingleTopicKeyedByUsername() {
+        // When
+        notificationProduser.send(NotificationEvent.taskUpdated("testuser", task));
+
+        // Then
+        verify(outboxService).enqueue(eq("notifications_for_user"), eq("testuser"), eq(AvroCodec.JSON), any(byte[].class));
+    }
+
+    @Test
+    void send_InEventFormat_ShouldWriteTypedJson() {
+        // When
+        notificationProduser.send(NotificationEvent.taskUpdated("testuser", task));
+
+        // Then
+        ArgumentCaptor<byte[]> payload = ArgumentCaptor.forClass(byte[].class);
+        verify(outboxService).enqueue(any(), any(), any(), payload.capture());
+        assertThat(new String(payload.getValue(), StandardCharsets.UTF_8))
+                .startsWith("{\"type\":\"TASK_UPDATED\",\"recipient\":\"testuser\",\"taskId\":7,\"title\":\"Test Task\"");
+    }
+
+    @Test
+    void send_InTextFormat_ShouldWriteLegacyText() {
+        // Given
+        ReflectionTestUtils.setField(notificationProduser, "format", "text");
+
+        // When
+        notificationProduser.send(NotificationEvent.taskUpdated("testuser", task));
+
+        // Then
+        verify(outboxService).enqueue("notifications_for_user", "testuser", AvroCodec.TEXT,
+                "задача Test Task изменена".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void send_InDualWriteMode_ShouldAlsoWriteLegacyTopic() {
+        // Given
+        ReflectionTestUtils.setField(notificationProduser, "dualWrite", true);
+
+        // When
+        notificationProduser.send(NotificationEvent.tasksAssigned("testuser", 1, List.of(7L)));
+
+        // Then
+        verify(outboxService).enqueue(eq("notifications_for_user"), eq("testuser"), eq(AvroCodec.JSON), any());
+        verify(outboxService).enqueue(eq("notifications_for_usertestuser"), isNull(), eq(AvroCodec.JSON), any());
+    }
+
+    @Test
+    void send_ForAdminWithAvroEncoding_ShouldWriteTypedAvroRecord() {
+        // Given
+        ReflectionTestUtils.setField(notificationProduser, "encoding", "avro");
+
+        // When
+        notificationProduser.send(NotificationEvent.taskCompleted("testuser", task));
+
+        // Then
+        ArgumentCaptor<byte[]> payload = ArgumentCaptor.forClass(byte[].class);
+        verify(outboxService).enqueue(eq("notifications_for_admin"), isNull(), eq(AvroCodec.AVRO), payload.capture());
+        GenericRecord record = avroCodec.decode(payload.getValue());
+        assertThat(record.get("type").toString()).isEqualTo("TASK_COMPLETED");
+        assertThat(record.get("actor").toString()).isEqualTo("testuser");
+        assertThat(record.get("taskId")).isEqualTo(7L);
+        assertThat(record.get("message").toString()).isEmpty();
+    }
+}
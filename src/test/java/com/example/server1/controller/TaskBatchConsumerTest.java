@@ -0,0 +1,128 @@
+package com.example.server1.controller;
+
+import com.example.server1.entity.Importance;
+import com.example.server1.entity.TaskAssignment;
+import com.example.server1.entity.TaskBatchResult;
+import com.example.server1.entity.TaskPayload;
+import com.example.server1.exeptions.MalformedMessageExeption;
+import com.example.server1.exeptions.NotFoundExeption;
+import com.example.server1.service.TaskLaneScheduler;
+import com.example.server1.service.UserService;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TaskBatchConsumerTest {
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private DeadLetterPublishingRecoverer deadLetterPublishingRecoverer;
+
+    @Mock
+    private TaskLaneScheduler taskLaneScheduler;
+
+    private TaskBatchConsumer taskBatchConsumer;
+
+    @BeforeEach
+    void setUp() {
+        taskBatchConsumer = new TaskBatchConsumer(userService, new TaskDtoConverter(),
+                deadLetterPublishingRecoverer, taskLaneScheduler);
+    }
+
+    @Test
+    void consumeTaskBatch_WithMalformedRecord_ShouldSendToDltAfterWrite() {
+        // Given
+        ConsumerRecord<String, TaskPayload> valid = record(0, payload("testuser"));
+        ConsumerRecord<String, TaskPayload> broken = record(1, malformed());
+        when(userService.addTasksBatch(anyList())).thenAnswer(invocation ->
+                new TaskBatchResult(invocation.getArgument(0), List.of()));
+
+        // When
+        taskBatchConsumer.consumeTaskBatch(List.of(valid, broken));
+
+        // Then
+        InOrder inOrder = inOrder(userService, deadLetterPublishingRecoverer);
+        inOrder.verify(userService).addTasksBatch(anyList());
+        inOrder.verify(deadLetterPublishingRecoverer).accept(eq(broken), isA(MalformedMessageExeption.class));
+        verifyNoMoreInteractions(deadLetterPublishingRecoverer);
+    }
+
+    @Test
+    void consumeTaskBatch_WhenWriteFails_ShouldNotSendMalformedToDlt() {
+        // Given: пачка будет повторена batchErrorHandler'ом, битое сообщение уйдет в dlt при повторе
+        when(userService.addTasksBatch(anyList())).thenThrow(new IllegalStateException("db down"));
+
+        // When & Then
+        assertThatThrownBy(() -> taskBatchConsumer.consumeTaskBatch(
+                List.of(record(0, payload("testuser")), record(1, malformed()))))
+                .isInstanceOf(IllegalStateException.class);
+        verifyNoInteractions(deadLetterPublishingRecoverer);
+    }
+
+    @Test
+    void consumeTaskBatch_WhenUserNotFound_ShouldSendItsRecordToDlt() {
+        // Given
+        ConsumerRecord<String, TaskPayload> known = record(0, payload("testuser"));
+        ConsumerRecord<String, TaskPayload> ghost = record(1, payload("ghost"));
+        when(userService.addTasksBatch(anyList())).thenAnswer(invocation -> {
+            List<TaskAssignment> assignments = invocation.getArgument(0);
+            return new TaskBatchResult(assignments.subList(0, 1), assignments.subList(1, 2));
+        });
+
+        // When
+        taskBatchConsumer.consumeTaskBatch(List.of(known, ghost));
+
+        // Then
+        verify(deadLetterPublishingRecoverer).accept(eq(ghost), isA(NotFoundExeption.class));
+        verify(deadLetterPublishingRecoverer, never()).accept(eq(known), any());
+    }
+
+    @Test
+    void consumeTaskBatch_WithOnlyMalformedRecords_ShouldNotWrite() {
+        // Given
+        ConsumerRecord<String, TaskPayload> broken = record(0, malformed());
+
+        // When
+        taskBatchConsumer.consumeTaskBatch(List.of(broken));
+
+        // Then
+        verifyNoInteractions(userService);
+        verify(deadLetterPublishingRecoverer).accept(eq(broken), isA(MalformedMessageExeption.class));
+    }
+
+    private static ConsumerRecord<String, TaskPayload> record(long offset, TaskPayload payload) {
+        return new ConsumerRecord<>("task-assignments", 0, offset, payload.getAssignedUser(), payload);
+    }
+
+    private static TaskPayload payload(String username) {
+        TaskPayload payload = new TaskPayload();
+        payload.setTitle("Test Task");
+        payload.setAssignedUser(username);
+        payload.setImportance(Importance.СРОЧНАЯ);
+        return payload;
+    }
+
+    private static TaskPayload malformed() {
+        TaskPayload payload = new TaskPayload();
+        payload.setMalformed(true);
+        payload.addError("title: ожидалась строка");
+        return payload;
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.server1.controller;
+
+import com.example.server1.avro.AvroCodec;
+import com.example.server1.avro.LocalSchemaRegistry;
+import com.example.server1.entity.Importance;
+import com.example.server1.entity.Task;
+import com.example.server1.entity.TaskPayload;
+import com.example.server1.exeptions.MalformedMessageExeption;
+import com.example.server1.service.MessageDeduplicator;
+import com.example.server1.service.TaskLaneScheduler;
+import com.example.server1.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TaskConsumerTest {
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private MessageDeduplicator messageDeduplicator;
+
+    @Mock
+    private TaskLaneScheduler taskLaneScheduler;
+
+    private final AvroCodec avroCodec = new AvroCodec(new LocalSchemaRegistry());
+
+    private TaskConsumer taskConsumer;
+
+    @BeforeEach
+    void setUp() {
+        taskConsumer = new TaskConsumer(userService, new TaskDtoConverter(), messageDeduplicator,
+                new TaskDeletionReader(new ObjectMapper(), avroCodec), taskLaneScheduler);
+        lenient().when(messageDeduplicator.markProcessed(anyString())).thenReturn(true);
+    }
+
+    @Test
+    void consumeTask_WithValidJson_ShouldAddTask() throws Exception {
+        // Given
+        String json = "{\"title\":\"Test Task\",\"assignedUser\":\"testuser\",\"importance\":\"срочная\"," +
+                "\"deadline\":\"2030-01-01 10:00:00\"}";
+
+        // When
+        taskConsumer.consumeTask(taskRecord(json));
+
+        // Then
+        ArgumentCaptor<Task> captor = ArgumentCaptor.forClass(Task.class);
+        verify(userService).addTasks(eq("testuser"), captor.capture());
+        assertThat(captor.getValue().getTitle()).isEqualTo("Test Task");
+        assertThat(captor.getValue().getImportance()).isEqualTo(Importance.СРОЧНАЯ);
+        assertThat(captor.getValue().getDeadline().getYear()).isEqualTo(2030);
+    }
+
+    @Test
+    void consumeTask_WithBrokenJson_ShouldThrowSoMessageGoesToDlt() {
+        // When & Then
+        assertThatThrownBy(() -> taskConsumer.consumeTask(taskRecord("{not json")))
+                .isInstanceOf(MalformedMessageExeption.class);
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void consumeTaskDeletion_WhenServiceFails_ShouldPropagateForRetry() {
+        // Given
+        doThrow(new IllegalStateException("db timeout")).when(userService).deleteTask(anyString(), anyLong());
+
+        // When & Then
+        assertThatThrownBy(() -> taskConsumer.consumeTaskDeletion(
+                record("task-deletions", "{\"username\":\"testuser\",\"id\":1}")))
+                .isInstanceOf(IllegalStateException.class);
+        verify(userService).deleteTask("testuser", 1L);
+        verify(userService, never()).addTasks(anyString(), any());
+    }
+
+    @Test
+    void consumeTask_WhenMessageAlreadyProcessed_ShouldSkip() throws Exception {
+        // Given
+        when(messageDeduplicator.markProcessed("task-assignments-0@42")).thenReturn(false);
+
+        // When
+        taskConsumer.consumeTask(taskRecord("{\"title\":\"Test Task\",\"assignedUser\":\"testuser\"}"));
+
+        // Then
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void consumeTaskDeletion_WithAvroPayload_ShouldDeleteTask() throws Exception {
+        // Given
+        GenericRecord deletion = avroCodec.newRecord(LocalSchemaRegistry.TASK_DELETION);
+        deletion.put("username", "testuser");
+        deletion.put("id", 7L);
+        ConsumerRecord<String, byte[]> record = new ConsumerRecord<>("task-deletions", 0, 42L, "testuser",
+                avroCodec.encode(LocalSchemaRegistry.TASK_DELETION, deletion));
+        record.headers().add(AvroCodec.CONTENT_TYPE_HEADER, AvroCodec.contentType(AvroCodec.AVRO));
+
+        // When
+        taskConsumer.consumeTaskDeletion(record);
+
+        // Then
+        verify(userService).deleteTask("testuser", 7L);
+    }
+
+    private ConsumerRecord<String, TaskPayload> taskRecord(String json) {
+        TaskPayload payload = new TaskPayloadDeserializer().deserialize("task-assignments", json.getBytes(StandardCharsets.UTF_8));
+        return new ConsumerRecord<>("task-assignments", 0, 42L, "testuser", payload);
+    }
+
+    private ConsumerRecord<String, byte[]> record(String topic, String value) {
+        return new ConsumerRecord<>(topic, 0, 42L, "testuser", value.getBytes(StandardCharsets.UTF_8));
+    }
+}
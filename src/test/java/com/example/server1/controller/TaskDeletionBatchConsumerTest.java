@@ -0,0 +1,95 @@
+package com.example.server1.controller;
+
+import com.example.server1.avro.AvroCodec;
+import com.example.server1.avro.LocalSchemaRegistry;
+import com.example.server1.entity.TaskDeletion;
+import com.example.server1.exeptions.MalformedMessageExeption;
+import com.example.server1.exeptions.NotFoundExeption;
+import com.example.server1.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TaskDeletionBatchConsumerTest {
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private DeadLetterPublishingRecoverer deadLetterPublishingRecoverer;
+
+    private TaskDeletionBatchConsumer consumer;
+
+    @BeforeEach
+    void setUp() {
+        consumer = new TaskDeletionBatchConsumer(userService,
+                new TaskDeletionReader(new ObjectMapper(), new AvroCodec(new LocalSchemaRegistry())),
+                deadLetterPublishingRecoverer);
+    }
+
+    @Test
+    void consumeTaskDeletionBatch_WithMalformedRecord_ShouldSendToDltAfterWrite() {
+        // Given
+        ConsumerRecord<String, byte[]> valid = record(0, "{\"username\":\"testuser\",\"id\":1}");
+        ConsumerRecord<String, byte[]> broken = record(1, "{");
+        when(userService.deleteTasksBatch(anyList())).thenReturn(List.of());
+
+        // When
+        consumer.consumeTaskDeletionBatch(List.of(valid, broken));
+
+        // Then
+        InOrder inOrder = inOrder(userService, deadLetterPublishingRecoverer);
+        inOrder.verify(userService).deleteTasksBatch(anyList());
+        inOrder.verify(deadLetterPublishingRecoverer).accept(eq(broken), isA(MalformedMessageExeption.class));
+        verifyNoMoreInteractions(deadLetterPublishingRecoverer);
+    }
+
+    @Test
+    void consumeTaskDeletionBatch_WhenWriteFails_ShouldNotSendMalformedToDlt() {
+        // Given: пачка будет повторена batchErrorHandler'ом, битое сообщение уйдет в dlt при повторе
+        ConsumerRecord<String, byte[]> valid = record(0, "{\"username\":\"testuser\",\"id\":1}");
+        ConsumerRecord<String, byte[]> broken = record(1, "{");
+        when(userService.deleteTasksBatch(anyList())).thenThrow(new IllegalStateException("db down"));
+
+        // When & Then
+        assertThatThrownBy(() -> consumer.consumeTaskDeletionBatch(List.of(valid, broken)))
+                .isInstanceOf(IllegalStateException.class);
+        verifyNoInteractions(deadLetterPublishingRecoverer);
+    }
+
+    @Test
+    void consumeTaskDeletionBatch_WhenRejected_ShouldSendItsRecordToDlt() {
+        // Given
+        ConsumerRecord<String, byte[]> intruder = record(0, "{\"username\":\"intruder\",\"id\":1}");
+        when(userService.deleteTasksBatch(anyList())).thenAnswer(invocation -> {
+            List<TaskDeletion> deletions = invocation.getArgument(0);
+            return deletions;
+        });
+
+        // When
+        consumer.consumeTaskDeletionBatch(List.of(intruder));
+
+        // Then
+        verify(deadLetterPublishingRecoverer).accept(eq(intruder), isA(NotFoundExeption.class));
+    }
+
+    private static ConsumerRecord<String, byte[]> record(long offset, String json) {
+        return new ConsumerRecord<>("task-deletions", 0, offset, null, json.getBytes(StandardCharsets.UTF_8));
+    }
+}
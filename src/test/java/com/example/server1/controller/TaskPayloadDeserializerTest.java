@@ -0,0 +1,78 @@
+package com.example.server1.controller;
+
+import com.example.server1.entity.Importance;
+import com.example.server1.entity.Status;
+import com.example.server1.entity.TaskPayload;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TaskPayloadDeserializerTest {
+
+    private final TaskPayloadDeserializer deserializer = new TaskPayloadDeserializer();
+
+    @Test
+    void deserialize_WithValidJson_ShouldParseTypedFields() {
+        // Given
+        String json = "{\"title\":\"Test Task\",\"description\":\"d\",\"assignedUser\":\"testuser\"," +
+                "\"importance\":\"срочная\",\"status\":\"В_РАБОТЕ\",\"deadline\":\"2030-01-01T10:00:00\",\"extra\":{\"a\":1}}";
+
+        // When
+        TaskPayload payload = deserialize(json);
+
+        // Then
+        assertThat(payload.isMalformed()).isFalse();
+        assertThat(payload.getErrors()).isEmpty();
+        assertThat(payload.getTitle()).isEqualTo("Test Task");
+        assertThat(payload.getAssignedUser()).isEqualTo("testuser");
+        assertThat(payload.getImportance()).isEqualTo(Importance.СРОЧНАЯ);
+        assertThat(payload.getStatus()).isEqualTo(Status.В_РАБОТЕ);
+        assertThat(payload.getDeadline()).isEqualTo(LocalDateTime.of(2030, 1, 1, 10, 0));
+        assertThat(payload.getRaw()).isEqualTo(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void deserialize_WithUnknownValues_ShouldReportErrorsWithoutThrowing() {
+        // When
+        TaskPayload payload = deserialize("{\"title\":\"Test Task\",\"importance\":\"какая-то\"," +
+                "\"deadline\":\"2030-02-30 10:00:00\",\"status\":5}");
+
+        // Then
+        assertThat(payload.isMalformed()).isFalse();
+        assertThat(payload.getImportance()).isNull();
+        assertThat(payload.getDeadline()).isNull();
+        assertThat(payload.getStatus()).isNull();
+        assertThat(payload.getErrors()).hasSize(3);
+    }
+
+    @Test
+    void deserialize_WithBrokenJson_ShouldMarkMalformed() {
+        // When
+        TaskPayload payload = deserialize("{not json");
+
+        // Then
+        assertThat(payload.isMalformed()).isTrue();
+        assertThat(payload.getErrors()).isNotEmpty();
+    }
+
+    @Test
+    void parseDateTime_ShouldSupportAllKnownFormats() {
+        assertThat(TaskPayloadDeserializer.parseDateTime("2030-01-01T10:00"))
+                .isEqualTo(LocalDateTime.of(2030, 1, 1, 10, 0));
+        assertThat(TaskPayloadDeserializer.parseDateTime("2030-01-01T10:00:05.123"))
+                .isEqualTo(LocalDateTime.of(2030, 1, 1, 10, 0, 5, 123_000_000));
+        assertThat(TaskPayloadDeserializer.parseDateTime("2030-01-01 10:00:05"))
+                .isEqualTo(LocalDateTime.of(2030, 1, 1, 10, 0, 5));
+        assertThat(TaskPayloadDeserializer.parseDateTime("31.12.2030 23:59"))
+                .isEqualTo(LocalDateTime.of(2030, 12, 31, 23, 59));
+        assertThat(TaskPayloadDeserializer.parseDateTime("2030-13-01T10:00")).isNull();
+        assertThat(TaskPayloadDeserializer.parseDateTime("завтра")).isNull();
+    }
+
+    private TaskPayload deserialize(String json) {
+        return deserializer.deserialize("task-assignments", json.getBytes(StandardCharsets.UTF_8));
+    }
+}
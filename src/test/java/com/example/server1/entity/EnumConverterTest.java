@@ -0,0 +1,59 @@
+package com.example.server1.entity;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EnumConverterTest {
+
+    private final StatusConverter statusConverter = new StatusConverter();
+    private final ImportanceConverter importanceConverter = new ImportanceConverter();
+
+    @Test
+    void statusConverter_ShouldRoundTripEveryValue() {
+        for (Status status : Status.values()) {
+            assertThat(statusConverter.convertToEntityAttribute(statusConverter.convertToDatabaseColumn(status)))
+                    .isEqualTo(status);
+        }
+        assertThat(statusConverter.convertToDatabaseColumn(null)).isNull();
+        assertThat(statusConverter.convertToEntityAttribute(null)).isNull();
+    }
+
+    @Test
+    void importanceConverter_ShouldRoundTripEveryValue() {
+        for (Importance importance : Importance.values()) {
+            assertThat(importanceConverter.convertToEntityAttribute(importanceConverter.convertToDatabaseColumn(importance)))
+                    .isEqualTo(importance);
+        }
+    }
+
+    @Test
+    void codes_ShouldStayStable() {
+        // коды лежат в базе, их нельзя менять
+        assertThat(Arrays.stream(Status.values()).map(Status::getCode))
+                .containsExactly((short) 0, (short) 1, (short) 2, (short) 3);
+        assertThat(Arrays.stream(Importance.values()).map(Importance::getCode))
+                .containsExactly((short) 0, (short) 1, (short) 2);
+    }
+
+    @Test
+    void fromCode_WithUnknownCode_ShouldThrowException() {
+        assertThatThrownBy(() -> Status.fromCode((short) 42)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Importance.fromCode((short) -1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void json_ShouldStillUseEnumNames() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        Task task = Task.builder().status(Status.НА_ДОРАБОТКЕ).importance(Importance.НАДО_ПОТОРОПИТЬСЯ).build();
+
+        String json = objectMapper.writeValueAsString(task);
+
+        assertThat(json).contains("\"status\":\"НА_ДОРАБОТКЕ\"", "\"importance\":\"НАДО_ПОТОРОПИТЬСЯ\"");
+        assertThat(objectMapper.readValue("\"ЗАВЕРШЕНА\"", Status.class)).isEqualTo(Status.ЗАВЕРШЕНА);
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.server1.messaging;
+
+import com.example.server1.entity.DeadLetterMessage;
+import com.example.server1.repository.DeadLetterMessageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InMemoryMessageBusTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private final DeadLetterMessageRepository deadLetterMessageRepository = mock(DeadLetterMessageRepository.class);
+
+    private InMemoryMessageBus messageBus;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        messageBus = new InMemoryMessageBus(meterRegistry, deadLetterMessageRepository);
+        ReflectionTestUtils.setField(messageBus, "partitions", 3);
+        ReflectionTestUtils.setField(messageBus, "queueCapacity", 1000);
+        ReflectionTestUtils.setField(messageBus, "maxBatch", 50);
+        ReflectionTestUtils.setField(messageBus, "attempts", 3);
+        ReflectionTestUtils.setField(messageBus, "delayMs", 1L);
+        ReflectionTestUtils.setField(messageBus, "multiplier", 2.0);
+        ReflectionTestUtils.setField(messageBus, "maxDelayMs", 10L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        messageBus.stop();
+    }
+
+    @Test
+    void publish_WhenManyProducers_ShouldKeepOrderPerKeyForEveryGroup() throws Exception {
+        // Given
+        List<String> first = Collections.synchronizedList(new ArrayList<>());
+        List<String> second = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch delivered = new CountDownLatch(800);
+        messageBus.subscribe("topic", "first", records -> records.forEach(r -> {
+            first.add(r.key() + ":" + value(r));
+            delivered.countDown();
+        }));
+        messageBus.subscribe("topic", "second", records -> records.forEach(r -> {
+            second.add(r.key() + ":" + value(r));
+            delivered.countDown();
+        }));
+
+        // When
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            String key = "user" + p;
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    messageBus.publish("topic", key, "text/plain", String.valueOf(i).getBytes(StandardCharsets.UTF_8));
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        // Then
+        assertThat(delivered.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int p = 0; p < 4; p++) {
+            String prefix = "user" + p + ":";
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                expected.add(prefix + i);
+            }
+            assertThat(first.stream().filter(v -> v.startsWith(prefix)).toList()).isEqualTo(expected);
+            assertThat(second.stream().filter(v -> v.startsWith(prefix)).toList()).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void subscribe_WhenHandlerFails_ShouldRetryBatch() throws Exception {
+        // Given
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch delivered = new CountDownLatch(1);
+        messageBus.subscribe("topic", "group", records -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new IllegalStateException("db unavailable");
+            }
+            delivered.countDown();
+        });
+
+        // When
+        messageBus.publish("topic", "user", null, new byte[0]);
+
+        // Then
+        assertThat(delivered.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(calls.get()).isEqualTo(3);
+        assertThat(meterRegistry.get("messaging.inmemory.failed").counter().count()).isZero();
+    }
+
+    @Test
+    void subscribe_WhenOneRecordKeepsFailing_ShouldParkOnlyItAndDeliverTheRest() throws Exception {
+        // Given: пачка из трех записей, вторая не обрабатывается никогда
+        List<String> handled = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch published = new CountDownLatch(1);
+        CountDownLatch lastHandled = new CountDownLatch(1);
+        when(deadLetterMessageRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        messageBus.subscribe("topic", "group", records -> {
+            try {
+                published.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (records.stream().anyMatch(r -> value(r).equals("bad"))) {
+                throw new IllegalStateException("poison");
+            }
+            records.forEach(r -> handled.add(value(r)));
+            if (handled.contains("last")) {
+                lastHandled.countDown();
+            }
+        });
+
+        // When
+        for (String value : List.of("first", "bad", "last")) {
+            messageBus.publish("topic", "user", "text/plain", value.getBytes(StandardCharsets.UTF_8));
+        }
+        published.countDown();
+
+        // Then
+        // запись после отложенной обрабатывается последней
+        assertThat(lastHandled.await(5, TimeUnit.SECONDS)).isTrue();
+        ArgumentCaptor<DeadLetterMessage> captor = ArgumentCaptor.forClass(DeadLetterMessage.class);
+        verify(deadLetterMessageRepository).save(captor.capture());
+        assertThat(new String(captor.getValue().getPayload(), StandardCharsets.UTF_8)).isEqualTo("bad");
+        assertThat(captor.getValue().getGroup()).isEqualTo("group");
+        assertThat(captor.getValue().getContentType()).isEqualTo("text/plain");
+        assertThat(captor.getValue().getError()).isEqualTo("poison");
+        assertThat(handled).containsExactly("first", "last");
+        assertThat(meterRegistry.get("messaging.inmemory.failed").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void publish_WhenGroupQueueIsFull_ShouldFailWithoutEnqueueing() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(messageBus, "queueCapacity", 1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        messageBus.subscribe("topic", "slow", records -> {
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        messageBus.publish("topic", "user", null, new byte[0]);
+        assertThat(blocked.await(5, TimeUnit.SECONDS)).isTrue();
+        messageBus.publish("topic", "user", null, new byte[0]);
+
+        // When
+        CompletableFuture<?> result = messageBus.publish("topic", "user", null, new byte[0]);
+
+        // Then
+        assertThat(result).isCompletedExceptionally();
+        release.countDown();
+    }
+
+    @Test
+    void publish_ShouldAssignSequentialOffsetsPerPartitionAboveStartTime() throws Exception {
+        // Given
+        List<ConsumerRecord<String, byte[]>> received = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch delivered = new CountDownLatch(3);
+        messageBus.subscribe("topic", "group", records -> records.forEach(r -> {
+            received.add(r);
+            delivered.countDown();
+        }));
+
+        long startMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            messageBus.publish("topic", "user", "application/json", new byte[0]);
+        }
+
+        // Then
+        assertThat(delivered.await(5, TimeUnit.SECONDS)).isTrue();
+        long first = received.get(0).offset();
+        assertThat(first).isLessThanOrEqualTo(startMicros).isGreaterThan(startMicros - TimeUnit.MINUTES.toMicros(1));
+        assertThat(received).extracting(ConsumerRecord::offset).containsExactly(first, first + 1, first + 2);
+        assertThat(received).extracting(ConsumerRecord::partition).containsOnly(received.get(0).partition());
+        assertThat(new String(received.get(0).headers().lastHeader("content-type").value(), StandardCharsets.UTF_8))
+                .isEqualTo("application/json");
+    }
+
+    @Test
+    void publish_AfterRestart_ShouldNotReuseOffsets() throws Exception {
+        // Given
+        CompletableFuture<Long> lastBeforeRestart = new CompletableFuture<>();
+        messageBus.subscribe("topic", "group", records -> lastBeforeRestart.complete(records.get(records.size() - 1).offset()));
+        messageBus.publish("topic", "user", null, new byte[0]);
+        long before = lastBeforeRestart.get(5, TimeUnit.SECONDS);
+        messageBus.stop();
+        Thread.sleep(2);
+
+        // When
+        messageBus = new InMemoryMessageBus(meterRegistry, deadLetterMessageRepository);
+        ReflectionTestUtils.setField(messageBus, "partitions", 3);
+        ReflectionTestUtils.setField(messageBus, "queueCapacity", 1000);
+        ReflectionTestUtils.setField(messageBus, "maxBatch", 50);
+        CompletableFuture<Long> firstAfterRestart = new CompletableFuture<>();
+        messageBus.subscribe("topic", "group2", records -> firstAfterRestart.complete(records.get(0).offset()));
+        messageBus.publish("topic", "user", null, new byte[0]);
+
+        // Then
+        assertThat(firstAfterRestart.get(5, TimeUnit.SECONDS)).isGreaterThan(before);
+    }
+
+    private static String value(ConsumerRecord<String, byte[]> record) {
+        return new String(record.value(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.server1.messaging;
+
+import com.example.server1.service.KafkaSendMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class KafkaMessageBusTest {
+
+    @Mock
+    private KafkaTemplate<String, Object> rawKafkaTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private KafkaMessageBus kafkaMessageBus;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        kafkaMessageBus = new KafkaMessageBus(rawKafkaTemplate, new KafkaSendMetrics(meterRegistry));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void publish_ShouldSendKeyPayloadAndContentTypeHeader() {
+        // Given
+        byte[] payload = "появилось новое задание".getBytes(StandardCharsets.UTF_8);
+        when(rawKafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)));
+
+        // When
+        kafkaMessageBus.publish("notifications_for_user", "testuser", "text/plain", payload);
+
+        // Then
+        ArgumentCaptor<ProducerRecord<String, Object>> captor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(rawKafkaTemplate).send(captor.capture());
+        ProducerRecord<String, Object> record = captor.getValue();
+        assertThat(record.topic()).isEqualTo("notifications_for_user");
+        assertThat(record.key()).isEqualTo("testuser");
+        assertThat((byte[]) record.value()).isEqualTo(payload);
+        assertThat(new String(record.headers().lastHeader("content-type").value(), StandardCharsets.UTF_8))
+                .isEqualTo("text/plain");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void publish_ShouldCountAcknowledgedAndFailedSends() {
+        // Given
+        when(rawKafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker unavailable")));
+
+        // When
+        kafkaMessageBus.publish("notifications_for_user", "testuser", null, new byte[0]);
+        kafkaMessageBus.publish("notifications_for_user", "testuser", null, new byte[0]);
+
+        // Then
+        assertThat(meterRegistry.get("kafka.producer.sends").tag("result", "success").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("kafka.producer.sends").tag("result", "failure").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("kafka.producer.send.latency").tag("topic", "notifications_for_user").timer().count())
+                .isEqualTo(2);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.server1.service;
+
+import com.example.server1.entity.Status;
+import com.example.server1.repository.ArchivedCommentRepository;
+import com.example.server1.repository.ArchivedTaskRepository;
+import com.example.server1.repository.CommentRepositopy;
+import com.example.server1.repository.TaskRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyShort;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ArchiveServiceTest {
+
+    @Mock
+    private TaskRepository taskRepository;
+
+    @Mock
+    private CommentRepositopy commentRepositopy;
+
+    @Mock
+    private ArchivedTaskRepository archivedTaskRepository;
+
+    @Mock
+    private ArchivedCommentRepository archivedCommentRepository;
+
+    @Mock
+    private TaskCounterService taskCounterService;
+
+    @Mock
+    private TaskChangelogPublisher taskChangelogPublisher;
+
+    @InjectMocks
+    private ArchiveService archiveService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(archiveService, "completedAge", Duration.ofDays(30));
+        ReflectionTestUtils.setField(archiveService, "batchSize", 100);
+    }
+
+    @Test
+    void archiveBatch_ShouldCopyThenDeleteTasksAndComments() {
+        // Given
+        List<Long> ids = List.of(1L, 2L, 3L);
+        when(taskRepository.lockArchivableIds(eq(Status.ЗАВЕРШЕНА.getCode()), any(LocalDateTime.class), eq(100)))
+                .thenReturn(ids);
+        when(taskRepository.countByUserIds(ids)).thenReturn(List.<Object[]>of(new Object[]{7L, 3L}));
+
+        // When
+        int moved = archiveService.archiveBatch();
+
+        // Then
+        assertThat(moved).isEqualTo(3);
+        InOrder inOrder = inOrder(archivedTaskRepository, archivedCommentRepository, commentRepositopy, taskRepository);
+        inOrder.verify(archivedTaskRepository).copyFromTasks(eq(ids), any(LocalDateTime.class));
+        inOrder.verify(archivedCommentRepository).copyFromComments(ids);
+        inOrder.verify(commentRepositopy).deleteByTaskIds(ids);
+        inOrder.verify(taskRepository).deleteByIds(ids);
+        verify(taskChangelogPublisher).deleted(ids);
+        verify(taskCounterService).add(7L, Status.ЗАВЕРШЕНА, -3L);
+    }
+
+    @Test
+    void archiveBatch_WhenNothingToArchive_ShouldNotTouchArchive() {
+        // Given
+        when(taskRepository.lockArchivableIds(anyShort(), any(LocalDateTime.class), anyInt())).thenReturn(List.of());
+
+        // When
+        int moved = archiveService.archiveBatch();
+
+        // Then
+        assertThat(moved).isZero();
+        verifyNoInteractions(archivedTaskRepository, archivedCommentRepository, commentRepositopy, taskCounterService);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.server1.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConsumerBackpressureServiceTest {
+
+    @Mock
+    private KafkaListenerEndpointRegistry listenerRegistry;
+
+    @Mock
+    private HikariDataSource dataSource;
+
+    @Mock
+    private HikariPoolMXBean pool;
+
+    @Mock
+    private MessageListenerContainer container;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ConsumerBackpressureService backpressureService;
+
+    @BeforeEach
+    void setUp() {
+        backpressureService = new ConsumerBackpressureService(listenerRegistry, dataSource, meterRegistry);
+        ReflectionTestUtils.setField(backpressureService, "enabled", true);
+        ReflectionTestUtils.setField(backpressureService, "pendingHigh", 5);
+        ReflectionTestUtils.setField(backpressureService, "pendingLow", 0);
+        ReflectionTestUtils.setField(backpressureService, "waitHighMs", 500.0);
+        ReflectionTestUtils.setField(backpressureService, "waitLowMs", 50.0);
+        when(dataSource.getHikariPoolMXBean()).thenReturn(pool);
+        when(listenerRegistry.getAllListenerContainers()).thenReturn(List.of(container));
+        when(container.metrics()).thenReturn(Map.of());
+        when(container.getListenerId()).thenReturn("taskConsumer");
+    }
+
+    @Test
+    void check_WhenPendingThreadsAboveHighWatermark_ShouldPauseContainers() {
+        // Given
+        when(pool.getThreadsAwaitingConnection()).thenReturn(7);
+
+        // When
+        backpressureService.check();
+
+        // Then
+        verify(container).pause();
+        assertThat(backpressureService.isPaused()).isTrue();
+        assertThat(meterRegistry.get("kafka.consumer.paused").gauge().value()).isEqualTo(1.0);
+    }
+
+    @Test
+    void check_BetweenWatermarks_ShouldStayPausedUntilLowWatermark() {
+        // Given
+        when(pool.getThreadsAwaitingConnection()).thenReturn(7, 2, 0);
+
+        // When
+        backpressureService.check();
+        backpressureService.check();
+
+        // Then
+        verify(container, never()).resume();
+        assertThat(backpressureService.isPaused()).isTrue();
+
+        // When
+        backpressureService.check();
+
+        // Then
+        verify(container).resume();
+        assertThat(backpressureService.isPaused()).isFalse();
+    }
+
+    @Test
+    void check_WhenConnectionWaitIsHigh_ShouldPause() {
+        // Given
+        when(pool.getThreadsAwaitingConnection()).thenReturn(0);
+        meterRegistry.timer("hikaricp.connections.acquire").record(Duration.ofMillis(800));
+
+        // When
+        backpressureService.check();
+
+        // Then
+        verify(container).pause();
+        assertThat(meterRegistry.get("kafka.consumer.lag").tag("listener", "taskConsumer").gauge().value())
+                .isEqualTo(0.0);
+    }
+}
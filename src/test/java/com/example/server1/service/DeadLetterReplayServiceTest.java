@@ -0,0 +1,145 @@
+package com.example.server1.service;
+
+import com.example.server1.config.KafkaTopics;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DeadLetterReplayServiceTest {
+
+    private static final String DLT = KafkaTopics.TASK_ASSIGNMENTS + "-dlt";
+    private static final TopicPartition P0 = new TopicPartition(DLT, 0);
+    private static final TopicPartition P1 = new TopicPartition(DLT, 1);
+
+    @Mock
+    private ConsumerFactory<String, String> consumerFactory;
+
+    @Mock
+    private KafkaTemplate<String, Object> rawKafkaTemplate;
+
+    @Mock
+    private KafkaSendMetrics kafkaSendMetrics;
+
+    private final Map<TopicPartition, OffsetAndMetadata> commits = new HashMap<>();
+
+    private RecordingConsumer consumer;
+
+    private DeadLetterReplayService replayService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        consumer = new RecordingConsumer();
+        consumer.updatePartitions(DLT, List.of(partition(0), partition(1)));
+        consumer.updateBeginningOffsets(Map.of(P0, 0L, P1, 0L));
+        consumer.updateEndOffsets(Map.of(P0, 3L, P1, 2L));
+        replayService = spy(new DeadLetterReplayService(consumerFactory, rawKafkaTemplate, kafkaSendMetrics));
+        doReturn(consumer).when(replayService).createConsumer(any());
+        lenient().when(rawKafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)));
+        lenient().when(kafkaSendMetrics.track(anyString(), anyLong(), any())).thenAnswer(invocation -> invocation.getArgument(2));
+    }
+
+    @Test
+    void replay_WhenFirstPollIsEmpty_ShouldKeepReadingUntilEndOffsets() {
+        // Given: первый poll пустой, как при подключении к брокеру
+        consumer.schedulePollTask(() -> { });
+        consumer.schedulePollTask(() -> addRecords(P0, 3));
+        consumer.schedulePollTask(() -> addRecords(P1, 2));
+
+        // When
+        int replayed = replayService.replay(KafkaTopics.TASK_ASSIGNMENTS, 100);
+
+        // Then
+        assertThat(replayed).isEqualTo(5);
+        verify(rawKafkaTemplate, times(5)).send(any(ProducerRecord.class));
+        assertThat(commits).containsEntry(P0, new OffsetAndMetadata(3)).containsEntry(P1, new OffsetAndMetadata(2));
+    }
+
+    @Test
+    void replay_ShouldStopAtMaxRecordsAndCommitOnlySent() {
+        // Given
+        consumer.schedulePollTask(() -> {
+            addRecords(P0, 3);
+            addRecords(P1, 2);
+        });
+
+        // When
+        int replayed = replayService.replay(KafkaTopics.TASK_ASSIGNMENTS, 2);
+
+        // Then
+        assertThat(replayed).isEqualTo(2);
+        verify(rawKafkaTemplate, times(2)).send(any(ProducerRecord.class));
+        long committedTotal = commits.values().stream().mapToLong(OffsetAndMetadata::offset).sum();
+        assertThat(committedTotal).isEqualTo(2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void replay_ShouldSendToOriginalTopic() {
+        // Given
+        consumer.updateEndOffsets(Map.of(P0, 1L, P1, 0L));
+        consumer.schedulePollTask(() -> addRecords(P0, 1));
+
+        // When
+        replayService.replay(KafkaTopics.TASK_ASSIGNMENTS, 10);
+
+        // Then
+        ArgumentCaptor<ProducerRecord<String, Object>> captor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(rawKafkaTemplate).send(captor.capture());
+        assertThat(captor.getValue().topic()).isEqualTo(KafkaTopics.TASK_ASSIGNMENTS);
+        assertThat(captor.getValue().key()).isEqualTo("testuser");
+    }
+
+    private void addRecords(TopicPartition partition, int count) {
+        for (int offset = 0; offset < count; offset++) {
+            consumer.addRecord(new ConsumerRecord<>(DLT, partition.partition(), offset, "testuser",
+                    "{}".getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    private static PartitionInfo partition(int partition) {
+        return new PartitionInfo(DLT, partition, Node.noNode(), new Node[0], new Node[0]);
+    }
+
+    // MockConsumer после close не отдает закоммиченные offset'ы, поэтому они запоминаются здесь
+    private final class RecordingConsumer extends MockConsumer<String, byte[]> {
+
+        private RecordingConsumer() {
+            super(OffsetResetStrategy.EARLIEST);
+        }
+
+        @Override
+        public synchronized void commitSync(Map<TopicPartition, OffsetAndMetadata> offsets) {
+            super.commitSync(offsets);
+            commits.putAll(offsets);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.server1.service;
+
+import com.example.server1.repository.ProcessedMessageRepository;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.support.SendResult;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MessageDeduplicatorTest {
+
+    @Mock
+    private ProcessedMessageRepository processedMessageRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private MessageDeduplicator messageDeduplicator;
+
+    @BeforeEach
+    void setUp() {
+        messageDeduplicator = new MessageDeduplicator(processedMessageRepository, jdbcTemplate, 2);
+    }
+
+    @Test
+    void messageKey_WithMessageIdHeader_ShouldUseHeader() {
+        // Given
+        ConsumerRecord<String, String> record = new ConsumerRecord<>("task-assignments", 1, 10L, "testuser", "{}");
+        record.headers().add(MessageDeduplicator.MESSAGE_ID_HEADER, "abc".getBytes(StandardCharsets.UTF_8));
+
+        // When & Then
+        assertThat(MessageDeduplicator.messageKey(record)).isEqualTo("id:abc");
+    }
+
+    @Test
+    void messageKey_FromRetryTopic_ShouldUseOriginalCoordinates() {
+        // Given: заголовки пишет настоящий recoverer, сообщение прошло task-assignments -> retry-0 -> retry-1
+        ConsumerRecord<String, String> original = new ConsumerRecord<>("task-assignments", 1, 10L, "testuser", "{}");
+        ConsumerRecord<String, String> retry0 = forward(original, "task-assignments-retry-0", 3L);
+        ConsumerRecord<String, String> retry1 = forward(retry0, "task-assignments-retry-1", 7L);
+
+        // When & Then
+        assertThat(MessageDeduplicator.messageKey(retry0)).isEqualTo("task-assignments-1@10");
+        assertThat(MessageDeduplicator.messageKey(retry1)).isEqualTo("task-assignments-1@10");
+    }
+
+    @Test
+    void markProcessed_WhenKeyAlreadyStored_ShouldReturnFalseAndCacheIt() {
+        // Given
+        when(processedMessageRepository.insertIfAbsent(eq("task-assignments-1@10"), any())).thenReturn(0);
+
+        // When
+        boolean first = messageDeduplicator.markProcessed("task-assignments-1@10");
+        boolean second = messageDeduplicator.markProcessed("task-assignments-1@10");
+
+        // Then
+        assertThat(first).isFalse();
+        assertThat(second).isFalse();
+        verify(processedMessageRepository, times(1)).insertIfAbsent(eq("task-assignments-1@10"), any());
+    }
+
+    @Test
+    void markProcessed_WhenKeyIsNew_ShouldReturnTrue() {
+        // Given
+        when(processedMessageRepository.insertIfAbsent(eq("id:new"), any())).thenReturn(1);
+
+        // When & Then
+        assertThat(messageDeduplicator.markProcessed("id:new")).isTrue();
+    }
+
+    // публикует запись через DeadLetterPublishingRecoverer и возвращает ее такой, какой ее прочитает consumer топика target
+    @SuppressWarnings("unchecked")
+    private static ConsumerRecord<String, String> forward(ConsumerRecord<String, String> record, String target, long offset) {
+        KafkaOperations<String, String> template = mock(KafkaOperations.class);
+        List<ProducerRecord<String, String>> sent = new ArrayList<>();
+        when(template.send(any(ProducerRecord.class))).thenAnswer(invocation -> {
+            sent.add(invocation.getArgument(0));
+            return CompletableFuture.completedFuture(mock(SendResult.class));
+        });
+        new DeadLetterPublishingRecoverer(template, (r, e) -> new TopicPartition(target, 0))
+                .accept(record, new IllegalStateException("временная ошибка"));
+        ProducerRecord<String, String> published = sent.get(0);
+        return new ConsumerRecord<>(target, 0, offset, 0L, TimestampType.CREATE_TIME, -1, -1,
+                published.key(), published.value(), published.headers(), Optional.empty());
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.server1.service;
+
+import com.example.server1.controller.NotificationEventSerializer;
+import com.example.server1.controller.NotificationProduser;
+import com.example.server1.entity.NotificationEvent;
+import com.example.server1.repository.NotificationDigestRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationCoalescerTest {
+
+    @Mock
+    private NotificationProduser notificationProduser;
+
+    @Mock
+    private NotificationDigestRepository notificationDigestRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private final RecordingTransactionManager transactionManager = new RecordingTransactionManager();
+
+    private final List<Object[]> rows = new ArrayList<>();
+    private final List<Timestamp> cutoffs = new ArrayList<>();
+
+    private NotificationCoalescer notificationCoalescer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        notificationCoalescer = new NotificationCoalescer(notificationProduser, notificationDigestRepository,
+                jdbcTemplate, transactionManager, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(notificationCoalescer, "enabled", true);
+        ReflectionTestUtils.setField(notificationCoalescer, "window", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(notificationCoalescer, "maxRecipients", 100);
+        ReflectionTestUtils.setField(notificationCoalescer, "flushBatchSize", 500);
+        lenient().when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(), any())).thenAnswer(invocation -> {
+            cutoffs.add(invocation.getArgument(2));
+            RowMapper<?> mapper = invocation.getArgument(1);
+            List<Object> result = new ArrayList<>();
+            for (Object[] row : rows) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getString("username")).thenReturn((String) row[0]);
+                when(rs.getInt("task_count")).thenReturn((Integer) row[1]);
+                when(rs.getString("task_ids")).thenReturn((String) row[2]);
+                result.add(mapper.mapRow(rs, result.size()));
+            }
+            rows.clear();
+            return result;
+        });
+    }
+
+    @Test
+    void tasksAssigned_ShouldAddToDigestInCallerTransaction() {
+        // When
+        notificationCoalescer.tasksAssigned("testuser", List.of(1L, 2L));
+
+        // Then
+        verify(notificationDigestRepository).add(eq("testuser"), any(), eq(2), eq("1,2"), eq(NotificationEvent.MAX_LISTED));
+        verifyNoInteractions(notificationProduser);
+    }
+
+    @Test
+    void tasksAssigned_ForBulkAssignment_ShouldKeepOnlyListedIds() {
+        // When
+        notificationCoalescer.tasksAssigned("testuser", List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L, 11L, 12L));
+
+        // Then
+        verify(notificationDigestRepository).add(eq("testuser"), any(), eq(12), eq("1,2,3,4,5,6,7,8,9,10"), anyInt());
+    }
+
+    @Test
+    void flushDue_ShouldSendClaimedDigests() {
+        // Given
+        when(notificationDigestRepository.count()).thenReturn(2L);
+        rows.add(new Object[]{"testuser", 500, "1,2,3,4,5,6,7,8,9,10"});
+        rows.add(new Object[]{"other", 1, "501"});
+
+        // When
+        notificationCoalescer.flushDue();
+
+        // Then
+        assertThat(sentTexts()).containsExactlyInAnyOrder(
+                "testuser: появилось новых заданий: 500 (id: 1, 2, 3, 4, 5, 6, 7, 8, 9, 10 и еще 490)",
+                "other: появилось новое задание");
+        assertThat(cutoffs.get(0).toLocalDateTime()).isBefore(LocalDateTime.now().minusSeconds(59));
+    }
+
+    @Test
+    void flushDue_WhenNothingPending_ShouldNotClaim() {
+        // Given
+        when(notificationDigestRepository.count()).thenReturn(0L);
+
+        // When
+        notificationCoalescer.flushDue();
+
+        // Then
+        verifyNoInteractions(jdbcTemplate, notificationProduser);
+    }
+
+    @Test
+    void flushDue_WhenBufferOverflowsInsideCallerTransaction_ShouldCommitDigestsInOwnTransaction() {
+        // Given
+        ReflectionTestUtils.setField(notificationCoalescer, "maxRecipients", 2);
+        when(notificationDigestRepository.count()).thenReturn(3L);
+        rows.add(new Object[]{"user1", 1, "1"});
+        List<String> sentIn = new ArrayList<>();
+        doAnswer(invocation -> sentIn.add(transactionManager.current)).when(notificationProduser).send(any());
+
+        // When: вызывающая транзакция потом откатывается
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            notificationCoalescer.flushDue();
+            status.setRollbackOnly();
+        });
+
+        // Then: сводка ушла в outbox новой транзакцией, не дожидаясь окна, и она закоммичена
+        assertThat(sentIn).containsExactly("tx2");
+        assertThat(transactionManager.committed).containsExactly("tx2");
+        assertThat(transactionManager.rolledBack).containsExactly("tx1");
+        assertThat(cutoffs.get(0).toLocalDateTime()).isAfter(LocalDateTime.now().minusSeconds(5));
+    }
+
+    @Test
+    void tasksAssigned_WhenDisabled_ShouldSendImmediately() {
+        // Given
+        ReflectionTestUtils.setField(notificationCoalescer, "enabled", false);
+
+        // When
+        notificationCoalescer.tasksAssigned("testuser", List.of(1L));
+
+        // Then
+        assertThat(sentTexts()).containsExactly("testuser: появилось новое задание");
+        verifyNoInteractions(notificationDigestRepository);
+    }
+
+    private List<String> sentTexts() {
+        ArgumentCaptor<NotificationEvent> captor = ArgumentCaptor.forClass(NotificationEvent.class);
+        verify(notificationProduser, atLeast(0)).send(captor.capture());
+        return captor.getAllValues().stream()
+                .map(e -> e.getRecipient() + ": " + NotificationEventSerializer.toText(e))
+                .toList();
+    }
+
+    // менеджер транзакций без базы, но с настоящей логикой распространения spring: REQUIRES_NEW приостанавливает
+    // текущую транзакцию и начинает новую, участие в существующей не коммитит ее
+    private static final class RecordingTransactionManager extends AbstractPlatformTransactionManager {
+
+        private final List<String> committed = new ArrayList<>();
+        private final List<String> rolledBack = new ArrayList<>();
+        private String current;
+        private int started;
+
+        @Override
+        protected Object doGetTransaction() {
+            return new String[]{current};
+        }
+
+        @Override
+        protected boolean isExistingTransaction(Object transaction) {
+            return ((String[]) transaction)[0] != null;
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+            current = "tx" + (++started);
+            ((String[]) transaction)[0] = current;
+        }
+
+        @Override
+        protected Object doSuspend(Object transaction) {
+            String suspended = current;
+            current = null;
+            ((String[]) transaction)[0] = null;
+            return suspended;
+        }
+
+        @Override
+        protected void doResume(Object transaction, Object suspendedResources) {
+            current = (String) suspendedResources;
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+            committed.add(((String[]) status.getTransaction())[0]);
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+            rolledBack.add(((String[]) status.getTransaction())[0]);
+        }
+
+        @Override
+        protected void doCleanupAfterCompletion(Object transaction) {
+            current = null;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.server1.service;
+
+import com.example.server1.entity.InboxNotification;
+import com.example.server1.repository.InboxNotificationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationInboxServiceTest {
+
+    @Mock
+    private InboxNotificationRepository inboxNotificationRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private NotificationInboxService notificationInboxService;
+
+    @BeforeEach
+    void setUp() {
+        notificationInboxService = new NotificationInboxService(inboxNotificationRepository, jdbcTemplate, transactionManager);
+        ReflectionTestUtils.setField(notificationInboxService, "unreadCacheTtlMs", 60_000L);
+        ReflectionTestUtils.setField(notificationInboxService, "unreadCacheSize", 100);
+    }
+
+    @Test
+    void findPage_WhenBeforeIdIsNull_ShouldReturnFirstPage() {
+        // When
+        notificationInboxService.findPage("user", null, 20);
+
+        // Then
+        verify(inboxNotificationRepository).findByUsernameOrderByIdDesc("user", PageRequest.of(0, 20));
+        verify(inboxNotificationRepository, never()).findByUsernameAndIdLessThanOrderByIdDesc(any(), any(), any());
+    }
+
+    @Test
+    void findPage_WhenBeforeIdIsSet_ShouldSeekFromIdAndCapSize() {
+        // When
+        notificationInboxService.findPage("user", 500L, 10_000);
+
+        // Then
+        verify(inboxNotificationRepository).findByUsernameAndIdLessThanOrderByIdDesc("user", 500L, PageRequest.of(0, 100));
+    }
+
+    @Test
+    void unreadCount_WhenCached_ShouldNotQueryDatabaseAgain() {
+        // Given
+        when(inboxNotificationRepository.countUnread("user")).thenReturn(3L);
+
+        // When
+        long first = notificationInboxService.unreadCount("user");
+        long second = notificationInboxService.unreadCount("user");
+
+        // Then
+        assertThat(first).isEqualTo(3L);
+        assertThat(second).isEqualTo(3L);
+        verify(inboxNotificationRepository, times(1)).countUnread("user");
+    }
+
+    @Test
+    void markRead_ShouldEvictCachedUnreadCount() {
+        // Given
+        when(inboxNotificationRepository.countUnread("user")).thenReturn(3L, 1L);
+        when(inboxNotificationRepository.markRead(eq("user"), eq(List.of(1L, 2L)), any(LocalDateTime.class))).thenReturn(2);
+        notificationInboxService.unreadCount("user");
+
+        // When
+        int updated = notificationInboxService.markRead("user", List.of(1L, 2L));
+
+        // Then
+        assertThat(updated).isEqualTo(2);
+        assertThat(notificationInboxService.unreadCount("user")).isEqualTo(1L);
+    }
+
+    @Test
+    void markRead_WhenIdsEmpty_ShouldNotTouchDatabase() {
+        // When
+        int updated = notificationInboxService.markRead("user", List.of());
+
+        // Then
+        assertThat(updated).isZero();
+        verifyNoInteractions(inboxNotificationRepository, transactionManager);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void saveBatch_ShouldInsertInOneBatchAndEvictRecipients() {
+        // Given
+        when(inboxNotificationRepository.countUnread("user")).thenReturn(0L, 2L);
+        notificationInboxService.unreadCount("user");
+        List<InboxNotification> notifications = List.of(notification("user", 10), notification("user", 11));
+
+        // When
+        notificationInboxService.saveBatch(notifications);
+
+        // Then
+        verify(jdbcTemplate).batchUpdate(contains("ON CONFLICT (source_partition, source_offset) DO NOTHING"),
+                eq(notifications), eq(2), any(ParameterizedPreparedStatementSetter.class));
+        assertThat(notificationInboxService.unreadCount("user")).isEqualTo(2L);
+    }
+
+    @Test
+    void saveBatch_WhenEmpty_ShouldNotTouchDatabase() {
+        // When
+        notificationInboxService.saveBatch(List.of());
+
+        // Then
+        verifyNoInteractions(jdbcTemplate, transactionManager);
+    }
+
+    private static InboxNotification notification(String username, long offset) {
+        return InboxNotification.builder()
+                .username(username)
+                .type("TASK_ASSIGNED")
+                .payload("{}")
+                .createdAt(LocalDateTime.now())
+                .sourcePartition(0)
+                .sourceOffset(offset)
+                .build();
+    }
+}
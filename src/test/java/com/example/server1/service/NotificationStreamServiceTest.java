@@ -0,0 +1,129 @@
+package com.example.server1.service;
+
+import com.example.server1.avro.AvroCodec;
+import com.example.server1.avro.LocalSchemaRegistry;
+import com.example.server1.controller.NotificationRecordReader;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NotificationStreamServiceTest {
+
+    private NotificationStreamService notificationStreamService;
+
+    @BeforeEach
+    void setUp() {
+        notificationStreamService = new NotificationStreamService(new NotificationRecordReader(new AvroCodec(new LocalSchemaRegistry())),
+                new SimpleMeterRegistry(), 100, 1);
+        ReflectionTestUtils.setField(notificationStreamService, "maxConnections", 2);
+        ReflectionTestUtils.setField(notificationStreamService, "queueCapacity", 10);
+        ReflectionTestUtils.setField(notificationStreamService, "sendTimeoutMs", 50L);
+        ReflectionTestUtils.setField(notificationStreamService, "maxSenderThreads", 4);
+    }
+
+    @Test
+    void subscribe_WhenConnectionLimitReached_ShouldReject() {
+        // When
+        notificationStreamService.subscribe("user1", null, 1000);
+        notificationStreamService.subscribe("user2", null, 1000);
+
+        // Then
+        assertThat(notificationStreamService.subscribe("user3", null, 1000)).isNull();
+        assertThat(notificationStreamService.connectionCount()).isEqualTo(2);
+    }
+
+    @Test
+    void expireStalledSends_WhenWriteHangs_ShouldDisconnectClientAndKeepSendingToOthers() throws Exception {
+        // Given: единственный поток отправки висит в записи медленному клиенту
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch stalled = new CountDownLatch(1);
+        CountDownLatch delivered = new CountDownLatch(1);
+        connect(notificationStreamService.subscribe("slow", null, 60000), () -> {
+            stalled.countDown();
+            release.await();
+        });
+        connect(notificationStreamService.subscribe("fast", null, 60000), delivered::countDown);
+        notificationStreamService.onNotification(record("slow", 1));
+        assertThat(stalled.await(5, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(100);
+
+        // When
+        notificationStreamService.expireStalledSends();
+        notificationStreamService.onNotification(record("fast", 2));
+
+        // Then
+        try {
+            assertThat(delivered.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(notificationStreamService.connectionCount()).isEqualTo(1);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void replayBuffer_ShouldReturnOnlyUsersEventsAfterLastEventId() {
+        // Given
+        NotificationStreamService.ReplayBuffer buffer = new NotificationStreamService.ReplayBuffer(10);
+        buffer.add(event("testuser", 10));
+        buffer.add(event("other", 11));
+        buffer.add(event("testuser", 12));
+        buffer.add(event("testuser", 13));
+
+        // When & Then
+        assertThat(buffer.after("testuser", "0-10"))
+                .extracting(NotificationStreamService.StreamEvent::offset)
+                .containsExactly(12L, 13L);
+        assertThat(buffer.after("testuser", "garbage")).isEmpty();
+    }
+
+    @Test
+    void replayBuffer_WhenFull_ShouldKeepOnlyLatestEvents() {
+        // Given
+        NotificationStreamService.ReplayBuffer buffer = new NotificationStreamService.ReplayBuffer(3);
+        for (long offset = 1; offset <= 5; offset++) {
+            buffer.add(event("testuser", offset));
+        }
+
+        // When & Then
+        assertThat(buffer.after("testuser", "0-0"))
+                .extracting(NotificationStreamService.StreamEvent::offset)
+                .containsExactly(3L, 4L, 5L);
+    }
+
+    private interface Write {
+        void run() throws InterruptedException;
+    }
+
+    // подключение без сервлета: каждая запись в emitter вызывает write
+    private static void connect(SseEmitter emitter, Write write) throws Exception {
+        Class<?> handlerType = Class.forName(ResponseBodyEmitter.class.getName() + "$Handler");
+        Object handler = Proxy.newProxyInstance(handlerType.getClassLoader(), new Class<?>[]{handlerType},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("send")) {
+                        write.run();
+                    }
+                    return null;
+                });
+        ReflectionTestUtils.invokeMethod(emitter, "initialize", handler);
+    }
+
+    private static ConsumerRecord<String, byte[]> record(String username, long offset) {
+        return new ConsumerRecord<>("notifications_for_user", 0, offset, username,
+                "{\"type\":\"TASK_UPDATED\"}".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private NotificationStreamService.StreamEvent event(String username, long offset) {
+        return new NotificationStreamService.StreamEvent(username, 0, offset, "{}");
+    }
+}
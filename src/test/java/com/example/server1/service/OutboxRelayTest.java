@@ -0,0 +1,193 @@
+package com.example.server1.service;
+
+import com.example.server1.entity.OutboxMessage;
+import com.example.server1.messaging.MessageBus;
+import com.example.server1.repository.OutboxMessageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    @Mock
+    private OutboxMessageRepository outboxMessageRepository;
+
+    @Mock
+    private MessageBus messageBus;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private OutboxRelay outboxRelay;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        outboxRelay = new OutboxRelay(outboxMessageRepository, messageBus, meterRegistry, transactionManager);
+        ReflectionTestUtils.setField(outboxRelay, "batchSize", 100);
+        ReflectionTestUtils.setField(outboxRelay, "ordered", true);
+        ReflectionTestUtils.setField(outboxRelay, "sendTimeout", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(outboxRelay, "initialBackoff", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(outboxRelay, "maxBackoff", Duration.ofMinutes(1));
+    }
+
+    @Test
+    void relayBatch_ShouldDeleteOnlyAcknowledgedMessages() {
+        // Given
+        when(outboxMessageRepository.tryRelayLock(anyLong())).thenReturn(true);
+        OutboxMessage other = message(3L);
+        other.setMessageKey("otheruser");
+        when(outboxMessageRepository.lockBatch(100)).thenReturn(List.of(message(1L), message(2L), other));
+        doReturn(CompletableFuture.completedFuture(null))
+                .doReturn(CompletableFuture.failedFuture(new IllegalStateException("broker unavailable")))
+                .doReturn(CompletableFuture.completedFuture(null))
+                .when(messageBus).publish(anyString(), anyString(), anyString(), any());
+
+        // When
+        int locked = outboxRelay.relayBatch();
+
+        // Then
+        assertThat(locked).isEqualTo(3);
+        verify(outboxMessageRepository).deleteByIds(List.of(1L, 3L));
+        assertThat(outboxRelay.isBrokerAvailable()).isTrue();
+    }
+
+    @Test
+    void relayBatch_ShouldPublishTopicKeyContentTypeAndPayload() {
+        // Given
+        when(outboxMessageRepository.tryRelayLock(anyLong())).thenReturn(true);
+        OutboxMessage message = message(1L);
+        when(outboxMessageRepository.lockBatch(100)).thenReturn(List.of(message));
+        doReturn(CompletableFuture.completedFuture(null))
+                .when(messageBus).publish(anyString(), anyString(), anyString(), any());
+
+        // When
+        outboxRelay.relayBatch();
+
+        // Then
+        verify(messageBus).publish(eq("notifications_for_user"), eq("testuser"), eq("text/plain"), eq(message.getPayload()));
+    }
+
+    @Test
+    void relayBatch_WhenOutboxEmpty_ShouldNotSend() {
+        // Given
+        when(outboxMessageRepository.tryRelayLock(anyLong())).thenReturn(true);
+        when(outboxMessageRepository.lockBatch(anyInt())).thenReturn(List.of());
+
+        // When
+        int locked = outboxRelay.relayBatch();
+
+        // Then
+        assertThat(locked).isZero();
+        verifyNoInteractions(messageBus);
+        verify(outboxMessageRepository, never()).deleteByIds(any());
+    }
+
+    @Test
+    void relayBatch_WhenNothingAcknowledged_ShouldMarkBrokerUnavailableAndProbeWithOneMessage() {
+        // Given
+        when(outboxMessageRepository.tryRelayLock(anyLong())).thenReturn(true);
+        when(outboxMessageRepository.lockBatch(100)).thenReturn(List.of(message(1L), message(2L)));
+        when(outboxMessageRepository.lockBatch(1)).thenReturn(List.of(message(1L)));
+        doReturn(CompletableFuture.failedFuture(new IllegalStateException("broker unavailable")))
+                .doReturn(CompletableFuture.failedFuture(new IllegalStateException("broker unavailable")))
+                .doReturn(CompletableFuture.completedFuture(null))
+                .when(messageBus).publish(anyString(), anyString(), anyString(), any());
+
+        // When
+        outboxRelay.relayBatch();
+        boolean availableAfterFailure = outboxRelay.isBrokerAvailable();
+        int probed = outboxRelay.relayBatch();
+
+        // Then
+        assertThat(availableAfterFailure).isFalse();
+        assertThat(probed).isEqualTo(1);
+        assertThat(outboxRelay.isBrokerAvailable()).isTrue();
+        verify(outboxMessageRepository).deleteByIds(List.of(1L));
+        assertThat(meterRegistry.get("outbox.broker.available").gauge().value()).isEqualTo(1.0);
+    }
+
+    @Test
+    void relayBatch_WhenPublishThrows_ShouldNotSendRestOfBatch() {
+        // Given
+        when(outboxMessageRepository.tryRelayLock(anyLong())).thenReturn(true);
+        when(outboxMessageRepository.lockBatch(100)).thenReturn(List.of(message(1L), message(2L), message(3L)));
+        when(messageBus.publish(anyString(), anyString(), anyString(), any()))
+                .thenThrow(new IllegalStateException("no metadata after max.block.ms"));
+
+        // When
+        outboxRelay.relayBatch();
+
+        // Then
+        verify(messageBus, times(1)).publish(anyString(), anyString(), anyString(), any());
+        verify(outboxMessageRepository, never()).deleteByIds(any());
+        assertThat(outboxRelay.isBrokerAvailable()).isFalse();
+    }
+
+    @Test
+    void relayBatch_WhenEarlierMessageOfSameKeyFailed_ShouldKeepLaterOneForResend() {
+        // Given
+        when(outboxMessageRepository.tryRelayLock(anyLong())).thenReturn(true);
+        OutboxMessage other = message(3L);
+        other.setMessageKey("otheruser");
+        when(outboxMessageRepository.lockBatch(100)).thenReturn(List.of(message(1L), message(2L), other));
+        doReturn(CompletableFuture.failedFuture(new IllegalStateException("record too large")))
+                .doReturn(CompletableFuture.completedFuture(null))
+                .doReturn(CompletableFuture.completedFuture(null))
+                .when(messageBus).publish(anyString(), anyString(), anyString(), any());
+
+        // When
+        outboxRelay.relayBatch();
+
+        // Then
+        verify(outboxMessageRepository).deleteByIds(List.of(3L));
+        assertThat(outboxRelay.isBrokerAvailable()).isTrue();
+    }
+
+    @Test
+    void relayBatch_WhenAnotherNodeHoldsRelayLock_ShouldSkip() {
+        // Given
+        when(outboxMessageRepository.tryRelayLock(anyLong())).thenReturn(false);
+
+        // When
+        int locked = outboxRelay.relayBatch();
+
+        // Then
+        assertThat(locked).isZero();
+        verify(outboxMessageRepository, never()).lockBatch(anyInt());
+        verifyNoInteractions(messageBus);
+    }
+
+    private OutboxMessage message(Long id) {
+        return OutboxMessage.builder()
+                .id(id)
+                .topic("notifications_for_user")
+                .messageKey("testuser")
+                .contentType("text/plain")
+                .payload("появилось новое задание".getBytes(StandardCharsets.UTF_8))
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.server1.service;
+
+import com.example.server1.controller.NotificationProduser;
+import com.example.server1.entity.JobState;
+import com.example.server1.entity.NotificationType;
+import com.example.server1.entity.OverdueTask;
+import com.example.server1.entity.Status;
+import com.example.server1.repository.JobStateRepository;
+import com.example.server1.repository.TaskRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OverdueTaskServiceTest {
+
+    @Mock
+    private TaskRepository taskRepository;
+
+    @Mock
+    private JobStateRepository jobStateRepository;
+
+    @Mock
+    private NotificationProduser notificationProduser;
+
+    @InjectMocks
+    private OverdueTaskService overdueTaskService;
+
+    private LocalDateTime watermark;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(overdueTaskService, "batchSize", 2);
+        ReflectionTestUtils.setField(overdueTaskService, "maxBatchesPerRun", 5);
+        ReflectionTestUtils.setField(overdueTaskService, "initialLookback", Duration.ofDays(1));
+        watermark = LocalDateTime.now().minusHours(2);
+        when(jobStateRepository.findById(OverdueTaskService.JOB_NAME)).thenReturn(Optional.of(
+                JobState.builder().name(OverdueTaskService.JOB_NAME).watermark(watermark).watermarkId(0L).build()));
+    }
+
+    @Test
+    void processNewlyOverdue_ShouldSendOneNotificationPerUser() {
+        // Given
+        LocalDateTime deadline = watermark.plusMinutes(10);
+        when(taskRepository.findNewlyOverdue(eq(watermark), eq(0L), any(LocalDateTime.class), eq(Status.ЗАВЕРШЕНА), any(Pageable.class)))
+                .thenReturn(List.of(
+                        new OverdueTask(1L, "first", deadline, "testuser"),
+                        new OverdueTask(2L, "second", deadline, "testuser")));
+        when(taskRepository.findNewlyOverdue(eq(deadline), eq(2L), any(LocalDateTime.class), eq(Status.ЗАВЕРШЕНА), any(Pageable.class)))
+                .thenReturn(List.of(new OverdueTask(3L, "third", deadline.plusMinutes(1), "other")));
+
+        // When
+        int found = overdueTaskService.processNewlyOverdue();
+
+        // Then
+        assertThat(found).isEqualTo(3);
+        verify(notificationProduser).send(argThat(e -> e.getType() == NotificationType.TASKS_OVERDUE
+                && e.getCount() == 2 && e.getRecipient().equals("testuser")));
+        verify(notificationProduser).send(argThat(e -> e.getCount() == 1 && e.getRecipient().equals("other")));
+        verifyNoMoreInteractions(notificationProduser);
+    }
+
+    @Test
+    void processNewlyOverdue_WhenCaughtUp_ShouldMoveWatermarkToNow() {
+        // Given
+        when(taskRepository.findNewlyOverdue(any(LocalDateTime.class), anyLong(), any(LocalDateTime.class), eq(Status.ЗАВЕРШЕНА), any(Pageable.class)))
+                .thenReturn(List.of());
+
+        // When
+        overdueTaskService.processNewlyOverdue();
+
+        // Then
+        ArgumentCaptor<JobState> saved = ArgumentCaptor.forClass(JobState.class);
+        verify(jobStateRepository).save(saved.capture());
+        assertThat(saved.getValue().getWatermark()).isAfter(watermark);
+        assertThat(saved.getValue().getWatermarkId()).isEqualTo(Long.MAX_VALUE);
+        verifyNoInteractions(notificationProduser);
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.server1.service;
+
+import com.example.server1.entity.Importance;
+import com.example.server1.entity.ImportanceCount;
+import com.example.server1.entity.Status;
+import com.example.server1.entity.StatusCount;
+import com.example.server1.entity.TaskStats;
+import com.example.server1.entity.UserTaskCount;
+import com.example.server1.repository.TaskRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StatsServiceTest {
+
+    @Mock
+    private TaskRepository taskRepository;
+
+    @InjectMocks
+    private StatsService statsService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(statsService, "cacheTtlMs", 60_000L);
+        when(taskRepository.countByStatus()).thenReturn(List.of(new StatusCount(Status.В_РАБОТЕ, 2L)));
+        when(taskRepository.countByImportance()).thenReturn(List.of(new ImportanceCount(Importance.СРОЧНАЯ, 2L)));
+        when(taskRepository.countByUser(any(LocalDateTime.class), eq(Status.ЗАВЕРШЕНА)))
+                .thenReturn(List.of(new UserTaskCount("testuser", 2L, 1L)));
+        when(taskRepository.countOverdue(any(LocalDateTime.class), eq(Status.ЗАВЕРШЕНА))).thenReturn(1L);
+    }
+
+    @Test
+    void getStats_ShouldFillMissingGroupsWithZero() {
+        // When
+        TaskStats stats = statsService.getStats();
+
+        // Then
+        assertThat(stats.getByStatus()).hasSize(Status.values().length);
+        assertThat(stats.getByStatus().get(Status.В_РАБОТЕ)).isEqualTo(2L);
+        assertThat(stats.getByStatus().get(Status.ЗАВЕРШЕНА)).isZero();
+        assertThat(stats.getByImportance().get(Importance.СРОЧНАЯ)).isEqualTo(2L);
+        assertThat(stats.getByImportance().get(Importance.МОЖЕТ_ПОДОЖДАТЬ)).isZero();
+        assertThat(stats.getByUser()).containsExactly(new UserTaskCount("testuser", 2L, 1L));
+        assertThat(stats.getOverdue()).isEqualTo(1L);
+    }
+
+    @Test
+    void getStats_WhenCacheIsFresh_ShouldNotQueryDatabaseAgain() {
+        // When
+        TaskStats first = statsService.getStats();
+        TaskStats second = statsService.getStats();
+
+        // Then
+        assertThat(second).isSameAs(first);
+        verify(taskRepository, times(1)).countByStatus();
+    }
+
+    @Test
+    void getStats_WhenCacheDisabled_ShouldQueryEveryTime() {
+        // Given
+        ReflectionTestUtils.setField(statsService, "cacheTtlMs", 0L);
+
+        // When
+        statsService.getStats();
+        statsService.getStats();
+
+        // Then
+        verify(taskRepository, times(2)).countByStatus();
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.server1.service;
+
+import com.example.server1.entity.Importance;
+import com.example.server1.entity.Status;
+import com.example.server1.entity.Task;
+import com.example.server1.entity.User;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TaskChangelogPublisherTest {
+
+    @Mock
+    private OutboxService outboxService;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private TaskChangelogPublisher taskChangelogPublisher;
+
+    @BeforeEach
+    void setUp() {
+        taskChangelogPublisher = new TaskChangelogPublisher(outboxService, entityManager);
+        ReflectionTestUtils.setField(taskChangelogPublisher, "enabled", true);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void changed_ShouldFlushThenEnqueueTaskStateKeyedById() {
+        // Given
+        User user = new User();
+        user.setUsername("testuser");
+        Task task = Task.builder()
+                .id(42L)
+                .title("Отчет")
+                .status(Status.ЗАВЕРШЕНА)
+                .importance(Importance.СРОЧНАЯ)
+                .completedAt(LocalDateTime.of(2025, 1, 2, 3, 4, 5))
+                .assignee(user)
+                .build();
+
+        // When
+        taskChangelogPublisher.changed(task);
+
+        // Then
+        ArgumentCaptor<Map<String, byte[]>> captor = ArgumentCaptor.forClass(Map.class);
+        InOrder inOrder = inOrder(entityManager, outboxService);
+        inOrder.verify(entityManager).flush();
+        inOrder.verify(outboxService).enqueueAll(eq("task-changelog"), eq("application/json"), captor.capture());
+        String json = new String(captor.getValue().get("42"), StandardCharsets.UTF_8);
+        assertThat(json).startsWith("{\"id\":42,\"title\":\"Отчет\",\"status\":\"ЗАВЕРШЕНА\",\"importance\":\"СРОЧНАЯ\","
+                + "\"completedAt\":\"2025-01-02T03:04:05\",\"assignee\":\"testuser\",\"changedAt\":");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void deleted_ShouldEnqueueTombstones() {
+        // When
+        taskChangelogPublisher.deleted(List.of(1L, 2L));
+
+        // Then
+        ArgumentCaptor<Map<String, byte[]>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(outboxService).enqueueAll(eq("task-changelog"), eq(null), captor.capture());
+        assertThat(captor.getValue()).containsOnlyKeys("1", "2");
+        assertThat(captor.getValue().values()).containsOnlyNulls();
+    }
+
+    @Test
+    void changed_WhenDisabled_ShouldNotEnqueue() {
+        // Given
+        ReflectionTestUtils.setField(taskChangelogPublisher, "enabled", false);
+
+        // When
+        taskChangelogPublisher.changed(new Task());
+        taskChangelogPublisher.deleted(List.of(1L));
+
+        // Then
+        verify(outboxService, never()).enqueueAll(any(), any(), anyMap());
+        verifyNoInteractions(entityManager);
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.server1.service;
+
+import com.example.server1.config.KafkaTopics;
+import com.example.server1.config.TaskLane;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TaskLaneSchedulerTest {
+
+    private static final TopicPartition URGENT = new TopicPartition(KafkaTopics.TASK_ASSIGNMENTS_URGENT, 0);
+    private static final TopicPartition NORMAL = new TopicPartition(KafkaTopics.TASK_ASSIGNMENTS_NORMAL, 0);
+    private static final TopicPartition BACKLOG = new TopicPartition(KafkaTopics.TASK_ASSIGNMENTS, 0);
+
+    @Mock
+    private KafkaListenerEndpointRegistry listenerRegistry;
+
+    @Mock
+    private MessageListenerContainer container;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Map<TopicPartition, Double> lag = new HashMap<>();
+    private final Set<TopicPartition> paused = new HashSet<>();
+
+    private TaskLaneScheduler taskLaneScheduler;
+
+    @BeforeEach
+    void setUp() {
+        taskLaneScheduler = new TaskLaneScheduler(listenerRegistry, meterRegistry);
+        ReflectionTestUtils.setField(taskLaneScheduler, "enabled", true);
+        ReflectionTestUtils.setField(taskLaneScheduler, "lagThreshold", 0L);
+        ReflectionTestUtils.setField(taskLaneScheduler, "maxPause", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(taskLaneScheduler, "minRun", Duration.ofSeconds(1));
+        when(listenerRegistry.getAllListenerContainers()).thenReturn(List.of(container));
+        when(container.metrics()).thenAnswer(invocation -> Map.of("consumer-0", lagMetrics()));
+        lenient().when(container.getAssignedPartitions()).thenReturn(List.of(URGENT, NORMAL, BACKLOG));
+        lenient().when(container.isPartitionPauseRequested(any()))
+                .thenAnswer(invocation -> paused.contains(invocation.<TopicPartition>getArgument(0)));
+        lenient().doAnswer(invocation -> paused.add(invocation.getArgument(0))).when(container).pausePartition(any());
+        lenient().doAnswer(invocation -> paused.remove(invocation.getArgument(0))).when(container).resumePartition(any());
+    }
+
+    @Test
+    void schedule_WhenUrgentLaneLags_ShouldPauseLowerLanes() {
+        // Given
+        lag.put(URGENT, 10.0);
+
+        // When
+        taskLaneScheduler.schedule(1_000);
+
+        // Then
+        assertThat(paused).containsExactlyInAnyOrder(NORMAL, BACKLOG);
+        assertThat(taskLaneScheduler.isPaused(TaskLane.URGENT)).isFalse();
+        assertThat(meterRegistry.get("kafka.lane.lag").tag("lane", "urgent").gauge().value()).isEqualTo(10.0);
+        assertThat(meterRegistry.get("kafka.lane.paused").tag("lane", "backlog").gauge().value()).isEqualTo(1.0);
+    }
+
+    @Test
+    void schedule_WhenOnlyNormalLaneLags_ShouldPauseOnlyBacklog() {
+        // Given
+        lag.put(NORMAL, 3.0);
+        lag.put(BACKLOG, 100.0);
+
+        // When
+        taskLaneScheduler.schedule(1_000);
+
+        // Then
+        assertThat(paused).containsExactly(BACKLOG);
+    }
+
+    @Test
+    void schedule_WhenPausedLongerThanMaxPause_ShouldLetLaneRunForMinRun() {
+        // Given
+        lag.put(URGENT, 10.0);
+        taskLaneScheduler.schedule(1_000);
+
+        // When
+        taskLaneScheduler.schedule(6_000);
+
+        // Then
+        assertThat(paused).isEmpty();
+
+        // When: в пределах min-run полоса не встает снова, после него - встает
+        taskLaneScheduler.schedule(6_500);
+        assertThat(paused).isEmpty();
+        taskLaneScheduler.schedule(7_000);
+
+        // Then
+        assertThat(paused).containsExactlyInAnyOrder(NORMAL, BACKLOG);
+        assertThat(meterRegistry.get("kafka.lane.pauses").tag("lane", "backlog").counter().count()).isEqualTo(2.0);
+    }
+
+    @Test
+    void schedule_WhenUrgentLagCleared_ShouldResumeLowerLanes() {
+        // Given
+        lag.put(URGENT, 10.0);
+        taskLaneScheduler.schedule(1_000);
+        lag.put(URGENT, 0.0);
+
+        // When
+        taskLaneScheduler.schedule(1_500);
+
+        // Then
+        assertThat(paused).isEmpty();
+        assertThat(taskLaneScheduler.isPaused(TaskLane.BACKLOG)).isFalse();
+    }
+
+    @Test
+    void schedule_WhenDisabled_ShouldOnlyReportLag() {
+        // Given
+        ReflectionTestUtils.setField(taskLaneScheduler, "enabled", false);
+        lag.put(URGENT, 10.0);
+
+        // When
+        taskLaneScheduler.schedule(1_000);
+
+        // Then
+        verify(container, never()).pausePartition(any());
+        assertThat(meterRegistry.get("kafka.lane.lag").tag("lane", "urgent").gauge().value()).isEqualTo(10.0);
+    }
+
+    private Map<MetricName, Metric> lagMetrics() {
+        Map<MetricName, Metric> metrics = new HashMap<>();
+        lag.forEach((partition, value) -> {
+            Metric metric = mock(Metric.class);
+            when(metric.metricValue()).thenReturn(value);
+            metrics.put(new MetricName("records-lag", "consumer-fetch-manager-metrics", "",
+                    Map.of("topic", partition.topic(), "partition", String.valueOf(partition.partition()))), metric);
+        });
+        return metrics;
+    }
+}
@@ -3,6 +3,8 @@ package com.example.server1.service;
 import com.example.server1.controller.NotificationProduser;
 import com.example.server1.entity.Comment;
 import com.example.server1.entity.Importance;
+import com.example.server1.entity.NotificationEvent;
+import com.example.server1.entity.NotificationType;
 import com.example.server1.entity.Status;
 import com.example.server1.entity.Task;
 import com.example.server1.entity.User;
@@ -40,6 +42,12 @@ class TaskServiceTest {
     @Mock
     private NotificationProduser notificationProduser;
 
+    @Mock
+    private TaskCounterService taskCounterService;
+
+    @Mock
+    private TaskChangelogPublisher taskChangelogPublisher;
+
     @InjectMocks
     private TaskService taskService;
 
@@ -105,7 +113,7 @@ class TaskServiceTest {
     void markTaskAsInWork_WhenTaskNotStarted_ShouldChangeStatus() {
         // Given
         task.setStatus(Status.НЕ_НАЧАТА);
-        when(taskRepository.findById(1L)).thenReturn(Optional.of(task));
+        when(taskRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(task));
         when(taskRepository.save(any(Task.class))).thenReturn(task);
 
         // When
@@ -115,13 +123,14 @@ class TaskServiceTest {
         assertThat(result).isEqualTo("Статус изменен");
         assertThat(task.getStatus()).isEqualTo(Status.В_РАБОТЕ);
         verify(taskRepository).save(task);
+        verify(taskCounterService).statusChanged(user.getId(), Status.НЕ_НАЧАТА, Status.В_РАБОТЕ);
     }
 
     @Test
     void markTaskAsInWork_WhenTaskAlreadyInWork_ShouldReturnError() {
         // Given
         task.setStatus(Status.В_РАБОТЕ);
-        when(taskRepository.findById(1L)).thenReturn(Optional.of(task));
+        when(taskRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(task));
 
         // When
         String result = taskService.markTaskAsInWork(1L);
@@ -134,7 +143,7 @@ class TaskServiceTest {
     @Test
     void markTaskAsInWork_WhenTaskNotFound_ShouldThrowException() {
         // Given
-        when(taskRepository.findById(1L)).thenReturn(Optional.empty());
+        when(taskRepository.findByIdForUpdate(1L)).thenReturn(Optional.empty());
 
         // When & Then
         assertThatThrownBy(() -> taskService.markTaskAsInWork(1L))
@@ -146,7 +155,7 @@ class TaskServiceTest {
     void markTaskAsCompleted_WhenTaskInWork_ShouldChangeStatus() {
         // Given
         task.setStatus(Status.В_РАБОТЕ);
-        when(taskRepository.findById(1L)).thenReturn(Optional.of(task));
+        when(taskRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(task));
         when(taskRepository.save(any(Task.class))).thenReturn(task);
 
         // When
@@ -156,14 +165,14 @@ class TaskServiceTest {
         assertThat(result).isEqualTo("Статус изменен");
         assertThat(task.getStatus()).isEqualTo(Status.ЗАВЕРШЕНА);
         verify(taskRepository).save(task);
-        verify(notificationProduser).sendNotificationForAdmin(anyString());
+        verify(notificationProduser).send(argThat(e -> e.getType() == NotificationType.TASK_COMPLETED));
     }
 
     @Test
     void markTaskAsCompleted_WhenTaskOnRework_ShouldChangeStatus() {
         // Given
         task.setStatus(Status.НА_ДОРАБОТКЕ);
-        when(taskRepository.findById(1L)).thenReturn(Optional.of(task));
+        when(taskRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(task));
         when(taskRepository.save(any(Task.class))).thenReturn(task);
 
         // When
@@ -173,14 +182,14 @@ class TaskServiceTest {
         assertThat(result).isEqualTo("Статус изменен");
         assertThat(task.getStatus()).isEqualTo(Status.ЗАВЕРШЕНА);
         verify(taskRepository).save(task);
-        verify(notificationProduser).sendNotificationForAdmin(anyString());
+        verify(notificationProduser).send(argThat(e -> e.getType() == NotificationType.TASK_COMPLETED));
     }
 
     @Test
     void markTaskAsCompleted_WhenTaskNotStarted_ShouldReturnError() {
         // Given
         task.setStatus(Status.НЕ_НАЧАТА);
-        when(taskRepository.findById(1L)).thenReturn(Optional.of(task));
+        when(taskRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(task));
 
         // When
         String result = taskService.markTaskAsCompleted(1L);
@@ -194,7 +203,7 @@ class TaskServiceTest {
     void markTaskAsOnRework_WhenTaskCompleted_ShouldChangeStatus() {
         // Given
         task.setStatus(Status.ЗАВЕРШЕНА);
-        when(taskRepository.findById(1L)).thenReturn(Optional.of(task));
+        when(taskRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(task));
         when(taskRepository.save(any(Task.class))).thenReturn(task);
         when(commentRepositopy.save(any(Comment.class))).thenReturn(comment);
 
@@ -207,14 +216,14 @@ class TaskServiceTest {
         assertThat(task.getComments()).contains(comment);
         verify(taskRepository).save(task);
         verify(commentRepositopy).save(comment);
-        verify(notificationProduser).sendNotificationForUser(anyString(), anyString());
+        verify(notificationProduser).send(any(NotificationEvent.class));
     }
 
     @Test
     void markTaskAsOnRework_WhenTaskNotCompleted_ShouldReturnError() {
         // Given
         task.setStatus(Status.В_РАБОТЕ);
-        when(taskRepository.findById(1L)).thenReturn(Optional.of(task));
+        when(taskRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(task));
 
         // When
         String result = taskService.markTaskAsOnRework(1L, comment);
@@ -235,7 +244,7 @@ class TaskServiceTest {
                 .deadline(LocalDateTime.now().plusDays(2))
                 .build();
 
-        when(taskRepository.findTaskByTitle("Test Task")).thenReturn(Optional.of(task));
+        when(taskRepository.findTaskByTitleForUpdate("Test Task")).thenReturn(Optional.of(task));
         when(taskRepository.save(any(Task.class))).thenReturn(task);
 
         // When
@@ -247,7 +256,7 @@ class TaskServiceTest {
         assertThat(task.getStatus()).isEqualTo(Status.В_РАБОТЕ);
         assertThat(task.getImportance()).isEqualTo(Importance.НАДО_ПОТОРОПИТЬСЯ);
         verify(taskRepository).save(task);
-        verify(notificationProduser).sendNotificationForUser(anyString(), anyString());
+        verify(notificationProduser).send(any(NotificationEvent.class));
     }
 
     @Test
@@ -257,7 +266,7 @@ class TaskServiceTest {
                 .title("Non-existent Task")
                 .build();
 
-        when(taskRepository.findTaskByTitle("Non-existent Task")).thenReturn(Optional.empty());
+        when(taskRepository.findTaskByTitleForUpdate("Non-existent Task")).thenReturn(Optional.empty());
 
         // When & Then
         assertThatThrownBy(() -> taskService.updateTask(updatedTask))
@@ -0,0 +1,258 @@
+package com.example.server1.service;
+
+import com.example.server1.entity.Task;
+import com.example.server1.entity.TaskAssignment;
+import com.example.server1.entity.TaskBatchResult;
+import com.example.server1.exeptions.NotFoundExeption;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TaskWritePipelineTest {
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private DeadLetterPublishingRecoverer deadLetterPublishingRecoverer;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private TaskWritePipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        pipeline = new TaskWritePipeline(userService, deadLetterPublishingRecoverer, meterRegistry);
+        ReflectionTestUtils.setField(pipeline, "laneCount", 2);
+        ReflectionTestUtils.setField(pipeline, "queueCapacity", 100);
+        ReflectionTestUtils.setField(pipeline, "microBatchSize", 50);
+        ReflectionTestUtils.setField(pipeline, "publishTimeoutMs", 50L);
+        ReflectionTestUtils.setField(pipeline, "retryDelayMs", 1L);
+        ReflectionTestUtils.setField(pipeline, "retryMaxDelayMs", 5L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pipeline.isRunning()) {
+            pipeline.stop();
+        }
+    }
+
+    @Test
+    void publish_ShouldWriteInUserOrderAndAcknowledgeAfterWrite() throws Exception {
+        // Given
+        List<String> written = Collections.synchronizedList(new ArrayList<>());
+        when(userService.addTasksBatch(anyList())).thenAnswer(invocation -> {
+            List<TaskAssignment> assignments = invocation.getArgument(0);
+            assignments.forEach(a -> written.add(a.getAssignedUser() + ":" + a.getTask().getTitle()));
+            return new TaskBatchResult(assignments, List.of());
+        });
+        pipeline.start();
+        List<Acknowledgment> acks = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < 20; i++) {
+            Acknowledgment ack = mock(Acknowledgment.class);
+            acks.add(ack);
+            pipeline.publish(record(i), assignment("user" + (i % 3), "task" + i), ack);
+        }
+        pipeline.stop();
+
+        // Then
+        assertThat(written).hasSize(20);
+        for (String user : List.of("user0", "user1", "user2")) {
+            List<Integer> order = written.stream()
+                    .filter(w -> w.startsWith(user + ":"))
+                    .map(w -> Integer.parseInt(w.substring(w.indexOf(":task") + 5)))
+                    .toList();
+            assertThat(order).isSorted();
+        }
+        acks.forEach(ack -> verify(ack).acknowledge());
+        assertThat(meterRegistry.get("task.pipeline.latency").timer().count()).isEqualTo(20);
+    }
+
+    @Test
+    void publish_WhenDatabaseUnavailable_ShouldRetryUntilWrittenWithoutDlt() throws Exception {
+        // Given
+        when(userService.addTasksBatch(anyList()))
+                .thenThrow(new CannotGetJdbcConnectionException("db down"))
+                .thenThrow(new CannotGetJdbcConnectionException("db down"))
+                .thenAnswer(invocation -> new TaskBatchResult(invocation.getArgument(0), List.of()));
+        pipeline.start();
+        Acknowledgment ack = mock(Acknowledgment.class);
+
+        // When
+        pipeline.publish(record(0), assignment("user0", "task0"), ack);
+
+        // Then
+        verify(ack, timeout(5000)).acknowledge();
+        verify(userService, times(3)).addTasksBatch(anyList());
+        verifyNoInteractions(deadLetterPublishingRecoverer);
+    }
+
+    @Test
+    void stop_WhenDatabaseUnavailable_ShouldLeaveEntriesUnacknowledged() throws Exception {
+        // Given
+        when(userService.addTasksBatch(anyList())).thenThrow(new CannotGetJdbcConnectionException("db down"));
+        pipeline.start();
+        Acknowledgment ack = mock(Acknowledgment.class);
+        pipeline.publish(record(0), assignment("user0", "task0"), ack);
+        verify(userService, timeout(5000).atLeast(2)).addTasksBatch(anyList());
+
+        // When
+        pipeline.stop();
+
+        // Then
+        verify(ack, never()).acknowledge();
+        verifyNoInteractions(deadLetterPublishingRecoverer);
+    }
+
+    @Test
+    void publish_WhenDltSendFails_ShouldKeepWriterAliveAndRetry() throws Exception {
+        // Given
+        when(userService.addTasksBatch(anyList())).thenThrow(new DataIntegrityViolationException("value too long"));
+        doThrow(new KafkaException("dlt timeout")).doNothing()
+                .when(deadLetterPublishingRecoverer).accept(any(), any());
+        ReflectionTestUtils.setField(pipeline, "laneCount", 1);
+        pipeline.start();
+        Acknowledgment ack = mock(Acknowledgment.class);
+        Acknowledgment nextAck = mock(Acknowledgment.class);
+
+        // When
+        pipeline.publish(record(0), assignment("user0", "task0"), ack);
+        verify(ack, timeout(5000)).acknowledge();
+        pipeline.publish(record(1), assignment("user0", "task1"), nextAck);
+
+        // Then
+        verify(nextAck, timeout(5000)).acknowledge();
+        verify(deadLetterPublishingRecoverer, times(3)).accept(any(), isA(DataIntegrityViolationException.class));
+    }
+
+    @Test
+    void publish_WhenQueueFull_ShouldReturnFalseWithoutBlocking() throws Exception {
+        // Given: поток полосы занят записью, в очереди место на одну задачу
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(userService.addTasksBatch(anyList())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            return new TaskBatchResult(invocation.getArgument(0), List.of());
+        });
+        ReflectionTestUtils.setField(pipeline, "laneCount", 1);
+        ReflectionTestUtils.setField(pipeline, "queueCapacity", 1);
+        pipeline.start();
+        assertThat(pipeline.publish(record(0), assignment("user0", "task0"), mock(Acknowledgment.class))).isTrue();
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(pipeline.publish(record(1), assignment("user0", "task1"), mock(Acknowledgment.class))).isTrue();
+
+        // When
+        boolean accepted = pipeline.publish(record(2), assignment("user0", "task2"), mock(Acknowledgment.class));
+
+        // Then
+        assertThat(accepted).isFalse();
+        release.countDown();
+    }
+
+    @Test
+    void isTransient_ShouldSeparateOutagesFromBadData() {
+        assertThat(TaskWritePipeline.isTransient(new CannotGetJdbcConnectionException("db down"))).isTrue();
+        assertThat(TaskWritePipeline.isTransient(new QueryTimeoutException("timeout"))).isTrue();
+        assertThat(TaskWritePipeline.isTransient(new CannotCreateTransactionException("no connection"))).isTrue();
+        assertThat(TaskWritePipeline.isTransient(new DataIntegrityViolationException("value too long"))).isFalse();
+        assertThat(TaskWritePipeline.isTransient(new IllegalStateException("bug"))).isFalse();
+    }
+
+    @Test
+    void publish_WhenUserNotFound_ShouldSendOnlyRejectedToDlt() throws Exception {
+        // Given
+        when(userService.addTasksBatch(anyList())).thenAnswer(invocation -> {
+            List<TaskAssignment> assignments = invocation.getArgument(0);
+            List<TaskAssignment> saved = assignments.stream().filter(a -> !a.getAssignedUser().equals("ghost")).toList();
+            List<TaskAssignment> rejected = assignments.stream().filter(a -> a.getAssignedUser().equals("ghost")).toList();
+            return new TaskBatchResult(saved, rejected);
+        });
+        pipeline.start();
+        ConsumerRecord<String, String> ghostRecord = record(1);
+        Acknowledgment ack = mock(Acknowledgment.class);
+        Acknowledgment ghostAck = mock(Acknowledgment.class);
+
+        // When
+        pipeline.publish(record(0), assignment("user0", "task0"), ack);
+        pipeline.publish(ghostRecord, assignment("ghost", "task1"), ghostAck);
+        pipeline.stop();
+
+        // Then
+        verify(deadLetterPublishingRecoverer).accept(eq(ghostRecord), isA(NotFoundExeption.class));
+        verifyNoMoreInteractions(deadLetterPublishingRecoverer);
+        verify(ack).acknowledge();
+        verify(ghostAck).acknowledge();
+    }
+
+    @Test
+    void publish_WhenBatchFails_ShouldRetryPerRecordAndSendOnlyFailedToDlt() throws Exception {
+        // Given: пачка с битой задачей падает, остальные задачи по одной записываются
+        List<String> written = Collections.synchronizedList(new ArrayList<>());
+        when(userService.addTasksBatch(anyList())).thenAnswer(invocation -> {
+            List<TaskAssignment> assignments = invocation.getArgument(0);
+            if (assignments.stream().anyMatch(a -> a.getTask().getTitle().equals("bad"))) {
+                throw new DataIntegrityViolationException("value too long");
+            }
+            assignments.forEach(a -> written.add(a.getTask().getTitle()));
+            return new TaskBatchResult(assignments, List.of());
+        });
+        ReflectionTestUtils.setField(pipeline, "laneCount", 1);
+        pipeline.start();
+        ConsumerRecord<String, String> badRecord = record(1);
+        List<Acknowledgment> acks = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            Acknowledgment ack = mock(Acknowledgment.class);
+            acks.add(ack);
+            pipeline.publish(i == 1 ? badRecord : record(i), assignment("user0", i == 1 ? "bad" : "task" + i), ack);
+        }
+        pipeline.stop();
+
+        // Then
+        assertThat(written).containsExactlyInAnyOrder("task0", "task2");
+        verify(deadLetterPublishingRecoverer).accept(eq(badRecord), argThat(e -> e.getMessage().equals("value too long")));
+        verifyNoMoreInteractions(deadLetterPublishingRecoverer);
+        acks.forEach(ack -> verify(ack).acknowledge());
+    }
+
+    private static ConsumerRecord<String, String> record(int offset) {
+        return new ConsumerRecord<>("task-assignments", 0, offset, "user", "{}");
+    }
+
+    private static TaskAssignment assignment(String username, String title) {
+        return new TaskAssignment(username, Task.builder().title(title).build(), null);
+    }
+}
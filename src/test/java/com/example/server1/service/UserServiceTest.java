@@ -2,12 +2,18 @@ package com.example.server1.service;
 
 import com.example.server1.controller.NotificationProduser;
 import com.example.server1.entity.Importance;
+import com.example.server1.entity.NotificationType;
+import com.example.server1.entity.OwnedTask;
 import com.example.server1.entity.Role;
 import com.example.server1.entity.Status;
 import com.example.server1.entity.Task;
+import com.example.server1.entity.TaskAssignment;
+import com.example.server1.entity.TaskBatchResult;
+import com.example.server1.entity.TaskDeletion;
 import com.example.server1.entity.User;
 import com.example.server1.exeptions.NotFoundExeption;
 import com.example.server1.repository.CommentRepositopy;
+import com.example.server1.repository.TaskJdbcRepository;
 import com.example.server1.repository.TaskRepository;
 import com.example.server1.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -21,8 +27,10 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -45,9 +53,24 @@ class UserServiceTest {
     @Mock
     private NotificationProduser notificationProduser;
 
+    @Mock
+    private NotificationCoalescer notificationCoalescer;
+
     @Mock
     private CommentRepositopy commentRepositopy;
 
+    @Mock
+    private TaskCounterService taskCounterService;
+
+    @Mock
+    private TaskJdbcRepository taskJdbcRepository;
+
+    @Mock
+    private MessageDeduplicator messageDeduplicator;
+
+    @Mock
+    private TaskChangelogPublisher taskChangelogPublisher;
+
     @InjectMocks
     private UserService userService;
 
@@ -182,8 +205,9 @@ class UserServiceTest {
         assertThat(task.getStatus()).isEqualTo(Status.НЕ_НАЧАТА);
         assertThat(task.getAssignee()).isEqualTo(user);
         verify(taskRepository).save(task);
+        verify(taskCounterService).taskAdded(user.getId(), Status.НЕ_НАЧАТА);
         verify(userRepository).save(user);
-        verify(notificationProduser).sendNotificationForUser(anyString(), eq(username));
+        verify(notificationCoalescer).tasksAssigned(username, List.of(task.getId()));
     }
 
     @Test
@@ -210,6 +234,105 @@ class UserServiceTest {
                 .hasMessage("пользователь не найден");
     }
 
+    @Test
+    void addTasksBatch_ShouldInsertKnownUsersTasksInOneBatch() {
+        // Given
+        Task second = Task.builder().title("Second Task").importance(Importance.МОЖЕТ_ПОДОЖДАТЬ).build();
+        Task orphan = Task.builder().title("Orphan Task").importance(Importance.МОЖЕТ_ПОДОЖДАТЬ).build();
+        List<TaskAssignment> assignments = List.of(
+                new TaskAssignment("testuser", task),
+                new TaskAssignment("testuser", second),
+                new TaskAssignment("ghost", orphan));
+        when(userRepository.findAllByUsernameIn(any())).thenReturn(List.of(user));
+
+        // When
+        TaskBatchResult result = userService.addTasksBatch(assignments);
+
+        // Then
+        assertThat(result.getSaved()).extracting(TaskAssignment::getTask).containsExactly(task, second);
+        assertThat(result.getRejected()).containsExactly(assignments.get(2));
+        assertThat(second.getAssignee()).isEqualTo(user);
+        assertThat(second.getStatus()).isEqualTo(Status.НЕ_НАЧАТА);
+        verify(userRepository, times(1)).findAllByUsernameIn(any());
+        verify(taskJdbcRepository).batchInsert(List.of(task, second));
+        verify(taskCounterService).add(user.getId(), Status.НЕ_НАЧАТА, 2);
+        verify(notificationCoalescer).tasksAssigned("testuser", Arrays.asList(task.getId(), second.getId()));
+        verify(taskRepository, never()).save(any());
+    }
+
+    @Test
+    void addTasksBatch_WhenMessagesRedelivered_ShouldSkipProcessedAndInBatchDuplicates() {
+        // Given
+        Task duplicate = Task.builder().title("Test Task").importance(Importance.СРОЧНАЯ).build();
+        Task old = Task.builder().title("Old Task").importance(Importance.СРОЧНАЯ).build();
+        List<TaskAssignment> assignments = List.of(
+                new TaskAssignment("testuser", task, "id:1"),
+                new TaskAssignment("testuser", duplicate, "id:1"),
+                new TaskAssignment("testuser", old, "id:0"));
+        when(messageDeduplicator.markProcessed(List.of("id:1", "id:1", "id:0")))
+                .thenReturn(new HashSet<>(Set.of("id:1")));
+        when(userRepository.findAllByUsernameIn(any())).thenReturn(List.of(user));
+
+        // When
+        TaskBatchResult result = userService.addTasksBatch(assignments);
+
+        // Then
+        assertThat(result.getSaved()).extracting(TaskAssignment::getTask).containsExactly(task);
+        assertThat(result.getRejected()).isEmpty();
+        verify(taskJdbcRepository).batchInsert(List.of(task));
+        verify(taskCounterService).add(user.getId(), Status.НЕ_НАЧАТА, 1);
+    }
+
+    @Test
+    void deleteTasksBatch_ShouldCheckOwnershipOnceAndDeleteBySet() {
+        // Given
+        List<TaskDeletion> deletions = List.of(
+                new TaskDeletion("testuser", 1L, null),
+                new TaskDeletion("testuser", 2L, null),
+                new TaskDeletion("intruder", 3L, null),
+                new TaskDeletion("testuser", 4L, null));
+        when(taskRepository.findOwnedByIds(any())).thenReturn(List.of(
+                new OwnedTask(1L, "First", Status.НЕ_НАЧАТА, 1L, "testuser"),
+                new OwnedTask(2L, "Second", Status.В_РАБОТЕ, 1L, "testuser"),
+                new OwnedTask(3L, "Third", Status.НЕ_НАЧАТА, 1L, "testuser")));
+
+        // When
+        List<TaskDeletion> rejected = userService.deleteTasksBatch(deletions);
+
+        // Then
+        assertThat(rejected).extracting(TaskDeletion::getTaskId).containsExactly(3L, 4L);
+        verify(taskRepository, times(1)).findOwnedByIds(any());
+        verify(commentRepositopy).deleteByTaskIds(Set.of(1L, 2L));
+        verify(taskRepository).deleteByIds(Set.of(1L, 2L));
+        verify(taskCounterService).add(1L, Status.НЕ_НАЧАТА, -1);
+        verify(taskCounterService).add(1L, Status.В_РАБОТЕ, -1);
+        verify(notificationProduser, times(1)).send(argThat(e -> e.getType() == NotificationType.TASK_DELETED
+                && e.getCount() == 2 && e.getRecipient().equals("testuser")));
+        verify(userRepository, never()).getUserByUsername(anyString());
+    }
+
+    @Test
+    void deleteTasksBatch_ShouldMarkOnlyAcceptedDeletionsProcessed() {
+        // Given
+        List<TaskDeletion> deletions = List.of(
+                new TaskDeletion("testuser", 1L, "id:1"),
+                new TaskDeletion("intruder", 2L, "id:2"),
+                new TaskDeletion("testuser", 3L, "id:3"));
+        when(taskRepository.findOwnedByIds(any())).thenReturn(List.of(
+                new OwnedTask(1L, "First", Status.НЕ_НАЧАТА, 1L, "testuser"),
+                new OwnedTask(2L, "Second", Status.НЕ_НАЧАТА, 1L, "testuser")));
+        when(messageDeduplicator.markProcessed(List.of("id:1"))).thenReturn(new HashSet<>(Set.of("id:1")));
+        when(messageDeduplicator.findProcessed(List.of("id:2", "id:3"))).thenReturn(Set.of("id:3"));
+
+        // When
+        List<TaskDeletion> rejected = userService.deleteTasksBatch(deletions);
+
+        // Then: чужая задача отклонена и не помечена, повтор уже выполненного удаления 3 пропущен без dlt
+        assertThat(rejected).extracting(TaskDeletion::getMessageKey).containsExactly("id:2");
+        verify(messageDeduplicator).markProcessed(List.of("id:1"));
+        verify(taskRepository).deleteByIds(Set.of(1L));
+    }
+
     @Test
     void findByUsername_WhenUserExists_ShouldReturnUser() {
         // Given
@@ -287,6 +410,7 @@ class UserServiceTest {
 
         // Then
         verify(taskRepository).deleteByUserId(user.getId());
+        verify(taskCounterService).userDeleted(user.getId());
         verify(userRepository).deleteByUsername(username);
     }
 
@@ -305,7 +429,22 @@ class UserServiceTest {
         // Then
         verify(commentRepositopy).deleteAllByTask(task);
         verify(taskRepository).deleteTaskById(taskId);
-        verify(notificationProduser).sendNotificationForUser(anyString(), eq(username));
+        verify(taskCounterService).taskRemoved(user.getId(), task.getStatus());
+        verify(notificationProduser).send(argThat(e -> e.getType() == NotificationType.TASK_DELETED
+                && e.getRecipient().equals(username) && e.getTaskId().equals(taskId)));
+    }
+
+    @Test
+    void deleteTask_WhenTaskNotOwnedByUser_ShouldThrowException() {
+        // Given
+        user.setTasks(Arrays.asList(task));
+        when(userRepository.getUserByUsername("testuser")).thenReturn(user);
+
+        // When & Then
+        assertThatThrownBy(() -> userService.deleteTask("testuser", 42L))
+                .isInstanceOf(NotFoundExeption.class)
+                .hasMessage("задача не найдена");
+        verify(taskRepository, never()).deleteTaskById(any());
     }
 
     @Test